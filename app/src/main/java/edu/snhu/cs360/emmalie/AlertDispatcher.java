@@ -0,0 +1,171 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Delivers goal alerts from the alert_outbox table in the background.
+ *  - enqueue() only writes an outbox row; the UI never waits on the transport
+ *  - one alert per user per goal per day (the outbox's UNIQUE key), so every insert
+ *    below the goal no longer re-sends
+ *  - pending alerts for the same destination go out together, up to MAX_BATCH per message
+ *  - at most RATE_LIMIT messages per RATE_WINDOW_MS
+ *  - failed sends retry with exponential backoff and are given up after MAX_ATTEMPTS
+ * All work runs on one thread, so sends never overlap and a row is marked sent only by the
+ * send that delivered it. A process death between a send and its mark can still repeat
+ * that one message on the next start.
+ */
+public final class AlertDispatcher {
+
+    private static final String TAG = "AlertDispatcher";
+
+    static final int MAX_BATCH = 5;
+    static final int RATE_LIMIT = 10;
+    static final long RATE_WINDOW_MS = 60_000;
+    static final int MAX_ATTEMPTS = 6;
+    static final long BACKOFF_BASE_MS = 30_000;      // 30s, 1m, 2m, 4m, 8m
+    static final long BACKOFF_MAX_MS = 60 * 60_000;
+    private static final int DRAIN_LIMIT = 50;
+
+    /** Runs the dispatcher's work. Must be single-threaded, so drains never overlap. */
+    interface Scheduler {
+        void schedule(@NonNull Runnable task, long delayMs);
+    }
+
+    private static AlertDispatcher instance;
+
+    private final AppDatabaseHelper db;
+    private final AlertTransport transport;
+    private final Scheduler scheduler;
+    private final LongSupplier clock;
+
+    // scheduler thread only
+    private final long[] recentSends = new long[RATE_LIMIT]; // ring of the last sends' times
+    private int oldestSend;                                  // ring index of the oldest one
+    private long wakeAt = Long.MAX_VALUE;                    // earliest drain already scheduled
+
+    /** Process-wide dispatcher over the app database and SMS; delivers leftovers on first use. */
+    @NonNull
+    public static synchronized AlertDispatcher get(@NonNull Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            ScheduledExecutorService thread = Executors.newSingleThreadScheduledExecutor(
+                    r -> new Thread(r, "alert-dispatcher"));
+            instance = new AlertDispatcher(WeightTrackerApp.get(app).db(), new SmsAlertTransport(app),
+                    (task, delayMs) -> thread.schedule(task, delayMs, TimeUnit.MILLISECONDS),
+                    System::currentTimeMillis);
+            instance.wake();
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    AlertDispatcher(@NonNull AppDatabaseHelper db, @NonNull AlertTransport transport,
+                    @NonNull Scheduler scheduler, @NonNull LongSupplier clock) {
+        this.db = db;
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        Arrays.fill(recentSends, Long.MIN_VALUE / 2);
+    }
+
+    /**
+     * Queue an alert for {@code userId}'s goal {@code goalKg} on epoch day {@code day}.
+     * A second alert for the same goal on the same day is dropped.
+     */
+    public void enqueue(long userId, double goalKg, int day,
+                        @NonNull String destination, @NonNull String body) {
+        scheduler.schedule(() -> {
+            if (db.enqueueAlert(userId, goalKg, day, destination, body, clock.getAsLong()) > 0) drain();
+        }, 0);
+    }
+
+    /** Deliver whatever is due now (e.g. alerts left over from an earlier process). */
+    public void wake() {
+        scheduler.schedule(this::scheduledDrain, 0);
+    }
+
+    private void scheduledDrain() {
+        wakeAt = Long.MAX_VALUE;
+        drain();
+    }
+
+    /**
+     * Send everything that is due and allowed by the rate limit, then schedule the next
+     * run. Scheduler thread only. Returns the number of messages sent.
+     */
+    @VisibleForTesting
+    int drain() {
+        int sent = 0;
+        long now = clock.getAsLong();
+        while (recentSends[oldestSend] <= now - RATE_WINDOW_MS) {
+            List<AppDatabaseHelper.OutboxAlert> due = db.getDueAlerts(now, DRAIN_LIMIT);
+            if (due.isEmpty()) break;
+            List<AppDatabaseHelper.OutboxAlert> batch = nextBatch(due);
+            try {
+                transport.send(batch.get(0).destination, body(batch));
+                recentSends[oldestSend] = now;
+                oldestSend = (oldestSend + 1) % RATE_LIMIT;
+                db.markAlertsSent(batch, now);
+                sent++;
+            } catch (IOException e) {
+                Log.w(TAG, "alert send failed; " + batch.size() + " alert(s) will retry", e);
+                for (AppDatabaseHelper.OutboxAlert a : batch) {
+                    int attempts = a.attempts + 1;
+                    db.markAlertFailed(a.id, attempts, attempts >= MAX_ATTEMPTS ? -1 : now + backoff(attempts));
+                }
+            }
+            now = clock.getAsLong();
+        }
+        scheduleNext(now);
+        return sent;
+    }
+
+    private void scheduleNext(long now) {
+        long next = db.nextAlertDueAt();
+        if (next < 0) return; // outbox drained
+        next = Math.max(next, recentSends[oldestSend] + RATE_WINDOW_MS);
+        if (next >= wakeAt) return;
+        wakeAt = next;
+        scheduler.schedule(this::scheduledDrain, Math.max(0, next - now));
+    }
+
+    static long backoff(int attempts) {
+        return Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempts - 1, 20));
+    }
+
+    /** The first due alert plus later due ones for the same destination, up to MAX_BATCH. */
+    @NonNull
+    private static List<AppDatabaseHelper.OutboxAlert> nextBatch(@NonNull List<AppDatabaseHelper.OutboxAlert> due) {
+        String destination = due.get(0).destination;
+        List<AppDatabaseHelper.OutboxAlert> batch = new ArrayList<>(MAX_BATCH);
+        for (AppDatabaseHelper.OutboxAlert a : due) {
+            if (a.destination.equals(destination)) batch.add(a);
+            if (batch.size() == MAX_BATCH) break;
+        }
+        return batch;
+    }
+
+    @NonNull
+    private static String body(@NonNull List<AppDatabaseHelper.OutboxAlert> batch) {
+        if (batch.size() == 1) return batch.get(0).body;
+        StringBuilder sb = new StringBuilder();
+        for (AppDatabaseHelper.OutboxAlert a : batch) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(a.body);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Delivers one alert message. AlertDispatcher calls it from its own thread, one send at a
+ * time; SmsAlertTransport is the real one, tests plug in a local fake.
+ */
+public interface AlertTransport {
+
+    /**
+     * Hand {@code body} off for delivery to {@code destination}. Returning normally means
+     * the message was accepted and will not be retried; an IOException means try again later.
+     */
+    void send(@NonNull String destination, @NonNull String body) throws IOException;
+}
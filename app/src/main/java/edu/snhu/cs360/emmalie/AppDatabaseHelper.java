@@ -1,28 +1,58 @@
 package edu.snhu.cs360.emmalie;
 
+import android.content.ComponentCallbacks2;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
- * SQLite database * Schema (v2):
+ * SQLite database * Schema (v8):
  *  - users   (_id INTEGER PK, username TEXT UNIQUE, password TEXT)
- *  - weights (_id INTEGER PK, user_id INTEGER, date TEXT, weight REAL)
-    - keep the version bump below and let onUpgrade() rebuild the DB.
+ *  - weights (_id INTEGER PK, user_id INTEGER, date INTEGER (epoch day), weight REAL)
+ *  - idx_weights_user_date_id ON weights (user_id, date DESC, _id DESC, weight)
+ *  - idx_weights_user_day UNIQUE ON weights (user_id, date): one entry per user per day,
+ *    re-entering a day goes through upsertWeight()
+ *  - weight_rollups (user_id, period, start_day) -> cnt, sum_kg, min_kg, max_kg,
+ *    one row per user per week/month that has weights; kept current by triggers
+ *  - user_settings (user_id, name) -> value: unit, goal, ... (replaces per-user prefs keys)
+ *  - alert_outbox (_id, user_id, goal_kg, day UNIQUE together, destination, body, status,
+ *    attempts, next_attempt_at, sent_at): goal alerts waiting for / done with delivery
+ * Schema changes: bump DB_VERSION and add a migrateToVN() step to onUpgrade().
+ * Upgrades run in place, one version at a time, so existing history is kept.
+ * Public operations are timed in PerfMetrics as "db.<method>".
+ * Recently active users' whole histories stay in memory (UserSnapshotCache), so switching
+ * back to one reads nothing; the app calls trimMemory() from onTrimMemory().
+ * Backups are DatabaseSnapshot files of the live rows only, loaded back by replaceAll().
+ * Range statistics (getStats) are assembled from cached per-month WeightStats where it can.
  */
 public class AppDatabaseHelper extends SQLiteOpenHelper {
 
     // --- DB meta ---
     private static final String DB_NAME = "weight_tracker.db";
     // Bump this when schema changes (e.g., when we added the _id column)
-    private static final int DB_VERSION = 2;
+    static final int DB_VERSION = 9;
+
+    private static final String TAG = "AppDatabaseHelper";
 
     // --- Tables / columns ---
     // users
@@ -34,11 +64,289 @@ public class AppDatabaseHelper extends SQLiteOpenHelper {
     // weights
     private static final String T_WEIGHTS = "weights";
     private static final String C_USER_ID = "user_id";       // FK -> users._id
-    private static final String C_DATE = "date";             // store as ISO string YYYY-MM-DD
+    private static final String C_DATE = "date";             // epoch day (see EpochDays); TEXT before v5
     private static final String C_WEIGHT = "weight";         // numeric
 
+    // indexes
+    // Covers "WHERE user_id=? ORDER BY date DESC, _id DESC" plus the weight column,
+    // so history reads and keyset pages never touch the table or a temp sort b-tree.
+    private static final String IDX_WEIGHTS_USER_DATE = "idx_weights_user_date"; // v3 only
+    private static final String IDX_WEIGHTS_USER_DATE_ID = "idx_weights_user_date_id";
+    // One row per user per day (v9); also the conflict target of SQL_UPSERT_WEIGHT.
+    private static final String IDX_WEIGHTS_USER_DAY = "idx_weights_user_day";
+
+    // weight_rollups: per-user weekly/monthly aggregates
+    private static final String T_ROLLUPS = "weight_rollups";
+    private static final String C_PERIOD = "period";         // ROLLUP_WEEK / ROLLUP_MONTH
+    private static final String C_START_DAY = "start_day";   // first epoch day of the bucket
+    private static final String C_CNT = "cnt";
+    private static final String C_SUM_KG = "sum_kg";
+    private static final String C_MIN_KG = "min_kg";
+    private static final String C_MAX_KG = "max_kg";
+    private static final String[] ROLLUP_TRIGGERS =
+            {"trg_weights_rollup_insert", "trg_weights_rollup_delete", "trg_weights_rollup_update"};
+
+    // user_settings: one row per user per setting, value typed by the setting
+    private static final String T_SETTINGS = "user_settings";
+    private static final String C_NAME = "name";
+    private static final String C_VALUE = "value";
+    private static final String SETTING_UNIT = "unit";        // TEXT "kg" / "lbs"
+    private static final String SETTING_GOAL_KG = "goal_kg";  // REAL
+
+    // prefs keys the settings used to live under, as "<prefix><userId>" (see importLegacySettings)
+    private static final String LEGACY_UNIT_PREFIX = "unit_";
+    private static final String LEGACY_GOAL_PREFIX = "goal_kg_"; // double as raw long bits
+
+    // alert_outbox: goal alerts, written by the UI and delivered by AlertDispatcher
+    private static final String T_OUTBOX = "alert_outbox";
+    private static final String C_GOAL_KG = "goal_kg";
+    private static final String C_DAY = "day";                     // epoch day the alert is for
+    private static final String C_DESTINATION = "destination";
+    private static final String C_BODY = "body";
+    private static final String C_STATUS = "status";               // ALERT_PENDING / _SENT / _FAILED
+    private static final String C_ATTEMPTS = "attempts";
+    private static final String C_NEXT_ATTEMPT_AT = "next_attempt_at"; // wall-clock millis
+    private static final String C_SENT_AT = "sent_at";
+    private static final String IDX_OUTBOX_DUE = "idx_alert_outbox_due";
+
+    /** Outbox states. */
+    public static final int ALERT_PENDING = 0;
+    public static final int ALERT_SENT = 1;
+    public static final int ALERT_FAILED = 2;
+
+    /** Rollup periods; weeks start on Monday, months on the 1st. */
+    public static final int ROLLUP_WEEK = 0;
+    public static final int ROLLUP_MONTH = 1;
+
+    /**
+     * How the v9 upgrade (and a restore of an older snapshot) settles several rows on one
+     * day: keep the most recently entered one (highest _id), or keep that row with the
+     * day's average weight.
+     */
+    public static final int DUPLICATES_KEEP_LATEST = 0;
+    public static final int DUPLICATES_AVERAGE = 1;
+
+    /** Open ends for the date-range page queries (EpochDays.INVALID stays out of range). */
+    public static final int FIRST_DAY = EpochDays.INVALID + 1;
+    public static final int LAST_DAY = Integer.MAX_VALUE;
+
+    // --- Hot-path SQL ---
+    // Built once as constants: every call hands SQLite the same string, so both our
+    // compiled-statement cache and the connection's prepared-statement cache hit.
+
+    // Bulk writers (CSV import) compile this once and reuse it for every row.
+    static final String SQL_INSERT_WEIGHT =
+            "INSERT INTO " + T_WEIGHTS + " (" + C_USER_ID + ", " + C_DATE + ", " + C_WEIGHT + ")" +
+                    " VALUES (?, ?, ?)";
+    // Re-entering a day replaces that day's weight in place (same _id).
+    static final String SQL_UPSERT_WEIGHT =
+            SQL_INSERT_WEIGHT + " ON CONFLICT (" + C_USER_ID + ", " + C_DATE + ")" +
+                    " DO UPDATE SET " + C_WEIGHT + "=excluded." + C_WEIGHT;
+    private static final String SQL_UPDATE_WEIGHT =
+            "UPDATE " + T_WEIGHTS + " SET " + C_DATE + "=?, " + C_WEIGHT + "=? WHERE " + C_ID + "=?";
+    private static final String SQL_DELETE_WEIGHT =
+            "DELETE FROM " + T_WEIGHTS + " WHERE " + C_ID + "=?";
+    // batch edits put a row back under its old _id (undo, or moved to another day)
+    private static final String SQL_PUT_WEIGHT =
+            "INSERT INTO " + T_WEIGHTS + " (" + C_ID + ", " + C_USER_ID + ", " + C_DATE + ", " + C_WEIGHT + ")" +
+                    " VALUES (?, ?, ?, ?)";
+    // snapshot restore does the same; a repeated _id in the file is left alone
+    static final String SQL_RESTORE_WEIGHT =
+            "INSERT OR IGNORE INTO " + T_WEIGHTS + " (" + C_ID + ", " + C_USER_ID + ", " + C_DATE + ", " + C_WEIGHT + ")" +
+                    " VALUES (?, ?, ?, ?)";
+    private static final String SQL_CHECK_LOGIN =
+            "SELECT " + C_ID + " FROM " + T_USERS + " WHERE " + C_USERNAME + "=? AND " + C_PASSWORD + "=?";
+
+    private static final String SQL_SELECT_ENTRY =
+            "SELECT " + C_ID + "," + C_USER_ID + "," + C_DATE + "," + C_WEIGHT + " FROM " + T_WEIGHTS;
+    private static final String ORDER_NEWEST_FIRST = " ORDER BY " + C_DATE + " DESC, " + C_ID + " DESC";
+    private static final String ORDER_OLDEST_FIRST = " ORDER BY " + C_DATE + " ASC, " + C_ID + " ASC";
+
+    private static final String SQL_GET_WEIGHT = SQL_SELECT_ENTRY + " WHERE " + C_ID + "=?";
+    private static final String SQL_GET_WEIGHT_ON_DAY =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND " + C_DATE + "=?";
+    private static final String SQL_HISTORY =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=?" + ORDER_NEWEST_FIRST;
+    private static final String SQL_LATEST = SQL_HISTORY + " LIMIT 1";
+    private static final String SQL_PAGE_FIRST = SQL_HISTORY + " LIMIT ?";
+    private static final String SQL_PAGE_OLDER =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND (" + C_DATE + "," + C_ID + ") < (?,?)" +
+                    ORDER_NEWEST_FIRST + " LIMIT ?";
+    private static final String SQL_PAGE_NEWER =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND (" + C_DATE + "," + C_ID + ") > (?,?)" +
+                    ORDER_OLDEST_FIRST + " LIMIT ?";
+    // The same pages inside [fromDay, toDay]. Past the first page the anchor already
+    // bounds one side, so only the far end is added and the seek still starts at the anchor.
+    private static final String SQL_RANGE_FIRST =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND " + C_DATE + " BETWEEN ? AND ?" +
+                    ORDER_NEWEST_FIRST + " LIMIT ?";
+    private static final String SQL_RANGE_OLDER =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND " + C_DATE + ">=?" +
+                    " AND (" + C_DATE + "," + C_ID + ") < (?,?)" + ORDER_NEWEST_FIRST + " LIMIT ?";
+    private static final String SQL_RANGE_NEWER =
+            SQL_SELECT_ENTRY + " WHERE " + C_USER_ID + "=? AND " + C_DATE + "<=?" +
+                    " AND (" + C_DATE + "," + C_ID + ") > (?,?)" + ORDER_OLDEST_FIRST + " LIMIT ?";
+    private static final String SQL_COUNT_MIN_MAX =
+            "SELECT COUNT(*), MIN(" + C_WEIGHT + "), MAX(" + C_WEIGHT + ")" +
+                    " FROM " + T_WEIGHTS + " WHERE " + C_USER_ID + "=?";
+    private static final String SQL_TREND_ROWS =
+            "SELECT " + C_ID + "," + C_DATE + "," + C_WEIGHT + " FROM " + T_WEIGHTS +
+                    " WHERE " + C_USER_ID + "=?" + ORDER_OLDEST_FIRST;
+    // getStats(): a date range in date order, so rows arrive a month at a time
+    private static final String SQL_STATS_ROWS =
+            "SELECT " + C_DATE + "," + C_WEIGHT + " FROM " + T_WEIGHTS +
+                    " WHERE " + C_USER_ID + "=? AND " + C_DATE + " BETWEEN ? AND ?" + ORDER_OLDEST_FIRST;
+    private static final String SQL_EXPORT_ROWS =
+            "SELECT " + C_DATE + "," + C_WEIGHT + " FROM " + T_WEIGHTS +
+                    " WHERE " + C_USER_ID + "=?" + ORDER_OLDEST_FIRST;
+    // DatabaseSnapshot: every live row, in the order the snapshot delta-encodes best
+    static final String SQL_SNAPSHOT_USERS =
+            "SELECT " + C_ID + "," + C_USERNAME + "," + C_PASSWORD + " FROM " + T_USERS + " ORDER BY " + C_ID;
+    static final String SQL_SNAPSHOT_SETTINGS =
+            "SELECT " + C_USER_ID + "," + C_NAME + "," + C_VALUE + " FROM " + T_SETTINGS +
+                    " ORDER BY " + C_USER_ID + "," + C_NAME;
+    // the history index walked backwards: no sort, no table reads
+    static final String SQL_SNAPSHOT_WEIGHTS =
+            "SELECT " + C_USER_ID + "," + C_ID + "," + C_DATE + "," + C_WEIGHT + " FROM " + T_WEIGHTS +
+                    " ORDER BY " + C_USER_ID + " DESC," + C_DATE + "," + C_ID;
+    static final String SQL_RESTORE_USER =
+            "INSERT INTO " + T_USERS + " (" + C_ID + "," + C_USERNAME + "," + C_PASSWORD + ") VALUES (?,?,?)";
+    static final String SQL_RESTORE_SETTING =
+            "INSERT INTO " + T_SETTINGS + " (" + C_USER_ID + "," + C_NAME + "," + C_VALUE + ") VALUES (?,?,?)";
+    private static final String SQL_ROLLUPS =
+            "SELECT " + C_PERIOD + "," + C_START_DAY + "," + C_CNT + "," +
+                    C_SUM_KG + "," + C_MIN_KG + "," + C_MAX_KG +
+                    " FROM " + T_ROLLUPS +
+                    " WHERE " + C_USER_ID + "=? AND " + C_PERIOD + "=?" +
+                    " AND " + C_START_DAY + " BETWEEN ? AND ?" +
+                    " ORDER BY " + C_START_DAY + " DESC";
+    // UNIQUE(user_id, goal_kg, day) makes a repeat alert for the same goal on the same day a no-op
+    private static final String SQL_ENQUEUE_ALERT =
+            "INSERT OR IGNORE INTO " + T_OUTBOX + " (" + C_USER_ID + "," + C_GOAL_KG + "," + C_DAY + "," +
+                    C_DESTINATION + "," + C_BODY + "," + C_NEXT_ATTEMPT_AT + ") VALUES (?,?,?,?,?,?)";
+    private static final String SQL_DUE_ALERTS =
+            "SELECT " + C_ID + "," + C_USER_ID + "," + C_DESTINATION + "," + C_BODY + "," + C_ATTEMPTS +
+                    " FROM " + T_OUTBOX +
+                    " WHERE " + C_STATUS + "=" + ALERT_PENDING + " AND " + C_NEXT_ATTEMPT_AT + "<=?" +
+                    " ORDER BY " + C_NEXT_ATTEMPT_AT + "," + C_ID + " LIMIT ?";
+    private static final String SQL_NEXT_ALERT_DUE =
+            "SELECT IFNULL(MIN(" + C_NEXT_ATTEMPT_AT + "), -1) FROM " + T_OUTBOX +
+                    " WHERE " + C_STATUS + "=" + ALERT_PENDING;
+    private static final String SQL_ALERT_SENT =
+            "UPDATE " + T_OUTBOX + " SET " + C_STATUS + "=" + ALERT_SENT + ", " + C_SENT_AT + "=?" +
+                    " WHERE " + C_ID + "=? AND " + C_STATUS + "=" + ALERT_PENDING;
+    private static final String SQL_ALERT_RETRY =
+            "UPDATE " + T_OUTBOX + " SET " + C_ATTEMPTS + "=?, " + C_NEXT_ATTEMPT_AT + "=?" +
+                    " WHERE " + C_ID + "=?";
+    private static final String SQL_ALERT_FAILED =
+            "UPDATE " + T_OUTBOX + " SET " + C_STATUS + "=" + ALERT_FAILED + ", " + C_ATTEMPTS + "=?" +
+                    " WHERE " + C_ID + "=?";
+
+    private static final String SQL_SETTINGS =
+            "SELECT " + C_NAME + "," + C_VALUE + " FROM " + T_SETTINGS + " WHERE " + C_USER_ID + "=?";
+    private static final String SQL_PUT_SETTING =
+            "INSERT INTO " + T_SETTINGS + " (" + C_USER_ID + "," + C_NAME + "," + C_VALUE + ") VALUES (?,?,?)" +
+                    " ON CONFLICT(" + C_USER_ID + "," + C_NAME + ") DO UPDATE SET " + C_VALUE + "=excluded." + C_VALUE;
+    private static final String SQL_DELETE_SETTING =
+            "DELETE FROM " + T_SETTINGS + " WHERE " + C_USER_ID + "=? AND " + C_NAME + "=?";
+
+    // --- Connection tuning (applied in onConfigure on every open) ---
+    // WAL lets the read pool run while the writer commits; with WAL, synchronous=NORMAL
+    // is still crash-safe (a power cut can only lose the last commits, never corrupt).
+    private static final int CACHE_SIZE_KIB = 8 * 1024;
+
+    // Whole histories of recently active users (~200k rows), see UserSnapshotCache.
+    private static final int SNAPSHOT_CACHE_BYTES = 4 * 1024 * 1024;
+
+    // Compiled write statements, bound to statementsDb (guarded by statements itself).
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    private SQLiteDatabase statementsDb;
+
+    // Per-user summaries, kept current by the write methods below (guarded by itself).
+    private final Map<Long, WeightSummary> summaries = new HashMap<>();
+
+    // Row writes started / finished (their caches patched). A write commits before it patches,
+    // so a summary, trend or snapshot load in between would already hold the row and then be
+    // patched with it again: loads only fill a cache when no write overlapped them (see
+    // cacheLoadMark). Both guarded by summaries.
+    private long cacheWritesStarted;
+    private long cacheWritesFinished;
+
+    // Runs between a write's commit and its cache patches; lets a test land a load there.
+    @VisibleForTesting
+    volatile Runnable afterCommitForTest;
+
+    // Per-user trend engines, loaded on first use and updated by the same write methods.
+    private final Map<Long, TrendEngine> trends = new HashMap<>();
+
+    // Per-user WeightStats of whole calendar months, by first day; a write drops its month.
+    // monthStatsWrites counts those drops, so a read that overlapped one caches nothing.
+    // Both guarded by monthStats.
+    private final Map<Long, TreeMap<Integer, WeightStats>> monthStats = new HashMap<>();
+    private long monthStatsWrites;
+
+    // Per-user settings, loaded on first use and written through by the setters (guarded by itself).
+    private final Map<Long, UserSettings> settings = new HashMap<>();
+
+    // Per-user whole-history snapshots, patched by the same write methods (thread-safe).
+    private final UserSnapshotCache snapshots = new UserSnapshotCache(SNAPSHOT_CACHE_BYTES);
+
+    // DUPLICATES_*: how same-day rows from before v9 are merged
+    private final int duplicatePolicy;
+
     public AppDatabaseHelper(@NonNull Context ctx) {
-        super(ctx, DB_NAME, null, DB_VERSION);
+        this(ctx, DB_NAME);
+    }
+
+    /** Tests pass their own file name (or null for an in-memory DB). */
+    @VisibleForTesting
+    AppDatabaseHelper(@NonNull Context ctx, String dbName) {
+        this(ctx, dbName, DUPLICATES_KEEP_LATEST);
+    }
+
+    @VisibleForTesting
+    AppDatabaseHelper(@NonNull Context ctx, String dbName, int duplicatePolicy) {
+        super(ctx, dbName, null, DB_VERSION);
+        this.duplicatePolicy = duplicatePolicy;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(@NonNull SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setForeignKeyConstraintsEnabled(true);
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KIB); // negative = KiB, not pages
+    }
+
+    @Override
+    public synchronized void close() {
+        synchronized (statements) {
+            for (SQLiteStatement st : statements.values()) st.close();
+            statements.clear();
+            statementsDb = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Compiled statement for {@code sql}, compiled once per open database. Callers hold
+     * the {@code statements} lock from bind through execute.
+     */
+    @NonNull
+    private SQLiteStatement statement(@NonNull String sql) {
+        SQLiteDatabase db = getWritableDatabase();
+        if (db != statementsDb) {
+            for (SQLiteStatement st : statements.values()) st.close();
+            statements.clear();
+            statementsDb = db;
+        }
+        SQLiteStatement st = statements.get(sql);
+        if (st == null) {
+            st = db.compileStatement(sql);
+            statements.put(sql, st);
+        }
+        return st;
     }
 
     @Override
@@ -53,24 +361,329 @@ public class AppDatabaseHelper extends SQLiteOpenHelper {
         );
 
         // Weights table
+        db.execSQL(SQL_CREATE_WEIGHTS_V5);
+
+        createWeightIndexes(db);
+        createWeightDayIndex(db);
+        createRollups(db);
+        createSettings(db);
+        createOutbox(db);
+    }
+
+    // weights as of v5: integer epoch-day dates. migrateToV5 builds exactly this table.
+    private static final String SQL_CREATE_WEIGHTS_V5 =
+            "CREATE TABLE " + T_WEIGHTS + " (" +
+                    C_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    C_USER_ID + " INTEGER NOT NULL, " +
+                    C_DATE + " INTEGER NOT NULL, " +
+                    C_WEIGHT + " REAL NOT NULL, " +
+                    // (Optional) soft FK; SQLite enforces FK only if PRAGMA foreign_keys=ON
+                    "FOREIGN KEY (" + C_USER_ID + ") REFERENCES " + T_USERS + "(" + C_ID + ")" +
+                    ")";
+
+    /**
+     * Runs each migration step from oldVersion up to newVersion in order.
+     * SQLiteOpenHelper already wraps this call in a single transaction, so a
+     * failed step rolls the whole upgrade back and leaves the old data intact.
+     */
+    @Override
+    public void onUpgrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // v1 had no _id column on weights and was never shipped with data
+            // worth keeping, so it is still rebuilt from scratch.
+            db.execSQL("DROP TABLE IF EXISTS " + T_WEIGHTS);
+            db.execSQL("DROP TABLE IF EXISTS " + T_USERS);
+            onCreate(db);
+            return;
+        }
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            switch (version) {
+                case 3:
+                    migrateToV3(db);
+                    break;
+                case 4:
+                    migrateToV4(db);
+                    break;
+                case 5:
+                    migrateToV5(db);
+                    break;
+                case 6:
+                    migrateToV6(db);
+                    break;
+                case 7:
+                    createSettings(db); // v6 -> v7; prefs are moved over by importLegacySettings
+                    break;
+                case 8:
+                    createOutbox(db);   // v7 -> v8
+                    break;
+                case 9:
+                    migrateToV9(db, duplicatePolicy);
+                    break;
+                default:
+                    throw new IllegalStateException("No migration to schema v" + version);
+            }
+        }
+    }
+
+    /** v2 -> v3: add the covering (user_id, date DESC, weight) index. */
+    private static void migrateToV3(@NonNull SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE INDEX IF NOT EXISTS " + IDX_WEIGHTS_USER_DATE +
+                        " ON " + T_WEIGHTS + " (" +
+                        C_USER_ID + ", " + C_DATE + " DESC, " + C_WEIGHT +
+                        ")"
+        );
+    }
+
+    /** v3 -> v4: make _id the explicit tie-breaker so keyset pages on (date, _id) need no sort. */
+    private static void migrateToV4(@NonNull SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS " + IDX_WEIGHTS_USER_DATE);
+        createWeightIndexes(db);
+    }
+
+    /**
+     * v4 -> v5: TEXT dates become INTEGER epoch days. SQLite cannot change a column type,
+     * so the table is rebuilt: rows keep their _id, dates go through EpochDays.parse (which
+     * also accepts the "2025-8-9" / "2025/08/09" forms the old free-text field let in).
+     * Rows whose date is not a real calendar day could never sort correctly and are dropped.
+     */
+    private static void migrateToV5(@NonNull SQLiteDatabase db) {
+        final String old = T_WEIGHTS + "_v4";
+        db.execSQL("DROP INDEX IF EXISTS " + IDX_WEIGHTS_USER_DATE_ID);
+        db.execSQL("ALTER TABLE " + T_WEIGHTS + " RENAME TO " + old);
+        db.execSQL(SQL_CREATE_WEIGHTS_V5);
+
+        int dropped = 0;
+        try (Cursor c = db.rawQuery(
+                "SELECT " + C_ID + "," + C_USER_ID + "," + C_DATE + "," + C_WEIGHT + " FROM " + old, null);
+             SQLiteStatement insert = db.compileStatement(
+                     "INSERT INTO " + T_WEIGHTS +
+                             " (" + C_ID + "," + C_USER_ID + "," + C_DATE + "," + C_WEIGHT + ")" +
+                             " VALUES (?,?,?,?)")) {
+            while (c.moveToNext()) {
+                String text = c.getString(2);
+                int day = text == null ? EpochDays.INVALID : EpochDays.parse(text);
+                if (day == EpochDays.INVALID) {
+                    dropped++;
+                    continue;
+                }
+                insert.bindLong(1, c.getLong(0));
+                insert.bindLong(2, c.getLong(1));
+                insert.bindLong(3, day);
+                insert.bindDouble(4, c.getDouble(3));
+                insert.executeInsert();
+            }
+        }
+        db.execSQL("DROP TABLE " + old);
+        createWeightIndexes(db);
+        if (dropped > 0) Log.w(TAG, "v5 migration dropped " + dropped + " rows with unreadable dates");
+    }
+
+    /** v5 -> v6: add weight_rollups and its triggers, then fill it from the existing history. */
+    private static void migrateToV6(@NonNull SQLiteDatabase db) {
+        createRollups(db);
+        rebuildRollups(db);
+    }
+
+    /**
+     * v8 -> v9: one row per user per day. Days entered more than once are merged by
+     * {@code policy} first (rollups are rebuilt once rather than by trigger per row),
+     * then the unique index makes sure it cannot happen again.
+     */
+    private static void migrateToV9(@NonNull SQLiteDatabase db, int policy) {
+        for (String trigger : ROLLUP_TRIGGERS) db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        int merged = resolveDuplicateDays(db, policy);
+        if (merged > 0) {
+            rebuildRollups(db);
+            Log.w(TAG, "v9 migration merged " + merged + " same-day rows");
+        }
+        createRollupTriggers(db);
+        createWeightDayIndex(db);
+    }
+
+    /**
+     * Leave one row per (user_id, date): the newest _id, with the day's average weight
+     * under DUPLICATES_AVERAGE. Returns the number of rows removed. Callers drop the rollup
+     * triggers first and rebuild the rollups after.
+     */
+    private static int resolveDuplicateDays(@NonNull SQLiteDatabase db, int policy) {
+        String sameDay = " FROM " + T_WEIGHTS + " d WHERE d." + C_USER_ID + "=" + T_WEIGHTS + "." + C_USER_ID +
+                " AND d." + C_DATE + "=" + T_WEIGHTS + "." + C_DATE;
+        String newerSameDay = "EXISTS (SELECT 1" + sameDay + " AND d." + C_ID + ">" + T_WEIGHTS + "." + C_ID + ")";
+        int dropped;
+        try (SQLiteStatement count = db.compileStatement(
+                "SELECT COUNT(*) FROM " + T_WEIGHTS + " WHERE " + newerSameDay)) {
+            dropped = (int) count.simpleQueryForLong();
+        }
+        if (dropped == 0) return 0;
+
+        if (policy == DUPLICATES_AVERAGE) {
+            db.execSQL("UPDATE " + T_WEIGHTS + " SET " + C_WEIGHT + "=(SELECT AVG(d." + C_WEIGHT + ")" + sameDay + ")" +
+                    " WHERE NOT " + newerSameDay +
+                    " AND EXISTS (SELECT 1" + sameDay + " AND d." + C_ID + "<" + T_WEIGHTS + "." + C_ID + ")");
+        }
+        db.execSQL("DELETE FROM " + T_WEIGHTS + " WHERE " + newerSameDay);
+        return dropped;
+    }
+
+    private static void createSettings(@NonNull SQLiteDatabase db) {
         db.execSQL(
-                "CREATE TABLE " + T_WEIGHTS + " (" +
+                "CREATE TABLE " + T_SETTINGS + " (" +
+                        C_USER_ID + " INTEGER NOT NULL REFERENCES " + T_USERS + "(" + C_ID + ") ON DELETE CASCADE, " +
+                        C_NAME + " TEXT NOT NULL, " +
+                        C_VALUE + " NOT NULL, " +
+                        "PRIMARY KEY (" + C_USER_ID + ", " + C_NAME + ")" +
+                        ") WITHOUT ROWID"
+        );
+    }
+
+    private static void createOutbox(@NonNull SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE " + T_OUTBOX + " (" +
                         C_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        C_USER_ID + " INTEGER NOT NULL, " +
-                        C_DATE + " TEXT NOT NULL, " +
-                        C_WEIGHT + " REAL NOT NULL, " +
-                        // (Optional) soft FK; SQLite enforces FK only if PRAGMA foreign_keys=ON
-                        "FOREIGN KEY (" + C_USER_ID + ") REFERENCES " + T_USERS + "(" + C_ID + ")" +
+                        C_USER_ID + " INTEGER NOT NULL REFERENCES " + T_USERS + "(" + C_ID + ") ON DELETE CASCADE, " +
+                        C_GOAL_KG + " REAL NOT NULL, " +
+                        C_DAY + " INTEGER NOT NULL, " +
+                        C_DESTINATION + " TEXT NOT NULL, " +
+                        C_BODY + " TEXT NOT NULL, " +
+                        C_STATUS + " INTEGER NOT NULL DEFAULT " + ALERT_PENDING + ", " +
+                        C_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                        C_NEXT_ATTEMPT_AT + " INTEGER NOT NULL, " +
+                        C_SENT_AT + " INTEGER, " +
+                        "UNIQUE (" + C_USER_ID + ", " + C_GOAL_KG + ", " + C_DAY + ")" +
+                        ")"
+        );
+        // only pending rows are ever scanned by due time; sent/failed ones stay out of the index
+        db.execSQL(
+                "CREATE INDEX " + IDX_OUTBOX_DUE + " ON " + T_OUTBOX + " (" + C_NEXT_ATTEMPT_AT + ", " + C_ID + ")" +
+                        " WHERE " + C_STATUS + "=" + ALERT_PENDING
+        );
+    }
+
+    private static void createWeightIndexes(@NonNull SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE INDEX IF NOT EXISTS " + IDX_WEIGHTS_USER_DATE_ID +
+                        " ON " + T_WEIGHTS + " (" +
+                        C_USER_ID + ", " + C_DATE + " DESC, " + C_ID + " DESC, " + C_WEIGHT +
                         ")"
         );
     }
 
-    @Override
-    public void onUpgrade(@NonNull SQLiteDatabase db, int oldVersion, int newVersion) {
-        // For this course project, a simple rebuild is acceptable
-        db.execSQL("DROP TABLE IF EXISTS " + T_WEIGHTS);
-        db.execSQL("DROP TABLE IF EXISTS " + T_USERS);
-        onCreate(db);
+    private static void createWeightDayIndex(@NonNull SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE UNIQUE INDEX IF NOT EXISTS " + IDX_WEIGHTS_USER_DAY +
+                        " ON " + T_WEIGHTS + " (" + C_USER_ID + ", " + C_DATE + ")"
+        );
+    }
+
+    // ---------------------------------------------------------------------
+    // Rollup schema. Triggers on weights keep weight_rollups current for every
+    // writer (CRUD, CSV import, future bulk paths) inside the writer's own
+    // transaction, so readers never see a rollup that disagrees with the rows.
+    //  - insert: upsert into the row's week and month bucket, O(1)
+    //  - update/delete: min/max cannot be "un-folded", so the touched buckets
+    //    are recomputed from the index (at most 31 rows each)
+    // ---------------------------------------------------------------------
+
+    private static final String SQL_CREATE_ROLLUPS =
+            "CREATE TABLE " + T_ROLLUPS + " (" +
+                    C_USER_ID + " INTEGER NOT NULL, " +
+                    C_PERIOD + " INTEGER NOT NULL, " +
+                    C_START_DAY + " INTEGER NOT NULL, " +
+                    C_CNT + " INTEGER NOT NULL, " +
+                    C_SUM_KG + " REAL NOT NULL, " +
+                    C_MIN_KG + " REAL NOT NULL, " +
+                    C_MAX_KG + " REAL NOT NULL, " +
+                    "PRIMARY KEY (" + C_USER_ID + ", " + C_PERIOD + ", " + C_START_DAY + ")" +
+                    ") WITHOUT ROWID";
+
+    private static void createRollups(@NonNull SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_ROLLUPS);
+        createRollupTriggers(db);
+    }
+
+    private static void createRollupTriggers(@NonNull SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER " + ROLLUP_TRIGGERS[0] + " AFTER INSERT ON " + T_WEIGHTS +
+                " BEGIN " +
+                addToBucket(ROLLUP_WEEK, weekStart("NEW." + C_DATE)) +
+                addToBucket(ROLLUP_MONTH, monthStart("NEW." + C_DATE, 0)) +
+                " END");
+
+        db.execSQL("CREATE TRIGGER " + ROLLUP_TRIGGERS[1] + " AFTER DELETE ON " + T_WEIGHTS +
+                " BEGIN " +
+                recomputeBuckets("OLD") +
+                " END");
+
+        db.execSQL("CREATE TRIGGER " + ROLLUP_TRIGGERS[2] + " AFTER UPDATE OF " +
+                C_USER_ID + ", " + C_DATE + ", " + C_WEIGHT + " ON " + T_WEIGHTS +
+                " BEGIN " +
+                recomputeBuckets("OLD") +
+                recomputeBuckets("NEW") +
+                " END");
+    }
+
+    /** First day (a Monday) of the week containing epoch day {@code day}; 1970-01-01 was a Thursday. */
+    private static String weekStart(@NonNull String day) {
+        return "(" + day + " - ((" + day + " + 3) % 7 + 7) % 7)";
+    }
+
+    /** First day of the month containing {@code day}, shifted by {@code plusMonths}. */
+    private static String monthStart(@NonNull String day, int plusMonths) {
+        // julianday() takes a Julian day number; epoch day 0 is JD 2440587.5
+        return "CAST(julianday(" + day + " + 2440587.5, 'start of month'" +
+                (plusMonths == 0 ? "" : ", '+" + plusMonths + " month'") +
+                ") - 2440587.5 AS INTEGER)";
+    }
+
+    private static String addToBucket(int period, @NonNull String start) {
+        return "INSERT INTO " + T_ROLLUPS + " (" + C_USER_ID + ", " + C_PERIOD + ", " + C_START_DAY + ", " +
+                C_CNT + ", " + C_SUM_KG + ", " + C_MIN_KG + ", " + C_MAX_KG + ")" +
+                " VALUES (NEW." + C_USER_ID + ", " + period + ", " + start + ", 1, NEW." + C_WEIGHT +
+                ", NEW." + C_WEIGHT + ", NEW." + C_WEIGHT + ")" +
+                " ON CONFLICT (" + C_USER_ID + ", " + C_PERIOD + ", " + C_START_DAY + ") DO UPDATE SET " +
+                C_CNT + " = " + C_CNT + " + 1, " +
+                C_SUM_KG + " = " + C_SUM_KG + " + excluded." + C_SUM_KG + ", " +
+                C_MIN_KG + " = MIN(" + C_MIN_KG + ", excluded." + C_MIN_KG + "), " +
+                C_MAX_KG + " = MAX(" + C_MAX_KG + ", excluded." + C_MAX_KG + ");";
+    }
+
+    /** Recompute the week and month bucket of the {@code row} (OLD or NEW) from weights. */
+    private static String recomputeBuckets(@NonNull String row) {
+        String day = row + "." + C_DATE;
+        String week = weekStart(day);
+        return recomputeBucket(row, ROLLUP_WEEK, week, week + " + 7") +
+                recomputeBucket(row, ROLLUP_MONTH, monthStart(day, 0), monthStart(day, 1));
+    }
+
+    private static String recomputeBucket(@NonNull String row, int period,
+                                          @NonNull String start, @NonNull String end) {
+        String user = row + "." + C_USER_ID;
+        return "DELETE FROM " + T_ROLLUPS +
+                " WHERE " + C_USER_ID + " = " + user + " AND " + C_PERIOD + " = " + period +
+                " AND " + C_START_DAY + " = " + start + ";" +
+                // GROUP BY so an emptied bucket yields no row at all
+                " INSERT INTO " + T_ROLLUPS +
+                " SELECT " + C_USER_ID + ", " + period + ", " + start + ", COUNT(*), SUM(" + C_WEIGHT + ")," +
+                " MIN(" + C_WEIGHT + "), MAX(" + C_WEIGHT + ")" +
+                " FROM " + T_WEIGHTS +
+                " WHERE " + C_USER_ID + " = " + user +
+                " AND " + C_DATE + " >= " + start + " AND " + C_DATE + " < " + end +
+                " GROUP BY " + C_USER_ID + ";";
+    }
+
+    /** Full recompute of every bucket: one pass over weights per period, grouped by bucket. */
+    private static String sqlFullRollups(int period) {
+        String start = period == ROLLUP_WEEK ? weekStart(C_DATE) : monthStart(C_DATE, 0);
+        return "SELECT " + C_USER_ID + ", " + period + ", " + start + " AS s, COUNT(*), SUM(" + C_WEIGHT + ")," +
+                " MIN(" + C_WEIGHT + "), MAX(" + C_WEIGHT + ")" +
+                " FROM " + T_WEIGHTS +
+                " GROUP BY " + C_USER_ID + ", s";
+    }
+
+    private static void rebuildRollups(@NonNull SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + T_ROLLUPS);
+        db.execSQL("INSERT INTO " + T_ROLLUPS + " " + sqlFullRollups(ROLLUP_WEEK));
+        db.execSQL("INSERT INTO " + T_ROLLUPS + " " + sqlFullRollups(ROLLUP_MONTH));
     }
 
     // ---------------------------------------------------------------------
@@ -79,28 +692,35 @@ public class AppDatabaseHelper extends SQLiteOpenHelper {
 
     /** Insert a new user. Returns new rowId (>0) or -1 if failed/duplicate. */
     public long createUser(@NonNull String username, @NonNull String password) {
-        SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(C_USERNAME, username.trim());
-        cv.put(C_PASSWORD, password);
-        return db.insert(T_USERS, null, cv); // will return -1 on UNIQUE violation
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            ContentValues cv = new ContentValues();
+            cv.put(C_USERNAME, username.trim());
+            cv.put(C_PASSWORD, password);
+            return db.insert(T_USERS, null, cv); // will return -1 on UNIQUE violation
+        } finally {
+            PerfMetrics.end("db.createUser", perf);
+        }
     }
 
     /** Check login. Returns userId (>0) if credentials are valid; otherwise -1. */
     public long checkLogin(@NonNull String username, @NonNull String password) {
-        SQLiteDatabase db = getReadableDatabase();
-        long userId = -1;
-
-        try (Cursor c = db.rawQuery(
-                "SELECT " + C_ID + " FROM " + T_USERS +
-                        " WHERE " + C_USERNAME + "=? AND " + C_PASSWORD + "=?",
-                new String[]{username.trim(), password}
-        )) {
-            if (c.moveToFirst()) {
-                userId = c.getLong(0);
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (statements) {
+                SQLiteStatement st = statement(SQL_CHECK_LOGIN);
+                st.bindString(1, username.trim());
+                st.bindString(2, password);
+                try {
+                    return st.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    return -1; // no such user / wrong password
+                }
             }
+        } finally {
+            PerfMetrics.end("db.checkLogin", perf);
         }
-        return userId;
     }
 
     // ---------------------------------------------------------------------
@@ -111,63 +731,1401 @@ public class AppDatabaseHelper extends SQLiteOpenHelper {
     public static class WeightEntry {
         public final long id;        // row _id in weights
         public final long userId;    // FK -> users._id
-        public final String date;    // YYYY-MM-DD
+        public final int day;        // epoch day (EpochDays)
         public final double weight;  // numeric
 
-        public WeightEntry(long id, long userId, String date, double weight) {
+        public WeightEntry(long id, long userId, int day, double weight) {
             this.id = id;
             this.userId = userId;
-            this.date = date;
+            this.day = day;
             this.weight = weight;
         }
+
+        /** True when this row sorts after {@code other} in (date, _id) order. */
+        boolean isNewerThan(@NonNull WeightEntry other) {
+            return day > other.day || (day == other.day && id > other.id);
+        }
     }
 
-    /** Create a new weight entry. Returns rowId (>0) or -1 on failure. */
-    public long insertWeight(long userId, @NonNull String date, double weight) {
-        SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(C_USER_ID, userId);
-        cv.put(C_DATE, date);
-        cv.put(C_WEIGHT, weight);
-        return db.insert(T_WEIGHTS, null, cv);
+    /** Latest entry, count and min/max weight (kg) for one user. Immutable. */
+    public static class WeightSummary {
+        @Nullable
+        public final WeightEntry latest; // null when the user has no rows
+        public final int count;
+        public final double minKg;       // NaN when count == 0
+        public final double maxKg;       // NaN when count == 0
+
+        WeightSummary(@Nullable WeightEntry latest, int count, double minKg, double maxKg) {
+            this.latest = latest;
+            this.count = count;
+            this.minKg = minKg;
+            this.maxKg = maxKg;
+        }
+
+        /** Fold in a new row; O(1). */
+        @NonNull
+        WeightSummary plus(@NonNull WeightEntry e) {
+            if (count == 0) return new WeightSummary(e, 1, e.weight, e.weight);
+            return new WeightSummary(
+                    e.isNewerThan(latest) ? e : latest,
+                    count + 1,
+                    Math.min(minKg, e.weight),
+                    Math.max(maxKg, e.weight));
+        }
+
+        /**
+         * Take a row out again; O(1) unless it was the latest row or held the min/max,
+         * in which case null is returned and the caller reloads from the index.
+         */
+        @Nullable
+        WeightSummary minus(@NonNull WeightEntry e) {
+            if (count <= 1) return new WeightSummary(null, 0, Double.NaN, Double.NaN);
+            if (latest == null || latest.id == e.id) return null;
+            if (e.weight <= minKg || e.weight >= maxKg) return null;
+            return new WeightSummary(latest, count - 1, minKg, maxKg);
+        }
     }
 
-    /** Update an existing weight entry by its _id. Returns number of rows updated. */
-    public int updateWeight(long id, @NonNull String date, double weight) {
-        SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(C_DATE, date);
-        cv.put(C_WEIGHT, weight);
-        return db.update(T_WEIGHTS, cv, C_ID + "=?", new String[]{ String.valueOf(id) });
+    /**
+     * Create a new weight entry. Returns rowId (>0) or -1 on failure, including when the
+     * user already has an entry that day (see upsertWeight).
+     */
+    public long insertWeight(long userId, int day, double weight) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            long rowId;
+            synchronized (statements) {
+                SQLiteStatement st = statement(SQL_INSERT_WEIGHT);
+                st.bindLong(1, userId);
+                st.bindLong(2, day);
+                st.bindDouble(3, weight);
+                try {
+                    rowId = st.executeInsert();
+                } catch (SQLiteConstraintException e) {
+                    rowId = -1; // no such user (foreign keys are enforced), or the day is taken
+                }
+            }
+            if (rowId > 0) cachedInsert(new WeightEntry(rowId, userId, day, weight));
+            return rowId;
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.insertWeight", perf);
+        }
+    }
+
+    /**
+     * Set {@code userId}'s weight for {@code day}: a new row, or the day's existing row
+     * updated in place (keeping its _id). The batch holds the row it replaced, if any, and
+     * the row as it is now, so the UI patches and undoes it like any batch edit. Null if
+     * there is no such user.
+     */
+    @Nullable
+    public WeightBatch upsertWeight(long userId, int day, double weight) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            WeightEntry old;
+            long rowId;
+            synchronized (statements) {
+                db.beginTransaction();
+                try {
+                    old = getWeightOnDay(db, userId, day);
+                    SQLiteStatement st = statement(SQL_UPSERT_WEIGHT);
+                    st.bindLong(1, userId);
+                    st.bindLong(2, day);
+                    st.bindDouble(3, weight);
+                    // last_insert_rowid is not set when the upsert updates, so take the old row's
+                    rowId = st.executeInsert();
+                    if (old != null) rowId = old.id;
+                    db.setTransactionSuccessful();
+                } catch (SQLiteConstraintException e) {
+                    return null; // no such user
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            WeightEntry now = new WeightEntry(rowId, userId, day, weight);
+            if (old == null) {
+                cachedInsert(now);
+                return new WeightBatch(userId, Collections.emptyList(), Collections.singletonList(now));
+            }
+            cachedUpdate(old, now);
+            return new WeightBatch(userId, Collections.singletonList(old), Collections.singletonList(now));
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.upsertWeight", perf);
+        }
+    }
+
+    /**
+     * Update an existing weight entry by its _id. Returns number of rows updated, or -1 if
+     * the user already has another entry on {@code day}. The row is read back in the same
+     * transaction, so the caches are patched from what was actually replaced.
+     */
+    public int updateWeight(long id, int day, double weight) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            WeightEntry old;
+            synchronized (statements) {
+                db.beginTransaction();
+                try {
+                    old = getWeight(db, id);
+                    if (old == null) return 0;
+                    SQLiteStatement st = statement(SQL_UPDATE_WEIGHT);
+                    st.bindLong(1, day);
+                    st.bindDouble(2, weight);
+                    st.bindLong(3, id);
+                    st.executeUpdateDelete();
+                    db.setTransactionSuccessful();
+                } catch (SQLiteConstraintException e) {
+                    return -1; // idx_weights_user_day
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            cachedUpdate(old, new WeightEntry(id, old.userId, day, weight));
+            return 1;
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.updateWeight", perf);
+        }
     }
 
     /** Delete a weight entry by its _id. Returns number of rows deleted. */
     public int deleteWeight(long id) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            WeightEntry old;
+            synchronized (statements) {
+                db.beginTransaction();
+                try {
+                    old = getWeight(db, id); // in the transaction, as in updateWeight
+                    if (old == null) return 0;
+                    SQLiteStatement st = statement(SQL_DELETE_WEIGHT);
+                    st.bindLong(1, id);
+                    st.executeUpdateDelete();
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            cachedDelete(old);
+            return 1;
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.deleteWeight", perf);
+        }
+    }
+
+    // The in-memory caches follow each committed row change (summary, trend, snapshot, month stats).
+
+    private void beginCacheWrite() {
+        synchronized (summaries) {
+            cacheWritesStarted++;
+        }
+    }
+
+    private void endCacheWrite() {
+        synchronized (summaries) {
+            cacheWritesFinished++;
+        }
+    }
+
+    /** Taken before a cache load: -1 (don't cache) while a row write is under way. */
+    private long cacheLoadMark() {
+        synchronized (summaries) {
+            return cacheWritesStarted == cacheWritesFinished ? cacheWritesStarted : -1;
+        }
+    }
+
+    /** Whether a load from {@code mark} may be cached: no row write started since. Hold summaries. */
+    private boolean cacheable(long mark) {
+        return mark >= 0 && mark == cacheWritesStarted;
+    }
+
+    private void cachedInsert(@NonNull WeightEntry e) {
+        afterCommit();
+        synchronized (summaries) {
+            WeightSummary s = summaries.get(e.userId);
+            if (s != null) summaries.put(e.userId, s.plus(e));
+        }
+        synchronized (trends) {
+            TrendEngine t = trends.get(e.userId);
+            if (t != null) t.add(e.id, e.day, e.weight);
+        }
+        snapshots.onInserted(e.userId, e.id, e.day, e.weight);
+        dropMonthStats(e.userId, e.day, e.day);
+    }
+
+    private void cachedUpdate(@NonNull WeightEntry old, @NonNull WeightEntry now) {
+        afterCommit();
+        synchronized (summaries) {
+            WeightSummary s = summaries.get(old.userId);
+            if (s != null) {
+                WeightSummary without = s.minus(old);
+                if (without == null) {
+                    summaries.remove(old.userId);
+                } else {
+                    summaries.put(old.userId, without.plus(now));
+                }
+            }
+        }
+        synchronized (trends) {
+            TrendEngine t = trends.get(old.userId);
+            if (t != null) t.update(old.id, old.day, now.day, now.weight);
+        }
+        snapshots.onUpdated(old.userId, old.id, old.day, now.day, now.weight);
+        dropMonthStats(old.userId, old.day, now.day);
+    }
+
+    private void cachedDelete(@NonNull WeightEntry old) {
+        afterCommit();
+        synchronized (summaries) {
+            WeightSummary s = summaries.get(old.userId);
+            if (s != null) {
+                WeightSummary without = s.minus(old);
+                if (without == null) {
+                    summaries.remove(old.userId);
+                } else {
+                    summaries.put(old.userId, without);
+                }
+            }
+        }
+        synchronized (trends) {
+            TrendEngine t = trends.get(old.userId);
+            if (t != null) t.remove(old.id, old.day);
+        }
+        snapshots.onDeleted(old.userId, old.id, old.day);
+        dropMonthStats(old.userId, old.day, old.day);
+    }
+
+    private void afterCommit() {
+        Runnable hook = afterCommitForTest;
+        if (hook != null) hook.run();
+    }
+
+    // ---------------------------------------------------------------------
+    // Batch edits (multi-select): each is one transaction, and returns the rows as they
+    // were and as they are now, which is all the UI needs to patch itself and to undo.
+    // ---------------------------------------------------------------------
+
+    /** Rows a batch edit replaced ({@code before}) and their replacements ({@code after}), by _id. */
+    public static final class WeightBatch {
+        public final long userId;
+        public final List<WeightEntry> before;  // deleted or pre-edit rows
+        public final List<WeightEntry> after;   // edited or restored rows
+
+        WeightBatch(long userId, @NonNull List<WeightEntry> before, @NonNull List<WeightEntry> after) {
+            this.userId = userId;
+            this.before = before;
+            this.after = after;
+        }
+
+        /** Number of rows the batch touched. */
+        public int size() {
+            return Math.max(before.size(), after.size());
+        }
+    }
+
+    /** Delete {@code userId}'s rows with these ids in one transaction. */
+    @NonNull
+    public WeightBatch deleteWeights(long userId, @NonNull long[] ids) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            return applyBatch(userId, ids, Collections.emptyList(), false);
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.deleteWeights", perf);
+        }
+    }
+
+    /**
+     * Give each of {@code userId}'s rows the date and weight in {@code rows}, matched by _id,
+     * in one transaction. Null (and nothing changed) if a row would land on a day the user
+     * already has an entry for outside the batch.
+     */
+    @Nullable
+    public WeightBatch updateWeights(long userId, @NonNull List<WeightEntry> rows) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            long[] ids = new long[rows.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = rows.get(i).id;
+            return applyBatch(userId, ids, rows, false);
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.updateWeights", perf);
+        }
+    }
+
+    /**
+     * Put the rows of an earlier batch back as they were (deleted rows return with their
+     * old ids), in one transaction. Returns the batch that undid it, or null (nothing
+     * changed) if one of those days has since been given another entry.
+     */
+    @Nullable
+    public WeightBatch undoBatch(@NonNull WeightBatch batch) {
+        long perf = PerfMetrics.start();
+        beginCacheWrite();
+        try {
+            long[] ids = new long[batch.before.size() + batch.after.size()];
+            int n = 0;
+            for (WeightEntry e : batch.before) ids[n++] = e.id;
+            for (WeightEntry e : batch.after) ids[n++] = e.id;
+            return applyBatch(batch.userId, ids, batch.before, true);
+        } finally {
+            endCacheWrite();
+            PerfMetrics.end("db.undoBatch", perf);
+        }
+    }
+
+    /**
+     * The rows with {@code ids} become {@code rows}: ids without a row there are deleted,
+     * changed rows are updated and, when {@code restore}, missing rows are re-inserted.
+     * A row changing day is deleted and put back under its _id once every other row has
+     * moved, so rows trading or shifting days never collide with each other; a collision
+     * with a row outside the batch rolls everything back and returns null. Other users'
+     * rows are never touched. Caches are patched after the commit.
+     */
+    @Nullable
+    private WeightBatch applyBatch(long userId, @NonNull long[] ids, @NonNull List<WeightEntry> rows,
+                                   boolean restore) {
         SQLiteDatabase db = getWritableDatabase();
-        return db.delete(T_WEIGHTS, C_ID + "=?", new String[]{ String.valueOf(id) });
+        Map<Long, WeightEntry> wanted = new HashMap<>();
+        for (WeightEntry e : rows) {
+            if (e.userId == userId) wanted.put(e.id, e);
+        }
+        List<WeightEntry> before = new ArrayList<>();
+        List<WeightEntry> after = new ArrayList<>();
+        List<WeightEntry> deleted = new ArrayList<>();
+        synchronized (statements) {
+            db.beginTransaction();
+            try {
+                Map<Long, WeightEntry> current = new HashMap<>();
+                for (long id : ids) {
+                    if (current.containsKey(id)) continue;
+                    WeightEntry e = getWeight(db, id);
+                    if (e != null && e.userId == userId) current.put(id, e);
+                }
+                SQLiteStatement delete = statement(SQL_DELETE_WEIGHT);
+                for (WeightEntry old : current.values()) {
+                    if (wanted.containsKey(old.id)) continue;
+                    delete.bindLong(1, old.id);
+                    if (delete.executeUpdateDelete() > 0) deleted.add(old);
+                }
+                SQLiteStatement update = statement(SQL_UPDATE_WEIGHT);
+                List<WeightEntry> movedFrom = new ArrayList<>();
+                List<WeightEntry> put = new ArrayList<>(); // moved rows, then restored ones
+                List<WeightEntry> restored = new ArrayList<>();
+                for (WeightEntry e : wanted.values()) {
+                    WeightEntry old = current.get(e.id);
+                    if (old == null) {
+                        if (restore) restored.add(e);
+                    } else if (old.day != e.day) {
+                        delete.bindLong(1, e.id);
+                        if (delete.executeUpdateDelete() > 0) {
+                            movedFrom.add(old);
+                            put.add(e);
+                        }
+                    } else if (old.weight != e.weight) {
+                        update.bindLong(1, e.day);
+                        update.bindDouble(2, e.weight);
+                        update.bindLong(3, e.id);
+                        if (update.executeUpdateDelete() > 0) {
+                            before.add(old);
+                            after.add(e);
+                        }
+                    }
+                }
+                put.addAll(restored);
+                SQLiteStatement insert = statement(SQL_PUT_WEIGHT);
+                for (WeightEntry e : put) {
+                    insert.bindLong(1, e.id);
+                    insert.bindLong(2, userId);
+                    insert.bindLong(3, e.day);
+                    insert.bindDouble(4, e.weight);
+                    insert.executeInsert();
+                }
+                before.addAll(movedFrom); // before[i] still pairs with after[i]
+                after.addAll(put);
+                db.setTransactionSuccessful();
+            } catch (SQLiteConstraintException e) {
+                return null; // idx_weights_user_day: rolled back
+            } finally {
+                db.endTransaction();
+            }
+        }
+        for (WeightEntry old : deleted) cachedDelete(old);
+        for (int i = 0; i < before.size(); i++) cachedUpdate(before.get(i), after.get(i));
+        for (int i = before.size(); i < after.size(); i++) cachedInsert(after.get(i));
+        before.addAll(deleted);
+        return new WeightBatch(userId, before, after);
     }
 
-    /** Read all weight entries for a user, newest date first. */
+    @Nullable
+    private static WeightEntry getWeightOnDay(@NonNull SQLiteDatabase db, long userId, int day) {
+        try (Cursor c = db.rawQuery(SQL_GET_WEIGHT_ON_DAY,
+                new String[]{ String.valueOf(userId), String.valueOf(day) })) {
+            List<WeightEntry> out = new ArrayList<>(1);
+            readEntries(c, out);
+            return out.isEmpty() ? null : out.get(0);
+        }
+    }
+
+    /** Read a single row by its _id, or null if it does not exist. */
+    @Nullable
+    public WeightEntry getWeight(long id) {
+        long perf = PerfMetrics.start();
+        try {
+            return getWeight(getReadableDatabase(), id);
+        } finally {
+            PerfMetrics.end("db.getWeight", perf);
+        }
+    }
+
+    @Nullable
+    private static WeightEntry getWeight(@NonNull SQLiteDatabase db, long id) {
+        try (Cursor c = db.rawQuery(SQL_GET_WEIGHT, new String[]{ String.valueOf(id) })) {
+            List<WeightEntry> out = new ArrayList<>(1);
+            readEntries(c, out);
+            return out.isEmpty() ? null : out.get(0);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Summary (latest / count / min / max)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Summary for a user. Served from memory once loaded; the write methods above keep
+     * it current, so the goal banner never has to re-read the history.
+     */
     @NonNull
-    public List<WeightEntry> getWeights(long userId) {
+    public WeightSummary getSummary(long userId) {
+        long perf = PerfMetrics.start();
+        try {
+            long mark;
+            synchronized (summaries) {
+                WeightSummary s = summaries.get(userId);
+                if (s != null) return s;
+                mark = cacheLoadMark();
+            }
+            WeightSummary s = loadSummary(userId);
+            synchronized (summaries) {
+                if (cacheable(mark)) summaries.put(userId, s);
+            }
+            return s;
+        } finally {
+            PerfMetrics.end("db.getSummary", perf);
+        }
+    }
+
+    /** Drop a cached summary, trend and history (after bulk writes that bypass the CRUD methods). */
+    public void invalidateSummary(long userId) {
+        synchronized (summaries) {
+            cacheWritesStarted++; // a load that began before the bulk write must not be cached
+            cacheWritesFinished++;
+            summaries.remove(userId);
+        }
+        synchronized (trends) {
+            trends.remove(userId);
+        }
+        snapshots.invalidate(userId);
+        synchronized (monthStats) {
+            monthStatsWrites++;
+            monthStats.remove(userId);
+        }
+    }
+
+    /**
+     * Release cached per-user data for an onTrimMemory() level. Everything reloads on demand;
+     * summaries and settings are a few dozen bytes a user and stay.
+     */
+    public void trimMemory(int level) {
+        snapshots.trim(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            synchronized (trends) {
+                trends.clear();
+            }
+            synchronized (monthStats) {
+                monthStats.clear();
+            }
+        }
+    }
+
+    @NonNull
+    UserSnapshotCache snapshots() {
+        return snapshots;
+    }
+
+    @NonNull
+    private WeightSummary loadSummary(long userId) {
         SQLiteDatabase db = getReadableDatabase();
-        List<WeightEntry> out = new ArrayList<>();
+        String[] args = { String.valueOf(userId) };
 
-        try (Cursor c = db.rawQuery(
-                "SELECT " + C_ID + "," + C_USER_ID + "," + C_DATE + "," + C_WEIGHT +
-                        " FROM " + T_WEIGHTS +
-                        " WHERE " + C_USER_ID + "=? " +
-                        " ORDER BY " + C_DATE + " DESC",
-                new String[]{String.valueOf(userId)}
-        )) {
+        // latest row: one seek on the (user_id, date DESC, _id DESC) index
+        WeightEntry latest;
+        try (Cursor c = db.rawQuery(SQL_LATEST, args)) {
+            List<WeightEntry> out = new ArrayList<>(1);
+            readEntries(c, out);
+            latest = out.isEmpty() ? null : out.get(0);
+        }
+        if (latest == null) return new WeightSummary(null, 0, Double.NaN, Double.NaN);
+
+        // count/min/max: an index-only pass, needed once per user (or after a min/max delete)
+        try (Cursor c = db.rawQuery(SQL_COUNT_MIN_MAX, args)) {
+            c.moveToFirst();
+            return new WeightSummary(latest, c.getInt(0), c.getDouble(1), c.getDouble(2));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Rollups (weekly / monthly avg, min, max, count)
+    // ---------------------------------------------------------------------
+
+    /** One week or month of a user's weights. Immutable. */
+    public static class WeightRollup {
+        public final int period;     // ROLLUP_WEEK / ROLLUP_MONTH
+        public final int startDay;   // first epoch day of the bucket
+        public final int count;
+        public final double sumKg;
+        public final double minKg;
+        public final double maxKg;
+
+        WeightRollup(int period, int startDay, int count, double sumKg, double minKg, double maxKg) {
+            this.period = period;
+            this.startDay = startDay;
+            this.count = count;
+            this.sumKg = sumKg;
+            this.minKg = minKg;
+            this.maxKg = maxKg;
+        }
+
+        public double avgKg() {
+            return sumKg / count;
+        }
+    }
+
+    /**
+     * Rollups for a user whose bucket starts in [fromDay, toDay], newest first.
+     * A primary-key range read; never touches the weights table.
+     */
+    @NonNull
+    public List<WeightRollup> getRollups(long userId, int period, int fromDay, int toDay) {
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getReadableDatabase();
+            List<WeightRollup> out = new ArrayList<>();
+            try (Cursor c = db.rawQuery(SQL_ROLLUPS,
+                    new String[]{String.valueOf(userId), String.valueOf(period),
+                            String.valueOf(fromDay), String.valueOf(toDay)}
+            )) {
+                while (c.moveToNext()) {
+                    out.add(new WeightRollup(c.getInt(0), c.getInt(1), c.getInt(2),
+                            c.getDouble(3), c.getDouble(4), c.getDouble(5)));
+                }
+            }
+            return out;
+        } finally {
+            PerfMetrics.end("db.getRollups", perf);
+        }
+    }
+
+    /**
+     * Consistency check: recompute every bucket from weights and compare with weight_rollups.
+     * Returns the number of buckets that differ (missing, extra, or different values; sums
+     * may differ by float rounding only). With {@code repair}, a mismatch rebuilds the table.
+     */
+    public int verifyRollups(boolean repair) {
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                Map<String, double[]> stored = new HashMap<>();
+                try (Cursor c = db.rawQuery(
+                        "SELECT " + C_USER_ID + "," + C_PERIOD + "," + C_START_DAY + "," +
+                                C_CNT + "," + C_SUM_KG + "," + C_MIN_KG + "," + C_MAX_KG +
+                                " FROM " + T_ROLLUPS, null)) {
+                    while (c.moveToNext()) {
+                        stored.put(rollupKey(c), new double[]{
+                                c.getInt(3), c.getDouble(4), c.getDouble(5), c.getDouble(6)});
+                    }
+                }
+
+                int mismatches = 0;
+                for (int period : new int[]{ROLLUP_WEEK, ROLLUP_MONTH}) {
+                    try (Cursor c = db.rawQuery(sqlFullRollups(period), null)) {
+                        while (c.moveToNext()) {
+                            double[] s = stored.remove(rollupKey(c));
+                            if (s == null
+                                    || s[0] != c.getInt(3)
+                                    || Math.abs(s[1] - c.getDouble(4)) > 1e-9 * Math.max(1, Math.abs(s[1]))
+                                    || s[2] != c.getDouble(5)
+                                    || s[3] != c.getDouble(6)) {
+                                mismatches++;
+                            }
+                        }
+                    }
+                }
+                mismatches += stored.size(); // buckets with no rows behind them
+
+                if (mismatches > 0) {
+                    Log.w(TAG, "weight_rollups: " + mismatches + " buckets out of date");
+                    if (repair) rebuildRollups(db);
+                }
+                db.setTransactionSuccessful();
+                return mismatches;
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            PerfMetrics.end("db.verifyRollups", perf);
+        }
+    }
+
+    private static String rollupKey(@NonNull Cursor c) {
+        return c.getLong(0) + "/" + c.getInt(1) + "/" + c.getInt(2);
+    }
+
+    // ---------------------------------------------------------------------
+    // Settings (unit, goal)
+    // ---------------------------------------------------------------------
+
+    /** A user's settings; unset values are null / NaN. Immutable. */
+    public static class UserSettings {
+        @Nullable
+        public final String unit;    // "kg" / "lbs"; null = follow the locale
+        public final double goalKg;  // NaN = no goal
+
+        UserSettings(@Nullable String unit, double goalKg) {
+            this.unit = unit;
+            this.goalKg = goalKg;
+        }
+    }
+
+    /** Settings for a user. One primary-key range read on first use, then served from memory. */
+    @NonNull
+    public UserSettings getSettings(long userId) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (settings) {
+                UserSettings s = settings.get(userId);
+                if (s == null) {
+                    s = loadSettings(userId);
+                    settings.put(userId, s);
+                }
+                return s;
+            }
+        } finally {
+            PerfMetrics.end("db.getSettings", perf);
+        }
+    }
+
+    public void setUnit(long userId, @NonNull String unit) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (settings) {
+                putSetting(userId, SETTING_UNIT, unit);
+                UserSettings s = getSettings(userId);
+                settings.put(userId, new UserSettings(unit, s.goalKg));
+            }
+        } finally {
+            PerfMetrics.end("db.setUnit", perf);
+        }
+    }
+
+    /** Set the goal in kg; NaN clears it. */
+    public void setGoalKg(long userId, double goalKg) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (settings) {
+                putSetting(userId, SETTING_GOAL_KG, Double.isNaN(goalKg) ? null : goalKg);
+                UserSettings s = getSettings(userId);
+                settings.put(userId, new UserSettings(s.unit, goalKg));
+            }
+        } finally {
+            PerfMetrics.end("db.setGoalKg", perf);
+        }
+    }
+
+    /**
+     * One-time move of the settings that used to live in SharedPreferences ("unit_<id>",
+     * "goal_kg_<id>"). Values already in the table win; moved keys are removed from
+     * {@code prefs} so later calls are a no-op. Blocks on the prefs write: call off the main thread.
+     * Returns the number of keys moved.
+     */
+    public int importLegacySettings(@NonNull SharedPreferences prefs) {
+        long perf = PerfMetrics.start();
+        try {
+            List<String> moved = new ArrayList<>();
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try (SQLiteStatement insert = db.compileStatement(
+                    "INSERT OR IGNORE INTO " + T_SETTINGS + " (" + C_USER_ID + "," + C_NAME + "," + C_VALUE + ")" +
+                            " VALUES (?,?,?)")) {
+                for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+                    String key = e.getKey();
+                    Object value = e.getValue();
+                    long userId;
+                    if (key.startsWith(LEGACY_GOAL_PREFIX) && value instanceof Long) {
+                        userId = legacyUserId(key, LEGACY_GOAL_PREFIX);
+                        double goal = Double.longBitsToDouble((Long) value);
+                        if (userId > 0 && !Double.isNaN(goal)) {
+                            insert.bindLong(1, userId);
+                            insert.bindString(2, SETTING_GOAL_KG);
+                            insert.bindDouble(3, goal);
+                            executeLegacyInsert(insert);
+                        }
+                    } else if (key.startsWith(LEGACY_UNIT_PREFIX) && value instanceof String) {
+                        userId = legacyUserId(key, LEGACY_UNIT_PREFIX);
+                        if (userId > 0) {
+                            insert.bindLong(1, userId);
+                            insert.bindString(2, SETTING_UNIT);
+                            insert.bindString(3, (String) value);
+                            executeLegacyInsert(insert);
+                        }
+                    } else {
+                        continue;
+                    }
+                    moved.add(key); // also drops keys that were unreadable or for deleted users
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (moved.isEmpty()) return 0;
+
+            synchronized (settings) {
+                settings.clear();
+            }
+            SharedPreferences.Editor edit = prefs.edit();
+            for (String key : moved) edit.remove(key);
+            edit.commit(); // only after our transaction committed, so a crash can't lose a setting
+            Log.i(TAG, "moved " + moved.size() + " settings from prefs to " + T_SETTINGS);
+            return moved.size();
+        } finally {
+            PerfMetrics.end("db.importLegacySettings", perf);
+        }
+    }
+
+    private static long legacyUserId(@NonNull String key, @NonNull String prefix) {
+        try {
+            return Long.parseLong(key.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void executeLegacyInsert(@NonNull SQLiteStatement insert) {
+        try {
+            insert.executeInsert();
+        } catch (SQLiteConstraintException e) {
+            // the user no longer exists; nothing to keep
+        }
+    }
+
+    /** Upsert one setting, or delete it when {@code value} is null. Caller holds {@code settings}. */
+    private void putSetting(long userId, @NonNull String name, @Nullable Object value) {
+        synchronized (statements) {
+            SQLiteStatement st = statement(value == null ? SQL_DELETE_SETTING : SQL_PUT_SETTING);
+            st.bindLong(1, userId);
+            st.bindString(2, name);
+            if (value instanceof Double) {
+                st.bindDouble(3, (Double) value);
+            } else if (value != null) {
+                st.bindString(3, value.toString());
+            }
+            st.executeUpdateDelete();
+        }
+    }
+
+    @NonNull
+    private UserSettings loadSettings(long userId) {
+        String unit = null;
+        double goalKg = Double.NaN;
+        try (Cursor c = getReadableDatabase().rawQuery(SQL_SETTINGS,
+                new String[]{String.valueOf(userId)})) {
             while (c.moveToNext()) {
-                long id = c.getLong(0);
-                long uid = c.getLong(1);
-                String date = c.getString(2);
-                double w = c.getDouble(3);
-                out.add(new WeightEntry(id, uid, date, w));
+                String name = c.getString(0);
+                if (SETTING_UNIT.equals(name)) {
+                    unit = c.getString(1);
+                } else if (SETTING_GOAL_KG.equals(name)) {
+                    goalKg = c.getDouble(1);
+                }
+            }
+        }
+        return new UserSettings(unit, goalKg);
+    }
+
+    // ---------------------------------------------------------------------
+    // Alert outbox (see AlertDispatcher)
+    // ---------------------------------------------------------------------
+
+    /** A pending alert as the dispatcher sees it. Immutable. */
+    public static class OutboxAlert {
+        public final long id;
+        public final long userId;
+        public final String destination;
+        public final String body;
+        public final int attempts;   // failed sends so far
+
+        OutboxAlert(long id, long userId, @NonNull String destination, @NonNull String body, int attempts) {
+            this.id = id;
+            this.userId = userId;
+            this.destination = destination;
+            this.body = body;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Queue an alert for delivery at {@code dueAt} (wall-clock millis). Returns its row id,
+     * or -1 when this user already has an alert for the same goal on the same day.
+     */
+    public long enqueueAlert(long userId, double goalKg, int day,
+                             @NonNull String destination, @NonNull String body, long dueAt) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (statements) {
+                SQLiteStatement st = statement(SQL_ENQUEUE_ALERT);
+                st.bindLong(1, userId);
+                st.bindDouble(2, goalKg);
+                st.bindLong(3, day);
+                st.bindString(4, destination);
+                st.bindString(5, body);
+                st.bindLong(6, dueAt);
+                try {
+                    return st.executeInsert(); // -1 when the UNIQUE key ignored it
+                } catch (SQLiteConstraintException e) {
+                    return -1; // no such user
+                }
+            }
+        } finally {
+            PerfMetrics.end("db.enqueueAlert", perf);
+        }
+    }
+
+    /** Up to {@code limit} pending alerts due at {@code now}, oldest due first. */
+    @NonNull
+    public List<OutboxAlert> getDueAlerts(long now, int limit) {
+        long perf = PerfMetrics.start();
+        try {
+            List<OutboxAlert> out = new ArrayList<>();
+            try (Cursor c = getReadableDatabase().rawQuery(SQL_DUE_ALERTS,
+                    new String[]{String.valueOf(now), String.valueOf(limit)})) {
+                while (c.moveToNext()) {
+                    out.add(new OutboxAlert(c.getLong(0), c.getLong(1), c.getString(2), c.getString(3), c.getInt(4)));
+                }
+            }
+            return out;
+        } finally {
+            PerfMetrics.end("db.getDueAlerts", perf);
+        }
+    }
+
+    /** Earliest next_attempt_at among pending alerts, or -1 when the outbox is drained. */
+    public long nextAlertDueAt() {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (statements) {
+                return statement(SQL_NEXT_ALERT_DUE).simpleQueryForLong();
+            }
+        } finally {
+            PerfMetrics.end("db.nextAlertDueAt", perf);
+        }
+    }
+
+    /**
+     * Mark alerts delivered, all in one transaction. Rows that are no longer pending are
+     * left alone, so a batch can never be marked twice. Returns the number marked.
+     */
+    public int markAlertsSent(@NonNull List<OutboxAlert> alerts, long now) {
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            int marked = 0;
+            synchronized (statements) {
+                db.beginTransaction();
+                try {
+                    SQLiteStatement st = statement(SQL_ALERT_SENT);
+                    for (OutboxAlert a : alerts) {
+                        st.bindLong(1, now);
+                        st.bindLong(2, a.id);
+                        marked += st.executeUpdateDelete();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            return marked;
+        } finally {
+            PerfMetrics.end("db.markAlertsSent", perf);
+        }
+    }
+
+    /** Record a failed send: retry at {@code nextAttemptAt}, or give up when it is -1. */
+    public void markAlertFailed(long id, int attempts, long nextAttemptAt) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (statements) {
+                SQLiteStatement st = statement(nextAttemptAt < 0 ? SQL_ALERT_FAILED : SQL_ALERT_RETRY);
+                st.bindLong(1, attempts);
+                if (nextAttemptAt < 0) {
+                    st.bindLong(2, id);
+                } else {
+                    st.bindLong(2, nextAttemptAt);
+                    st.bindLong(3, id);
+                }
+                st.executeUpdateDelete();
+            }
+        } finally {
+            PerfMetrics.end("db.markAlertFailed", perf);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Snapshot restore (see DatabaseSnapshot)
+    // ---------------------------------------------------------------------
+
+    /** Inserts a snapshot's rows through the restore statements (SQL_RESTORE_*). */
+    interface BulkLoad {
+        void load(@NonNull SQLiteStatement user, @NonNull SQLiteStatement setting,
+                  @NonNull SQLiteStatement weight) throws IOException;
+    }
+
+    /**
+     * Replace every user, setting and weight with the rows {@code load} inserts, in one
+     * transaction: if it throws, nothing changes. Queued alerts are dropped with the users
+     * they were for. The history indexes and rollup triggers are dropped for the load and
+     * rebuilt once at the end, which is far cheaper than maintaining them row by row;
+     * same-day rows from an older snapshot are merged as the v9 upgrade merges them.
+     */
+    void replaceAll(@NonNull BulkLoad load) throws IOException {
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            synchronized (statements) { // no single-row write can interleave
+                db.beginTransaction();
+                try (SQLiteStatement user = db.compileStatement(SQL_RESTORE_USER);
+                     SQLiteStatement setting = db.compileStatement(SQL_RESTORE_SETTING);
+                     SQLiteStatement weight = db.compileStatement(SQL_RESTORE_WEIGHT)) {
+                    for (String trigger : ROLLUP_TRIGGERS) db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+                    db.execSQL("DROP INDEX IF EXISTS " + IDX_WEIGHTS_USER_DATE_ID);
+                    db.execSQL("DROP INDEX IF EXISTS " + IDX_WEIGHTS_USER_DAY);
+                    for (String table : new String[]{T_OUTBOX, T_SETTINGS, T_WEIGHTS, T_ROLLUPS, T_USERS}) {
+                        db.execSQL("DELETE FROM " + table);
+                    }
+                    load.load(user, setting, weight);
+                    resolveDuplicateDays(db, duplicatePolicy); // snapshots taken before v9
+                    createWeightIndexes(db);
+                    createWeightDayIndex(db);
+                    rebuildRollups(db);
+                    createRollupTriggers(db);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            synchronized (summaries) {
+                cacheWritesStarted++;
+                cacheWritesFinished++;
+                summaries.clear();
             }
+            synchronized (trends) {
+                trends.clear();
+            }
+            synchronized (settings) {
+                settings.clear();
+            }
+            synchronized (monthStats) {
+                monthStatsWrites++;
+                monthStats.clear();
+            }
+            snapshots.clear();
+        } finally {
+            PerfMetrics.end("db.replaceAll", perf);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Trend (smoothed weight, slope, goal projection)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Current trend for a user. The engine is filled by one index scan on first use and
+     * then kept current by the write methods, so later calls never touch the history.
+     */
+    @NonNull
+    public TrendEngine.Trend getTrend(long userId) {
+        long perf = PerfMetrics.start();
+        try {
+            synchronized (trends) {
+                TrendEngine t = trends.get(userId);
+                if (t != null) return t.snapshot();
+            }
+            long mark = cacheLoadMark(); // as in getSummary
+            TrendEngine t = loadTrend(userId);
+            synchronized (trends) {
+                // checked and cached in one step, so a write starting after the check finds
+                // the engine in place and patches it (writers never hold both locks)
+                synchronized (summaries) {
+                    if (cacheable(mark) && !trends.containsKey(userId)) trends.put(userId, t);
+                }
+                return t.snapshot();
+            }
+        } finally {
+            PerfMetrics.end("db.getTrend", perf);
+        }
+    }
+
+    @NonNull
+    private TrendEngine loadTrend(long userId) {
+        TrendEngine t = new TrendEngine();
+        // oldest first, so every add() takes the O(1) append path
+        try (Cursor c = getReadableDatabase().rawQuery(SQL_TREND_ROWS,
+                new String[]{String.valueOf(userId)})) {
+            while (c.moveToNext()) {
+                t.add(c.getLong(0), c.getInt(1), c.getDouble(2));
+            }
+        }
+        return t;
+    }
+
+    // ---------------------------------------------------------------------
+    // Statistics (mean, spread, percentiles over a date range)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Statistics of {@code userId}'s weights dated within [fromDay, toDay] (FIRST_DAY /
+     * LAST_DAY leave an end open). Calendar months wholly inside the range come from the
+     * month cache; everything else is streamed from the index in one pass per gap between
+     * cached months, and the whole months met on the way are cached for next time. No
+     * rows are kept. The caller owns the result.
+     */
+    @NonNull
+    public WeightStats getStats(long userId, int fromDay, int toDay, @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            List<WeightStats> cached = new ArrayList<>();
+            List<int[]> gaps = new ArrayList<>(); // [lo, hi] day ranges to stream
+            long mark;
+            synchronized (monthStats) {
+                mark = monthStatsWrites;
+                TreeMap<Integer, WeightStats> months = monthStats.get(userId);
+                int next = fromDay;
+                if (months != null && fromDay <= toDay) {
+                    for (Map.Entry<Integer, WeightStats> m : months.subMap(fromDay, true, toDay, true).entrySet()) {
+                        int end = monthEnd(m.getKey());
+                        if (end > toDay) break;
+                        if (m.getKey() > next) gaps.add(new int[]{next, m.getKey() - 1});
+                        cached.add(m.getValue()); // never changed once cached, only replaced
+                        next = end + 1;
+                    }
+                }
+                if (next <= toDay) gaps.add(new int[]{next, toDay});
+            }
+
+            WeightStats out = new WeightStats();
+            Map<Integer, WeightStats> loaded = new HashMap<>();
+            SQLiteDatabase db = getReadableDatabase();
+            for (int[] gap : gaps) {
+                try (Cursor c = db.rawQuery(SQL_STATS_ROWS, new String[]{String.valueOf(userId),
+                        String.valueOf(gap[0]), String.valueOf(gap[1])}, signal)) {
+                    WeightStats into = out;
+                    int monthEnd = EpochDays.INVALID;
+                    while (c.moveToNext()) {
+                        int day = c.getInt(0);
+                        if (day > monthEnd) {
+                            int start = monthStart(day);
+                            monthEnd = monthEnd(start);
+                            // whole months get their own stats (cached below); partial ones go straight in
+                            if (start >= fromDay && monthEnd <= toDay) {
+                                into = new WeightStats();
+                                loaded.put(start, into);
+                            } else {
+                                into = out;
+                            }
+                        }
+                        into.add(c.getDouble(1));
+                    }
+                }
+            }
+            for (WeightStats m : loaded.values()) out.merge(m);
+            for (WeightStats m : cached) out.merge(m);
+
+            if (!loaded.isEmpty()) {
+                synchronized (monthStats) {
+                    if (monthStatsWrites == mark) {
+                        TreeMap<Integer, WeightStats> months = monthStats.get(userId);
+                        if (months == null) {
+                            months = new TreeMap<>();
+                            monthStats.put(userId, months);
+                        }
+                        months.putAll(loaded);
+                    }
+                }
+            }
+            return out;
+        } finally {
+            PerfMetrics.end("db.getStats", perf);
+        }
+    }
+
+    private void dropMonthStats(long userId, int day, int otherDay) {
+        synchronized (monthStats) {
+            monthStatsWrites++;
+            TreeMap<Integer, WeightStats> months = monthStats.get(userId);
+            if (months == null) return;
+            months.remove(monthStart(day));
+            months.remove(monthStart(otherDay));
+        }
+    }
+
+    private static int monthStart(int day) {
+        return EpochDays.of(EpochDays.year(day), EpochDays.month(day), 1);
+    }
+
+    private static int monthEnd(int monthStart) {
+        return monthStart + EpochDays.lengthOfMonth(EpochDays.year(monthStart), EpochDays.month(monthStart)) - 1;
+    }
+
+    /** Read all weight entries for a user, newest date first. */
+    @NonNull
+    public List<WeightEntry> getWeights(long userId) {
+        return getWeights(userId, null);
+    }
+
+    /**
+     * Same as {@link #getWeights(long)}, but the query aborts with
+     * OperationCanceledException as soon as the signal is cancelled.
+     */
+    @NonNull
+    public List<WeightEntry> getWeights(long userId, @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            SQLiteDatabase db = getReadableDatabase();
+            List<WeightEntry> out = new ArrayList<>();
+
+            try (Cursor c = db.rawQuery(SQL_HISTORY, new String[]{String.valueOf(userId)}, signal)) {
+                readEntries(c, out);
+            }
+            return out;
+        } finally {
+            PerfMetrics.end("db.getWeights", perf);
+        }
+    }
+
+    /**
+     * The whole history in columns (newest first), e.g. for the chart. Served from the
+     * snapshot cache when the user was active recently; the caller owns the result.
+     */
+    @NonNull
+    public ColumnarWeightStore getHistoryColumns(long userId, @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            ColumnarWeightStore out = snapshots.history(userId);
+            if (out != null) return out;
+            long mark = snapshots.writeMark();
+            long writes = cacheLoadMark(); // snapshots are patched after the commit too
+            out = new ColumnarWeightStore(userId);
+            try (Cursor c = getReadableDatabase().rawQuery(SQL_HISTORY,
+                    new String[]{String.valueOf(userId)}, signal)) {
+                readColumns(c, out);
+            }
+            boolean keep;
+            synchronized (summaries) {
+                keep = cacheable(writes);
+            }
+            if (keep) snapshots.put(userId, out, mark);
+            return out;
+        } finally {
+            PerfMetrics.end("db.getHistoryColumns", perf);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Keyset paging: rows are ordered by (date DESC, _id DESC); a page is
+    // addressed by the row on its edge instead of an OFFSET, so every page
+    // is one index seek no matter how deep into the history it is. A date
+    // range only narrows that seek, so a filtered page costs the same.
+    // ---------------------------------------------------------------------
+
+    /**
+     * Up to {@code limit} rows older than {@code anchor} (or the newest rows when
+     * anchor is null), newest first.
+     */
+    @NonNull
+    public List<WeightEntry> getWeightsOlderThan(long userId, @Nullable WeightEntry anchor,
+                                                 int limit, @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            List<WeightEntry> out = new ArrayList<>(limit);
+            try (Cursor c = queryOlderThan(userId, anchor, limit, signal)) {
+                readEntries(c, out);
+            }
+            return out;
+        } finally {
+            PerfMetrics.end("db.getWeightsOlderThan", perf);
+        }
+    }
+
+    /** Up to {@code limit} rows newer than {@code anchor}, still returned newest first. */
+    @NonNull
+    public List<WeightEntry> getWeightsNewerThan(long userId, @NonNull WeightEntry anchor,
+                                                 int limit, @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            List<WeightEntry> out = new ArrayList<>(limit);
+            try (Cursor c = queryNewerThan(userId, anchor, limit, signal)) {
+                readEntries(c, out);
+            }
+            Collections.reverse(out); // walked the index upwards; hand back newest first
+            return out;
+        } finally {
+            PerfMetrics.end("db.getWeightsNewerThan", perf);
+        }
+    }
+
+    /** Same rows as {@link #getWeightsOlderThan}, read straight into columns. */
+    @NonNull
+    public ColumnarWeightStore getPageOlderThan(long userId, @Nullable WeightEntry anchor,
+                                                int limit, @Nullable CancellationSignal signal) {
+        return getPageOlderThan(userId, FIRST_DAY, LAST_DAY, anchor, limit, signal);
+    }
+
+    /** Same rows as {@link #getWeightsNewerThan}, read straight into columns. */
+    @NonNull
+    public ColumnarWeightStore getPageNewerThan(long userId, @NonNull WeightEntry anchor,
+                                                int limit, @Nullable CancellationSignal signal) {
+        return getPageNewerThan(userId, FIRST_DAY, LAST_DAY, anchor, limit, signal);
+    }
+
+    /**
+     * Up to {@code limit} rows dated within [fromDay, toDay] and older than {@code anchor}
+     * (or the newest rows in the range when anchor is null), newest first. The anchor must
+     * itself lie in the range. Pass {@link #FIRST_DAY} / {@link #LAST_DAY} to leave an end open.
+     */
+    @NonNull
+    public ColumnarWeightStore getPageOlderThan(long userId, int fromDay, int toDay,
+                                                @Nullable WeightEntry anchor, int limit,
+                                                @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            if (anchor == null && isAllDays(fromDay, toDay)) {
+                ColumnarWeightStore cached = snapshots.newest(userId, limit);
+                if (cached != null) return cached; // a returning user's first page
+            }
+            ColumnarWeightStore out = new ColumnarWeightStore(userId, limit);
+            try (Cursor c = queryOlderThan(userId, fromDay, toDay, anchor, limit, signal)) {
+                readColumns(c, out);
+            }
+            return out;
+        } finally {
+            PerfMetrics.end(isAllDays(fromDay, toDay) ? "db.getPageOlderThan" : "db.getPageInRange", perf);
+        }
+    }
+
+    /** Up to {@code limit} rows dated within [fromDay, toDay] and newer than {@code anchor}, newest first. */
+    @NonNull
+    public ColumnarWeightStore getPageNewerThan(long userId, int fromDay, int toDay,
+                                                @NonNull WeightEntry anchor, int limit,
+                                                @Nullable CancellationSignal signal) {
+        long perf = PerfMetrics.start();
+        try {
+            ColumnarWeightStore out = new ColumnarWeightStore(userId, limit);
+            try (Cursor c = queryNewerThan(userId, fromDay, toDay, anchor, limit, signal)) {
+                readColumns(c, out);
+            }
+            out.reverse();
+            return out;
+        } finally {
+            PerfMetrics.end(isAllDays(fromDay, toDay) ? "db.getPageNewerThan" : "db.getPageInRange", perf);
+        }
+    }
+
+    private static boolean isAllDays(int fromDay, int toDay) {
+        return fromDay == FIRST_DAY && toDay == LAST_DAY;
+    }
+
+    @NonNull
+    private Cursor queryOlderThan(long userId, @Nullable WeightEntry anchor,
+                                  int limit, @Nullable CancellationSignal signal) {
+        return queryOlderThan(userId, FIRST_DAY, LAST_DAY, anchor, limit, signal);
+    }
+
+    @NonNull
+    private Cursor queryOlderThan(long userId, int fromDay, int toDay, @Nullable WeightEntry anchor,
+                                  int limit, @Nullable CancellationSignal signal) {
+        String user = String.valueOf(userId);
+        String n = String.valueOf(limit);
+        if (isAllDays(fromDay, toDay)) {
+            if (anchor == null) {
+                return getReadableDatabase().rawQuery(SQL_PAGE_FIRST, new String[]{user, n}, signal);
+            }
+            return getReadableDatabase().rawQuery(SQL_PAGE_OLDER,
+                    new String[]{user, String.valueOf(anchor.day), String.valueOf(anchor.id), n}, signal);
+        }
+        String from = String.valueOf(fromDay);
+        if (anchor == null) {
+            return getReadableDatabase().rawQuery(SQL_RANGE_FIRST,
+                    new String[]{user, from, String.valueOf(toDay), n}, signal);
+        }
+        return getReadableDatabase().rawQuery(SQL_RANGE_OLDER,
+                new String[]{user, from, String.valueOf(anchor.day), String.valueOf(anchor.id), n}, signal);
+    }
+
+    /** Oldest first: the caller reverses to history order. */
+    @NonNull
+    private Cursor queryNewerThan(long userId, @NonNull WeightEntry anchor,
+                                  int limit, @Nullable CancellationSignal signal) {
+        return queryNewerThan(userId, FIRST_DAY, LAST_DAY, anchor, limit, signal);
+    }
+
+    @NonNull
+    private Cursor queryNewerThan(long userId, int fromDay, int toDay, @NonNull WeightEntry anchor,
+                                  int limit, @Nullable CancellationSignal signal) {
+        String user = String.valueOf(userId);
+        String day = String.valueOf(anchor.day);
+        String id = String.valueOf(anchor.id);
+        String n = String.valueOf(limit);
+        if (isAllDays(fromDay, toDay)) {
+            return getReadableDatabase().rawQuery(SQL_PAGE_NEWER, new String[]{user, day, id, n}, signal);
+        }
+        return getReadableDatabase().rawQuery(SQL_RANGE_NEWER,
+                new String[]{user, String.valueOf(toDay), day, id, n}, signal);
+    }
+
+    /**
+     * Cursor over (date, weight) for a user, oldest first, for streaming exports.
+     * Walks the same index backwards; the caller must close it.
+     */
+    @NonNull
+    public Cursor openHistoryCursor(long userId) {
+        return getReadableDatabase().rawQuery(SQL_EXPORT_ROWS, new String[]{String.valueOf(userId)});
+    }
+
+    private static void readColumns(@NonNull Cursor c, @NonNull ColumnarWeightStore out) {
+        while (c.moveToNext()) {
+            out.append(c.getLong(0), c.getInt(2), c.getDouble(3));
+        }
+    }
+
+    private static void readEntries(@NonNull Cursor c, @NonNull List<WeightEntry> out) {
+        while (c.moveToNext()) {
+            long id = c.getLong(0);
+            long uid = c.getLong(1);
+            int day = c.getInt(2);
+            double w = c.getDouble(3);
+            out.add(new WeightEntry(id, uid, day, w));
         }
-        return out;
     }
 }
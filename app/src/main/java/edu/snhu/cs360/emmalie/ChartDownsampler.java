@@ -0,0 +1,216 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Largest-triangle-three-buckets downsampling of a weight history, cached per zoom level.
+ *
+ * Level k splits the timeline into fixed buckets of 2^k days and keeps one point per
+ * non-empty bucket: the one forming the largest triangle with the point kept in the
+ * previous bucket and the average of the next bucket, which keeps peaks and dips that
+ * plain averaging would flatten. The oldest and newest rows are always kept.
+ *
+ * Buckets are anchored to the calendar, not to row positions, so a write only touches
+ * its own bucket and its neighbours: onRowChanged() recomputes the bucket before it and
+ * then walks forward only while the kept point keeps changing.
+ *
+ * Reads rows from a WeightStore (newest first); not thread-safe, used on the main thread.
+ */
+public final class ChartDownsampler {
+
+    /** Levels 0..MAX_LEVEL, i.e. buckets of 1 day up to ~2900 years. */
+    static final int MAX_LEVEL = 20;
+
+    /** One cached level: non-empty buckets oldest first, with the point kept for each. */
+    static final class Level {
+        final int bucketDays;
+        int count;
+        int[] key = new int[16];     // floorDiv(day, bucketDays)
+        int[] day = new int[16];     // kept point
+        float[] kg = new float[16];
+        float[] avgDay = new float[16];
+        float[] avgKg = new float[16];
+
+        Level(int bucketDays) {
+            this.bucketDays = bucketDays;
+        }
+
+        /** Index of the bucket with this key, or -(insertion point) - 1. */
+        int find(int k) {
+            return Arrays.binarySearch(key, 0, count, k);
+        }
+
+        /** Index of the first kept point on or after {@code d}. */
+        int firstOnOrAfter(int d) {
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (day[mid] < d) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        void insert(int at, int k) {
+            if (count == key.length) {
+                int cap = count * 2;
+                key = Arrays.copyOf(key, cap);
+                day = Arrays.copyOf(day, cap);
+                kg = Arrays.copyOf(kg, cap);
+                avgDay = Arrays.copyOf(avgDay, cap);
+                avgKg = Arrays.copyOf(avgKg, cap);
+            }
+            int tail = count - at;
+            System.arraycopy(key, at, key, at + 1, tail);
+            System.arraycopy(day, at, day, at + 1, tail);
+            System.arraycopy(kg, at, kg, at + 1, tail);
+            System.arraycopy(avgDay, at, avgDay, at + 1, tail);
+            System.arraycopy(avgKg, at, avgKg, at + 1, tail);
+            key[at] = k;
+            count++;
+        }
+
+        void remove(int at) {
+            int tail = count - at - 1;
+            System.arraycopy(key, at + 1, key, at, tail);
+            System.arraycopy(day, at + 1, day, at, tail);
+            System.arraycopy(kg, at + 1, kg, at, tail);
+            System.arraycopy(avgDay, at + 1, avgDay, at, tail);
+            System.arraycopy(avgKg, at + 1, avgKg, at, tail);
+            count--;
+        }
+    }
+
+    private final WeightStore rows;
+    private final Level[] levels = new Level[MAX_LEVEL + 1];
+
+    public ChartDownsampler(@NonNull WeightStore rows) {
+        this.rows = rows;
+    }
+
+    /** Smallest level whose buckets put at most {@code maxPoints} across {@code spanDays}. */
+    static int levelFor(double spanDays, int maxPoints) {
+        int level = 0;
+        while (level < MAX_LEVEL && spanDays / (1 << level) > maxPoints) level++;
+        return level;
+    }
+
+    /** The cached level, built on first use. */
+    @NonNull
+    Level level(int level) {
+        Level l = levels[level];
+        if (l == null) {
+            l = build(1 << level);
+            levels[level] = l;
+        }
+        return l;
+    }
+
+    /** Forget every cached level (the store was replaced wholesale). */
+    public void invalidate() {
+        Arrays.fill(levels, null);
+    }
+
+    /**
+     * A row on {@code day} was added, removed or re-weighed in the store (call once for
+     * each affected day, after the store is updated). Cached levels are patched in place.
+     */
+    public void onRowChanged(int day) {
+        for (Level l : levels) {
+            if (l != null) patch(l, day);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // build / patch
+    // ---------------------------------------------------------------------
+
+    @NonNull
+    private Level build(int bucketDays) {
+        Level l = new Level(bucketDays);
+        int n = rows.size();
+        // store is newest first; walk it backwards to go oldest first
+        for (int i = n - 1; i >= 0; ) {
+            int k = Math.floorDiv(rows.dayAt(i), bucketDays);
+            double sumDay = 0, sumKg = 0;
+            int j = i;
+            while (j >= 0 && Math.floorDiv(rows.dayAt(j), bucketDays) == k) {
+                sumDay += rows.dayAt(j);
+                sumKg += rows.kgAt(j);
+                j--;
+            }
+            int at = l.count;
+            l.insert(at, k);
+            l.avgDay[at] = (float) (sumDay / (i - j));
+            l.avgKg[at] = (float) (sumKg / (i - j));
+            i = j;
+        }
+        for (int b = 0; b < l.count; b++) select(l, b);
+        return l;
+    }
+
+    private void patch(@NonNull Level l, int changedDay) {
+        int k = Math.floorDiv(changedDay, l.bucketDays);
+        int idx = l.find(k);
+        int hi = rows.firstOnOrBefore(k * l.bucketDays - 1);          // exclusive end
+        int lo = rows.firstOnOrBefore(k * l.bucketDays + l.bucketDays - 1);
+        if (lo == hi) {
+            if (idx < 0) return; // still empty; nothing kept here
+            l.remove(idx);
+        } else {
+            if (idx < 0) {
+                idx = -idx - 1;
+                l.insert(idx, k);
+            }
+            double sumDay = 0, sumKg = 0;
+            for (int i = hi - 1; i >= lo; i--) { // oldest first, same order as build()
+                sumDay += rows.dayAt(i);
+                sumKg += rows.kgAt(i);
+            }
+            l.avgDay[idx] = (float) (sumDay / (hi - lo));
+            l.avgKg[idx] = (float) (sumKg / (hi - lo));
+        }
+
+        // the bucket before sees a new neighbour average; everything after may cascade
+        for (int b = Math.max(0, idx - 1); b < l.count; b++) {
+            int oldDay = l.day[b];
+            float oldKg = l.kg[b];
+            select(l, b);
+            if (b > idx && l.day[b] == oldDay && l.kg[b] == oldKg) break;
+        }
+    }
+
+    /** Pick the kept point of bucket {@code b} (LTTB; first/last buckets keep the edge rows). */
+    private void select(@NonNull Level l, int b) {
+        int start = l.key[b] * l.bucketDays;
+        int hi = rows.firstOnOrBefore(start - 1);                      // oldest row + 1
+        int lo = rows.firstOnOrBefore(start + l.bucketDays - 1);       // newest row
+        if (b == 0) {
+            keep(l, b, hi - 1);
+            return;
+        }
+        if (b == l.count - 1) {
+            keep(l, b, lo);
+            return;
+        }
+        double ax = l.day[b - 1], ay = l.kg[b - 1];
+        double cx = l.avgDay[b + 1], cy = l.avgKg[b + 1];
+        int best = hi - 1;
+        double bestArea = -1;
+        for (int i = hi - 1; i >= lo; i--) {
+            double area = Math.abs((ax - cx) * (rows.kgAt(i) - ay) - (ax - rows.dayAt(i)) * (cy - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        keep(l, b, best);
+    }
+
+    private void keep(@NonNull Level l, int b, int row) {
+        l.day[b] = rows.dayAt(row);
+        l.kg[b] = (float) rows.kgAt(row);
+    }
+}
@@ -0,0 +1,236 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * WeightStore over three growable primitive columns (long ids, int epoch days, double kg)
+ * kept in history order. About 20 bytes per row, against an object header, two longs,
+ * an int and a double (plus the List slot) for a WeightEntry.
+ *
+ * Lookups binary-search on (day, _id), O(log n). add()/remove() find their slot the
+ * same way but then shift the tail with System.arraycopy, so they are O(n), not O(log n).
+ * That is a memmove of primitives, fine at phone-history sizes; appending an older page
+ * goes on the end and shifts nothing.
+ * Rows are filled from SQLite (see AppDatabaseHelper.getPageOlderThan); the database
+ * stays the source of truth and this is the in-memory copy screens read from.
+ * Not thread-safe: fill it on one thread, then hand it over or copy() it.
+ */
+public final class ColumnarWeightStore implements WeightStore {
+
+    private final long userId;   // every row belongs to this user
+    private long[] ids;
+    private int[] days;
+    private double[] kg;
+    private int size;
+
+    public ColumnarWeightStore(long userId) {
+        this(userId, 16);
+    }
+
+    public ColumnarWeightStore(long userId, int capacity) {
+        this.userId = userId;
+        int cap = Math.max(capacity, 4);
+        ids = new long[cap];
+        days = new int[cap];
+        kg = new double[cap];
+    }
+
+    // ---------------------------------------------------------------------
+    // WeightStore
+    // ---------------------------------------------------------------------
+
+    @Override
+    public long userId() {
+        return userId;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long idAt(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    @Override
+    public int dayAt(int index) {
+        checkIndex(index);
+        return days[index];
+    }
+
+    @Override
+    public double kgAt(int index) {
+        checkIndex(index);
+        return kg[index];
+    }
+
+    @Override
+    public int indexOf(long id, int day) {
+        int at = slotFor(day, id);
+        return at < size && days[at] == day && ids[at] == id ? at : -1;
+    }
+
+    @Override
+    public int firstOnOrBefore(int day) {
+        // first position whose day is <= day; days are non-increasing
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] > day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @NonNull
+    @Override
+    public AppDatabaseHelper.WeightEntry entryAt(int index) {
+        checkIndex(index);
+        return new AppDatabaseHelper.WeightEntry(ids[index], userId, days[index], kg[index]);
+    }
+
+    // ---------------------------------------------------------------------
+    // mutation
+    // ---------------------------------------------------------------------
+
+    /** Insert a row in order; returns its position (the existing one if already present). */
+    public int add(long id, int day, double weightKg) {
+        int at = slotFor(day, id);
+        if (at < size && days[at] == day && ids[at] == id) return at;
+        openGap(at, 1);
+        ids[at] = id;
+        days[at] = day;
+        kg[at] = weightKg;
+        return at;
+    }
+
+    /** Remove the row with this _id and day; returns its old position or -1. */
+    public int remove(long id, int day) {
+        int at = indexOf(id, day);
+        if (at >= 0) removeRange(at, at + 1);
+        return at;
+    }
+
+    /**
+     * Append a row that sorts after every row already present (e.g. while reading a
+     * cursor in history order). O(1) amortized; order is the caller's responsibility.
+     */
+    public void append(long id, int day, double weightKg) {
+        ensureCapacity(size + 1);
+        ids[size] = id;
+        days[size] = day;
+        kg[size] = weightKg;
+        size++;
+    }
+
+    /** Splice all rows of {@code src} in at {@code at}; src must fit there in order. */
+    public void insertAll(int at, @NonNull WeightStore src) {
+        if (at < 0 || at > size) throw new IndexOutOfBoundsException("at " + at + ", size " + size);
+        int n = src.size();
+        openGap(at, n);
+        if (src instanceof ColumnarWeightStore) {
+            ColumnarWeightStore s = (ColumnarWeightStore) src;
+            System.arraycopy(s.ids, 0, ids, at, n);
+            System.arraycopy(s.days, 0, days, at, n);
+            System.arraycopy(s.kg, 0, kg, at, n);
+        } else {
+            for (int i = 0; i < n; i++) {
+                ids[at + i] = src.idAt(i);
+                days[at + i] = src.dayAt(i);
+                kg[at + i] = src.kgAt(i);
+            }
+        }
+    }
+
+    /** Remove positions [from, to). */
+    public void removeRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("[" + from + ", " + to + "), size " + size);
+        }
+        int tail = size - to;
+        System.arraycopy(ids, to, ids, from, tail);
+        System.arraycopy(days, to, days, from, tail);
+        System.arraycopy(kg, to, kg, from, tail);
+        size -= to - from;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Reverse row order in place (for pages read oldest-first off the index). */
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            int d = days[i];
+            days[i] = days[j];
+            days[j] = d;
+            double w = kg[i];
+            kg[i] = kg[j];
+            kg[j] = w;
+        }
+    }
+
+    /** Rows the arrays can hold before they grow (for memory accounting). */
+    int capacity() {
+        return ids.length;
+    }
+
+    /** Independent copy, trimmed to size (cheap: three array copies). */
+    @NonNull
+    public ColumnarWeightStore copy() {
+        ColumnarWeightStore c = new ColumnarWeightStore(userId, size);
+        c.insertAll(0, this);
+        return c;
+    }
+
+    // ---------------------------------------------------------------------
+    // internals
+    // ---------------------------------------------------------------------
+
+    /** First position whose (day, id) does not sort before the key in history order. */
+    private int slotFor(int day, long id) {
+        // fast path: an older row than everything resident goes on the end
+        if (size == 0 || before(days[size - 1], ids[size - 1], day, id)) return size;
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (before(days[mid], ids[mid], day, id)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** True when (dayA, idA) comes before (dayB, idB) in date DESC, _id DESC order. */
+    private static boolean before(int dayA, long idA, int dayB, long idB) {
+        return dayA > dayB || (dayA == dayB && idA > idB);
+    }
+
+    private void openGap(int at, int n) {
+        ensureCapacity(size + n);
+        int tail = size - at;
+        System.arraycopy(ids, at, ids, at + n, tail);
+        System.arraycopy(days, at, days, at + n, tail);
+        System.arraycopy(kg, at, kg, at + n, tail);
+        size += n;
+    }
+
+    private void ensureCapacity(int min) {
+        if (min <= ids.length) return;
+        int cap = Math.max(min, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, cap);
+        days = Arrays.copyOf(days, cap);
+        kg = Arrays.copyOf(kg, cap);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+}
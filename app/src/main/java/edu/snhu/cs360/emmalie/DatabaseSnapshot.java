@@ -0,0 +1,602 @@
+package edu.snhu.cs360.emmalie;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact backup of the live data only: users, settings and weights, without indexes,
+ * rollups, queued alerts or free pages. Read back through a memory map and restored in
+ * one bulk transaction (AppDatabaseHelper.replaceAll), so a bad file changes nothing.
+ *
+ * File: "WTS1" magic, one section per table, then an end section. A section is
+ *   tag (1 byte) | rows (int) | raw bytes (int) | packed bytes (int) | CRC32 of packed (int) | packed
+ * big-endian, where packed is the raw bytes deflated. The end section (tag 0) has no
+ * payload; its rows and CRC32 fields count and checksum the headers before it. Raw rows are varints, mostly deltas
+ * from the row before (zigzag where they can go negative):
+ *  - users    (by _id):                     id, username, password
+ *  - settings (by user_id, name):           user, name, type byte + value
+ *  - weights  (by user_id DESC, date, _id): user, day, id, weight
+ * A weight that is a whole number of hundredths (anything typed in kg) is a delta in
+ * hundredths; any other (converted from lbs) keeps its 8 bytes. Everything reads back
+ * bit for bit.
+ */
+public class DatabaseSnapshot {
+
+    public static final byte[] MAGIC = {'W', 'T', 'S', '1'};
+
+    static final byte END = 0;
+    static final byte USERS = 1;
+    static final byte SETTINGS = 2;
+    static final byte WEIGHTS = 3;
+
+    static final int HEADER_BYTES = 1 + 4 * 4;
+    static final int BUFFER_BYTES = 64 * 1024;
+
+    // settings values keep their SQLite type
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_REAL = 2;
+    private static final int TYPE_TEXT = 3;
+    private static final int TYPE_BLOB = 4;
+
+    // weights beyond this many kg are never hundredths (and their deltas would not fit)
+    private static final double MAX_CENTS_KG = 1e9;
+    private static final int RAW_WEIGHT = 1; // odd: escapes an 8-byte weight; deltas are even
+
+    /** Row counts and file size of a snapshot written or restored. */
+    public static class Result {
+        public final int users;
+        public final int settings;
+        public final int weights;
+        public final long bytes;
+
+        Result(int users, int settings, int weights, long bytes) {
+            this.users = users;
+            this.settings = settings;
+            this.weights = weights;
+            this.bytes = bytes;
+        }
+    }
+
+    private final AppDatabaseHelper helper;
+
+    public DatabaseSnapshot(@NonNull AppDatabaseHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Write every user, setting and weight to {@code file}, replacing it only once the new
+     * snapshot is complete. The tables are read in one transaction, so they agree with each
+     * other; writers wait for it (about a second at 1M rows).
+     */
+    @NonNull
+    public Result write(@NonNull File file) throws IOException {
+        long perf = PerfMetrics.start();
+        try {
+            File tmp = new File(file.getPath() + ".tmp");
+            Result result;
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                Writer w = new Writer(out);
+                SQLiteDatabase db = helper.getWritableDatabase();
+                db.beginTransactionNonExclusive();
+                try {
+                    writeTables(db, w);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    w.close();
+                }
+                long bytes = w.finish();
+                out.force(true);
+                result = new Result(w.rows(USERS), w.rows(SETTINGS), w.rows(WEIGHTS), bytes);
+            }
+            if (!tmp.renameTo(file)) throw new IOException("cannot replace " + file);
+            return result;
+        } finally {
+            PerfMetrics.end("snapshot.write", perf);
+        }
+    }
+
+    private static void writeTables(@NonNull SQLiteDatabase db, @NonNull Writer w) throws IOException {
+        try (Cursor c = db.rawQuery(AppDatabaseHelper.SQL_SNAPSHOT_USERS, null)) {
+            w.beginSection(USERS);
+            while (c.moveToNext()) w.user(c.getLong(0), c.getString(1), c.getString(2));
+            w.endSection();
+        }
+        try (Cursor c = db.rawQuery(AppDatabaseHelper.SQL_SNAPSHOT_SETTINGS, null)) {
+            w.beginSection(SETTINGS);
+            while (c.moveToNext()) {
+                Object value;
+                switch (c.getType(2)) {
+                    case Cursor.FIELD_TYPE_INTEGER: value = c.getLong(2); break;
+                    case Cursor.FIELD_TYPE_FLOAT:   value = c.getDouble(2); break;
+                    case Cursor.FIELD_TYPE_BLOB:    value = c.getBlob(2); break;
+                    case Cursor.FIELD_TYPE_STRING:  value = c.getString(2); break;
+                    default: continue; // NOT NULL column
+                }
+                w.setting(c.getLong(0), c.getString(1), value);
+            }
+            w.endSection();
+        }
+        try (Cursor c = db.rawQuery(AppDatabaseHelper.SQL_SNAPSHOT_WEIGHTS, null)) {
+            w.beginSection(WEIGHTS);
+            while (c.moveToNext()) w.weight(c.getLong(0), c.getLong(1), c.getInt(2), c.getDouble(3));
+            w.endSection();
+        }
+    }
+
+    /**
+     * Replace the database's users, settings and weights with {@code file}'s. Rows stream
+     * from the map straight into the restore statements; a checksum or format error rolls
+     * the whole restore back.
+     */
+    @NonNull
+    public Result restore(@NonNull File file) throws IOException {
+        long perf = PerfMetrics.start();
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Reader reader = new Reader(in);
+            try {
+                helper.replaceAll((user, setting, weight) -> reader.readAll(new Sink() {
+                    @Override
+                    public void user(long id, @NonNull String username, @NonNull String password) {
+                        user.bindLong(1, id);
+                        user.bindString(2, username);
+                        user.bindString(3, password);
+                        user.executeInsert();
+                    }
+
+                    @Override
+                    public void setting(long userId, @NonNull String name, @NonNull Object value) {
+                        setting.bindLong(1, userId);
+                        setting.bindString(2, name);
+                        bindValue(setting, 3, value);
+                        setting.executeInsert();
+                    }
+
+                    @Override
+                    public void weight(long userId, long id, int day, double kg) {
+                        weight.bindLong(1, id);
+                        weight.bindLong(2, userId);
+                        weight.bindLong(3, day);
+                        weight.bindDouble(4, kg);
+                        weight.executeInsert();
+                    }
+                }));
+            } finally {
+                reader.close();
+            }
+            return new Result(reader.rows(USERS), reader.rows(SETTINGS), reader.rows(WEIGHTS), in.size());
+        } finally {
+            PerfMetrics.end("snapshot.restore", perf);
+        }
+    }
+
+    private static void bindValue(@NonNull SQLiteStatement st, int index, @NonNull Object value) {
+        if (value instanceof Long) st.bindLong(index, (Long) value);
+        else if (value instanceof Double) st.bindDouble(index, (Double) value);
+        else if (value instanceof byte[]) st.bindBlob(index, (byte[]) value);
+        else st.bindString(index, value.toString());
+    }
+
+    // ---------------------------------------------------------------------
+    // Format writer / reader (plain NIO and java.util.zip, no Android types)
+    // ---------------------------------------------------------------------
+
+    /** Receives a snapshot's rows in file order. */
+    interface Sink {
+        void user(long id, @NonNull String username, @NonNull String password);
+        /** {@code value} is a Long, Double, String or byte[]. */
+        void setting(long userId, @NonNull String name, @NonNull Object value);
+        void weight(long userId, long id, int day, double kg);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Encodes sections into a seekable channel: each header is filled in once its section ends. */
+    static final class Writer {
+        private final FileChannel out;
+        private final ByteBuffer raw = ByteBuffer.allocate(BUFFER_BYTES);
+        private final byte[] packed = new byte[BUFFER_BYTES];
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true); // CRC is ours
+        private final CRC32 crc = new CRC32();
+        private final CRC32 headersCrc = new CRC32();
+        private final int[] rowsByTag = new int[WEIGHTS + 1];
+
+        private int sections;
+        private byte tag;
+        private long sectionStart;
+        private int rows;
+        private long rawBytes;
+        private long packedBytes;
+
+        // delta bases, reset per section
+        private long lastUser;
+        private long lastId;
+        private long lastDay;
+        private long lastCents;
+
+        Writer(@NonNull FileChannel out) throws IOException {
+            this.out = out;
+            writeFully(ByteBuffer.wrap(MAGIC));
+        }
+
+        void beginSection(byte tag) throws IOException {
+            this.tag = tag;
+            sectionStart = out.position();
+            writeFully(ByteBuffer.allocate(HEADER_BYTES)); // placeholder, see endSection()
+            rows = 0;
+            rawBytes = 0;
+            packedBytes = 0;
+            lastUser = lastId = lastDay = lastCents = 0;
+            crc.reset();
+            deflater.reset();
+        }
+
+        void user(long id, @NonNull String username, @NonNull String password) throws IOException {
+            putVarLong(zigzag(id - lastId));
+            lastId = id;
+            putString(username);
+            putString(password);
+            rows++;
+        }
+
+        void setting(long userId, @NonNull String name, @NonNull Object value) throws IOException {
+            putVarLong(zigzag(userId - lastUser));
+            lastUser = userId;
+            putString(name);
+            if (value instanceof Long) {
+                putVarLong(TYPE_INTEGER);
+                putVarLong(zigzag((Long) value));
+            } else if (value instanceof Double) {
+                putVarLong(TYPE_REAL);
+                putRawLong(Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof String) {
+                putVarLong(TYPE_TEXT);
+                putString((String) value);
+            } else if (value instanceof byte[]) {
+                putVarLong(TYPE_BLOB);
+                putBytes((byte[]) value);
+            } else {
+                throw new IllegalArgumentException("unsupported setting value " + value.getClass());
+            }
+            rows++;
+        }
+
+        void weight(long userId, long id, int day, double kg) throws IOException {
+            putVarLong(zigzag(userId - lastUser));
+            putVarLong(zigzag(day - lastDay));
+            putVarLong(zigzag(id - lastId));
+            lastUser = userId;
+            lastDay = day;
+            lastId = id;
+            long cents = Math.round(kg * 100);
+            if (Math.abs(kg) < MAX_CENTS_KG
+                    && Double.doubleToRawLongBits(cents / 100.0) == Double.doubleToRawLongBits(kg)) {
+                putVarLong(zigzag(cents - lastCents) << 1);
+                lastCents = cents;
+            } else {
+                putVarLong(RAW_WEIGHT);
+                putRawLong(Double.doubleToRawLongBits(kg));
+            }
+            rows++;
+        }
+
+        void endSection() throws IOException {
+            flushRaw();
+            deflater.finish();
+            while (!deflater.finished()) drainDeflater();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.put(tag).putInt(rows).putInt((int) rawBytes).putInt((int) packedBytes).putInt((int) crc.getValue());
+            headersCrc.update(header.array(), 0, HEADER_BYTES);
+            sections++;
+            header.flip();
+            long at = sectionStart;
+            while (header.hasRemaining()) at += out.write(header, at);
+            rowsByTag[tag] = rows;
+        }
+
+        /** Write the end section. Returns the snapshot's size in bytes. */
+        long finish() throws IOException {
+            ByteBuffer end = ByteBuffer.allocate(HEADER_BYTES);
+            end.put(END).putInt(sections).putInt(0).putInt(0).putInt((int) headersCrc.getValue());
+            end.flip();
+            writeFully(end);
+            return out.position();
+        }
+
+        /** Release the deflater's native memory; safe to call more than once. */
+        void close() {
+            deflater.end();
+        }
+
+        int rows(byte tag) {
+            return rowsByTag[tag];
+        }
+
+        private void putVarLong(long v) throws IOException {
+            if (raw.remaining() < 10) flushRaw();
+            while ((v & ~0x7FL) != 0) {
+                raw.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            raw.put((byte) v);
+        }
+
+        private void putRawLong(long v) throws IOException {
+            if (raw.remaining() < 8) flushRaw();
+            raw.putLong(v);
+        }
+
+        private void putString(@NonNull String s) throws IOException {
+            putBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void putBytes(@NonNull byte[] b) throws IOException {
+            putVarLong(b.length);
+            for (int off = 0; off < b.length; ) {
+                if (!raw.hasRemaining()) flushRaw();
+                int n = Math.min(raw.remaining(), b.length - off);
+                raw.put(b, off, n);
+                off += n;
+            }
+        }
+
+        private void flushRaw() throws IOException {
+            int n = raw.position();
+            if (n == 0) return;
+            rawBytes += n;
+            deflater.setInput(raw.array(), 0, n);
+            while (!deflater.needsInput()) drainDeflater();
+            raw.clear();
+        }
+
+        private void drainDeflater() throws IOException {
+            int n = deflater.deflate(packed, 0, packed.length, Deflater.NO_FLUSH);
+            if (n == 0) return;
+            crc.update(packed, 0, n);
+            writeFully(ByteBuffer.wrap(packed, 0, n));
+            packedBytes += n;
+        }
+
+        private void writeFully(@NonNull ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) out.write(b);
+        }
+    }
+
+    /**
+     * Decodes a snapshot from a memory map of the whole file: sections are inflated straight
+     * from the mapped pages, with no read() calls or file-sized buffers. Sections with an
+     * unknown tag are skipped, so older builds can restore newer snapshots' known tables.
+     */
+    static final class Reader {
+        private final MappedByteBuffer map;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private final CRC32 headersCrc = new CRC32();
+        private final byte[] input = new byte[BUFFER_BYTES];
+        private final byte[] buf = new byte[BUFFER_BYTES];
+        private final int[] rowsByTag = new int[WEIGHTS + 1];
+
+        private int packedLeft;  // section bytes not yet handed to the inflater
+        private int pos;         // next unread byte of buf
+        private int limit;       // end of inflated bytes in buf
+        private long inflated;   // section bytes inflated so far
+        private int rawBytes;    // the section's inflated size, per its header
+
+        Reader(@NonNull FileChannel in) throws IOException {
+            map = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (map.remaining() < MAGIC.length) throw new EOFException("missing header");
+            for (byte b : MAGIC) {
+                if (map.get() != b) throw new IOException("not a weight tracker snapshot");
+            }
+        }
+
+        /**
+         * Feed every row to {@code sink}. A section's checksum is verified before its rows
+         * are decoded, but a later section can still fail after earlier ones were fed.
+         */
+        void readAll(@NonNull Sink sink) throws IOException {
+            for (int sections = 0; ; sections++) {
+                if (map.remaining() < HEADER_BYTES) throw new EOFException("truncated snapshot");
+                int at = map.position();
+                byte tag = map.get();
+                int rows = map.getInt();
+                int rawBytes = map.getInt();
+                int packedBytes = map.getInt();
+                int checksum = map.getInt();
+                if (tag == END) {
+                    if (rows != sections || rawBytes != 0 || packedBytes != 0
+                            || checksum != (int) headersCrc.getValue() || map.hasRemaining()) {
+                        throw new IOException("corrupt snapshot: section headers failed their checksum");
+                    }
+                    return;
+                }
+                for (int i = at; i < at + HEADER_BYTES; i++) headersCrc.update(map.get(i));
+                if (rows < 0 || rawBytes < 0 || packedBytes < 0 || packedBytes > map.remaining()) {
+                    throw new IOException("corrupt snapshot section " + tag);
+                }
+                // checked straight off the mapped pages before a single row is decoded
+                ByteBuffer packed = map.duplicate();
+                packed.limit(map.position() + packedBytes);
+                crc.reset();
+                crc.update(packed);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("snapshot section " + tag + " failed its checksum");
+                }
+                if (tag < USERS || tag > WEIGHTS) {
+                    map.position(map.position() + packedBytes);
+                    continue;
+                }
+                beginSection(packedBytes, rawBytes);
+                switch (tag) {
+                    case USERS:    readUsers(rows, sink); break;
+                    case SETTINGS: readSettings(rows, sink); break;
+                    default:       readWeights(rows, sink); break;
+                }
+                endSection(tag);
+                rowsByTag[tag] = rows;
+            }
+        }
+
+        /** Release the inflater's native memory; safe to call more than once. */
+        void close() {
+            inflater.end();
+        }
+
+        int rows(byte tag) {
+            return rowsByTag[tag];
+        }
+
+        private void readUsers(int rows, @NonNull Sink sink) throws IOException {
+            long id = 0;
+            for (int i = 0; i < rows; i++) {
+                id += unzigzag(readVarLong());
+                sink.user(id, readString(), readString());
+            }
+        }
+
+        private void readSettings(int rows, @NonNull Sink sink) throws IOException {
+            long user = 0;
+            for (int i = 0; i < rows; i++) {
+                user += unzigzag(readVarLong());
+                String name = readString();
+                Object value;
+                int type = (int) readVarLong();
+                switch (type) {
+                    case TYPE_INTEGER: value = unzigzag(readVarLong()); break;
+                    case TYPE_REAL:    value = Double.longBitsToDouble(readRawLong()); break;
+                    case TYPE_TEXT:    value = readString(); break;
+                    case TYPE_BLOB:    value = readBytes(); break;
+                    default: throw new IOException("corrupt setting value type " + type);
+                }
+                sink.setting(user, name, value);
+            }
+        }
+
+        private void readWeights(int rows, @NonNull Sink sink) throws IOException {
+            long user = 0;
+            long day = 0;
+            long id = 0;
+            long cents = 0;
+            for (int i = 0; i < rows; i++) {
+                user += unzigzag(readVarLong());
+                day += unzigzag(readVarLong());
+                id += unzigzag(readVarLong());
+                long w = readVarLong();
+                double kg;
+                if (w == RAW_WEIGHT) {
+                    kg = Double.longBitsToDouble(readRawLong());
+                } else {
+                    cents += unzigzag(w >>> 1);
+                    kg = cents / 100.0;
+                }
+                sink.weight(user, id, (int) day, kg);
+            }
+        }
+
+        private void beginSection(int packedBytes, int rawBytes) {
+            this.rawBytes = rawBytes;
+            inflater.reset();
+            packedLeft = packedBytes;
+            pos = limit = 0;
+            inflated = 0;
+        }
+
+        /** The section must end exactly where its rows did, at its stored size. */
+        private void endSection(byte tag) throws IOException {
+            if (pos < limit || (!inflater.finished() && fill())
+                    || packedLeft > 0 || inflater.getRemaining() > 0 || inflated != rawBytes) {
+                throw new IOException("snapshot section " + tag + " does not match its rows");
+            }
+        }
+
+        /** Inflate the next bytes into buf; false once the section's stream has ended. */
+        private boolean fill() throws IOException {
+            try {
+                while (true) {
+                    if (inflater.needsInput() && packedLeft > 0) {
+                        int n = Math.min(packedLeft, input.length);
+                        map.get(input, 0, n);
+                        packedLeft -= n;
+                        inflater.setInput(input, 0, n);
+                    }
+                    int n = inflater.inflate(buf, 0, buf.length);
+                    if (n > 0) {
+                        inflated += n;
+                        pos = 0;
+                        limit = n;
+                        return true;
+                    }
+                    if (inflater.finished()) return false;
+                    if (inflater.needsInput() && packedLeft == 0) throw new EOFException("truncated snapshot section");
+                    if (inflater.needsDictionary()) throw new IOException("corrupt snapshot section");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("corrupt snapshot section", e);
+            }
+        }
+
+        private int readByte() throws IOException {
+            if (pos == limit && !fill()) throw new EOFException("truncated snapshot section");
+            return buf[pos++] & 0xFF;
+        }
+
+        private long readVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("corrupt varint in snapshot");
+        }
+
+        private long readRawLong() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) v = (v << 8) | readByte();
+            return v;
+        }
+
+        @NonNull
+        private String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        @NonNull
+        private byte[] readBytes() throws IOException {
+            long len = readVarLong();
+            if (len < 0 || len > rawBytes) throw new IOException("corrupt length in snapshot");
+            byte[] b = new byte[(int) len];
+            for (int off = 0; off < b.length; ) {
+                if (pos == limit && !fill()) throw new EOFException("truncated snapshot section");
+                int n = Math.min(limit - pos, b.length - off);
+                System.arraycopy(buf, pos, b, off, n);
+                pos += n;
+                off += n;
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Calendar date <-> days since 1970-01-01 (proleptic Gregorian), on plain ints.
+ * Same numbers as LocalDate.toEpochDay(), without creating a LocalDate per row.
+ * This is how weights.date is stored, so ordering and ranges are integer compares.
+ */
+public final class EpochDays {
+
+    /** Returned by parse() for anything that is not a real calendar date. */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    /** Characters written by format(): YYYY-MM-DD. */
+    public static final int ISO_LENGTH = 10;
+
+    private EpochDays() {
+    }
+
+    /**
+     * Parse user input such as "2025-08-19", "2025-8-9" or "2025/08/19" without allocating.
+     * Year is four digits; month and day are one or two; '-' or '/' separate them; surrounding
+     * whitespace is ignored. Returns INVALID for anything else, including impossible days
+     * like 2025-02-29.
+     */
+    public static int parse(@NonNull CharSequence s) {
+        return parse(s, 0, s.length());
+    }
+
+    /** Same as {@link #parse(CharSequence)} over s[start, end), e.g. one field of a CSV line. */
+    public static int parse(@NonNull CharSequence s, int start, int end) {
+        int i = start;
+        while (i < end && s.charAt(i) <= ' ') i++;
+        while (end > i && s.charAt(end - 1) <= ' ') end--;
+
+        // year: exactly four digits
+        if (end - i < 8) return INVALID;
+        int year = 0;
+        for (int k = 0; k < 4; k++) {
+            int d = digit(s.charAt(i++));
+            if (d < 0) return INVALID;
+            year = year * 10 + d;
+        }
+        char sep = s.charAt(i++);
+        if (sep != '-' && sep != '/') return INVALID;
+
+        // month: one or two digits, then the same separator
+        int month = digit(s.charAt(i++));
+        if (month < 0) return INVALID;
+        if (i < end && digit(s.charAt(i)) >= 0) month = month * 10 + digit(s.charAt(i++));
+        if (i >= end || s.charAt(i++) != sep) return INVALID;
+
+        // day: one or two digits, then the end
+        if (i >= end) return INVALID;
+        int day = digit(s.charAt(i++));
+        if (day < 0) return INVALID;
+        if (i < end && digit(s.charAt(i)) >= 0) day = day * 10 + digit(s.charAt(i++));
+        if (i != end) return INVALID;
+
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) return INVALID;
+        return of(year, month, day);
+    }
+
+    /** Write an epoch day as YYYY-MM-DD into {@code out} at {@code off}; returns ISO_LENGTH. */
+    public static int format(int epochDay, @NonNull char[] out, int off) {
+        int y = year(epochDay);
+        int m = month(epochDay);
+        int d = dayOfMonth(epochDay);
+        out[off] = (char) ('0' + (y / 1000) % 10);
+        out[off + 1] = (char) ('0' + (y / 100) % 10);
+        out[off + 2] = (char) ('0' + (y / 10) % 10);
+        out[off + 3] = (char) ('0' + y % 10);
+        out[off + 4] = '-';
+        out[off + 5] = (char) ('0' + m / 10);
+        out[off + 6] = (char) ('0' + m % 10);
+        out[off + 7] = '-';
+        out[off + 8] = (char) ('0' + d / 10);
+        out[off + 9] = (char) ('0' + d % 10);
+        return ISO_LENGTH;
+    }
+
+    /** YYYY-MM-DD as a String (for dialogs and other non-hot paths). */
+    @NonNull
+    public static String toIsoString(int epochDay) {
+        char[] buf = new char[ISO_LENGTH];
+        format(epochDay, buf, 0);
+        return new String(buf);
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    /** Days since 1970-01-01 for year/month(1-12)/day(1-31). Inputs are not validated. */
+    public static int of(int year, int month, int day) {
+        // shift the year to start in March so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;                                   // [0, 399]
+        int mp = (month + 9) % 12;                                 // March = 0
+        int doy = (153 * mp + 2) / 5 + day - 1;                    // [0, 365]
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;           // [0, 146096]
+        return era * 146097 + doe - 719468;
+    }
+
+    /** Year of an epoch day. */
+    public static int year(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        return yoe + era * 400 + (month <= 2 ? 1 : 0);
+    }
+
+    /** Month (1-12) of an epoch day. */
+    public static int month(int epochDay) {
+        int doy = dayOfMarchYear(epochDay);
+        int mp = (5 * doy + 2) / 153;
+        return mp < 10 ? mp + 3 : mp - 9;
+    }
+
+    /** Day of month (1-31) of an epoch day. */
+    public static int dayOfMonth(int epochDay) {
+        int doy = dayOfMarchYear(epochDay);
+        int mp = (5 * doy + 2) / 153;
+        return doy - (153 * mp + 2) / 5 + 1;
+    }
+
+    private static int dayOfMarchYear(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        return doe - (365 * yoe + yoe / 4 - yoe / 100);
+    }
+}
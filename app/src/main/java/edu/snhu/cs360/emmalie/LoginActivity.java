@@ -1,7 +1,6 @@
 package edu.snhu.cs360.emmalie;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.widget.Button;
@@ -13,21 +12,29 @@ import androidx.appcompat.app.AppCompatActivity;
 
 /**
  * Project 3 requirement: Check credentials against DB. Allow create account.
- * Persist the userId in SharedPreferences and continue to the SMS screen.
+ * Start the session and continue to the SMS screen; the user's data starts loading in the
+ * background right away. A returning session skips straight to the weights screen.
  */
 public class LoginActivity extends AppCompatActivity {
 
-    private static final String PREFS = "prefs";
-    private static final String KEY_USER_ID = "user_id";
-
-    private AppDatabaseHelper db;
+    private WeightRepository repo;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        WeightTrackerApp app = WeightTrackerApp.get(this);
+        if (savedInstanceState == null) app.startup().onLaunch();
+
+        // returning session: its first page is already being prefetched, go straight to it
+        if (app.sessionUserId() > 0) {
+            startActivity(new Intent(this, WeightsActivity.class));
+            finish();
+            return;
+        }
+
         setContentView(R.layout.activity_login);
 
-        db = new AppDatabaseHelper(this);
+        repo = new WeightRepository(app.db());
 
         EditText editUser = findViewById(R.id.nameText);
         EditText editPass = findViewById(R.id.editPassword);
@@ -41,14 +48,15 @@ public class LoginActivity extends AppCompatActivity {
                 Toast.makeText(this, R.string.login_missing, Toast.LENGTH_SHORT).show();
                 return;
             }
-            long userId = db.checkLogin(u, p);
-            if (userId > 0) {
-                saveUserId(userId);
-                startActivity(new Intent(this, SmsActivity.class));
-                finish();
-            } else {
-                Toast.makeText(this, R.string.login_failed, Toast.LENGTH_SHORT).show();
-            }
+            repo.checkLogin(u, p, userId -> {
+                if (userId != null && userId > 0) {
+                    WeightTrackerApp.get(this).startSession(userId);
+                    startActivity(new Intent(this, SmsActivity.class));
+                    finish();
+                } else {
+                    Toast.makeText(this, R.string.login_failed, Toast.LENGTH_SHORT).show();
+                }
+            });
         });
 
         btnCreate.setOnClickListener(v -> {
@@ -58,24 +66,28 @@ public class LoginActivity extends AppCompatActivity {
                 Toast.makeText(this, R.string.login_missing, Toast.LENGTH_SHORT).show();
                 return;
             }
-            long newId = db.createUser(u, p);
-            if (newId > 0) {
-                saveUserId(newId);
-                Toast.makeText(this, R.string.account_created, Toast.LENGTH_SHORT).show();
-                startActivity(new Intent(this, SmsActivity.class));
-                finish();
-            } else {
-                Toast.makeText(this, R.string.account_exists, Toast.LENGTH_SHORT).show();
-            }
+            repo.createUser(u, p, newId -> {
+                if (newId == null) {
+                    Toast.makeText(this, R.string.storage_error, Toast.LENGTH_SHORT).show();
+                } else if (newId > 0) {
+                    WeightTrackerApp.get(this).startSession(newId);
+                    Toast.makeText(this, R.string.account_created, Toast.LENGTH_SHORT).show();
+                    startActivity(new Intent(this, SmsActivity.class));
+                    finish();
+                } else {
+                    Toast.makeText(this, R.string.account_exists, Toast.LENGTH_SHORT).show();
+                }
+            });
         });
     }
 
-    private static String trim(@Nullable CharSequence cs) {
-        return cs == null ? "" : cs.toString().trim();
+    @Override
+    protected void onDestroy() {
+        if (repo != null) repo.close();
+        super.onDestroy();
     }
 
-    private void saveUserId(long id) {
-        SharedPreferences sp = getSharedPreferences(PREFS, MODE_PRIVATE);
-        sp.edit().putLong(KEY_USER_ID, id).apply();
+    private static String trim(@Nullable CharSequence cs) {
+        return cs == null ? "" : cs.toString().trim();
     }
 }
@@ -0,0 +1,250 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps a sliding window of a user's history resident, one keyset page at a time.
+ * Pages are loaded on demand as the list scrolls either way; once more than
+ * MAX_PAGES are resident the page furthest from the scroll direction is dropped,
+ * so memory stays bounded no matter how long the history is.
+ *
+ * The rows themselves live in the adapter's columnar store; this class only tracks
+ * page sizes and the edge rows needed to ask for the next page.
+ *
+ * The window can be limited to a date range with {@link #setRange}; every page is then
+ * read from that range only, so the first rows of any range arrive as fast as the newest.
+ *
+ * Batch edits patch the window in place ({@link #applyEdits}) rather than reloading it.
+ */
+public class PagedWeightSource {
+
+    /** Receives window changes on the main thread. */
+    public interface Listener {
+        void onRefreshed(@NonNull WeightStore firstPage);
+        void onAppended(@NonNull WeightStore olderRows);
+        void onPrepended(@NonNull WeightStore newerRows);
+        void onDropped(boolean fromHead, int count);
+        /** Rows of the window that were deleted or moved away. */
+        void onRowsRemoved(@NonNull List<AppDatabaseHelper.WeightEntry> rows);
+        /** Rows that now fall inside the window; the listener places them in order. */
+        void onRowsInserted(@NonNull List<AppDatabaseHelper.WeightEntry> rows);
+    }
+
+    public static final int PAGE_SIZE = 50;
+    public static final int MAX_PAGES = 5;
+    // start loading when the visible edge is this close to the end of the window
+    public static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    /**
+     * Edge rows of one resident page. The edges stay put when their rows are edited away:
+     * they are only keyset positions to page from.
+     */
+    private static final class Page {
+        final AppDatabaseHelper.WeightEntry newest;
+        final AppDatabaseHelper.WeightEntry oldest;
+        int size;
+
+        Page(@NonNull WeightStore rows) {
+            this(rows.entryAt(0), rows.entryAt(rows.size() - 1), rows.size());
+        }
+
+        Page(@NonNull AppDatabaseHelper.WeightEntry newest, @NonNull AppDatabaseHelper.WeightEntry oldest,
+             int size) {
+            this.newest = newest;
+            this.oldest = oldest;
+            this.size = size;
+        }
+    }
+
+    private final WeightRepository repo;
+    private final long userId;
+    private final Listener listener;
+
+    private final ArrayDeque<Page> pages = new ArrayDeque<>();
+    private int fromDay = AppDatabaseHelper.FIRST_DAY;
+    private int toDay = AppDatabaseHelper.LAST_DAY;
+    private boolean loading;
+    private boolean hasOlder;   // more rows exist past the tail of the window
+    private boolean hasNewer;   // rows were dropped from the head of the window
+
+    public PagedWeightSource(@NonNull WeightRepository repo, long userId, @NonNull Listener listener) {
+        this.repo = repo;
+        this.userId = userId;
+        this.listener = listener;
+    }
+
+    /** Reload the window from the newest row (after a write, or on first open). */
+    public void refresh() {
+        loading = true;
+        repo.loadOlder(userId, fromDay, toDay, null, PAGE_SIZE, rows -> {
+            if (rows != null) {
+                refreshWith(rows);
+            } else {
+                loading = false; // keep the window; the next refresh tries again
+            }
+        });
+    }
+
+    /**
+     * Show only rows dated within [fromDay, toDay] (AppDatabaseHelper.FIRST_DAY / LAST_DAY
+     * for an open end) and reload the window from the newest of them. Returns false, without
+     * reloading, when the range is unchanged.
+     */
+    public boolean setRange(int fromDay, int toDay) {
+        if (fromDay == this.fromDay && toDay == this.toDay) return false;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        refresh();
+        return true;
+    }
+
+    /** Start of the current range (AppDatabaseHelper.FIRST_DAY when open). */
+    public int fromDay() {
+        return fromDay;
+    }
+
+    /** End of the current range (AppDatabaseHelper.LAST_DAY when open). */
+    public int toDay() {
+        return toDay;
+    }
+
+    /** True when a date range is set. */
+    public boolean isFiltered() {
+        return fromDay != AppDatabaseHelper.FIRST_DAY || toDay != AppDatabaseHelper.LAST_DAY;
+    }
+
+    /** Reset the window to a newest page loaded elsewhere (e.g. prefetched at startup). */
+    public void refreshWith(@NonNull WeightStore rows) {
+        loading = false;
+        pages.clear();
+        hasNewer = false;
+        hasOlder = rows.size() == PAGE_SIZE;
+        if (rows.size() > 0) pages.addLast(new Page(rows));
+        listener.onRefreshed(rows);
+    }
+
+    /**
+     * Called from the scroll listener with the adapter positions currently on screen;
+     * loads the next page in whichever direction the user is approaching.
+     */
+    public void onVisibleRange(int firstVisible, int lastVisible, int itemCount) {
+        if (loading || firstVisible < 0) return;
+        if (hasOlder && lastVisible >= itemCount - PREFETCH_DISTANCE) {
+            loadOlder();
+        } else if (hasNewer && firstVisible < PREFETCH_DISTANCE) {
+            loadNewer();
+        }
+    }
+
+    /** The newest resident row, or null when the user has no history. */
+    @Nullable
+    public AppDatabaseHelper.WeightEntry newestResident() {
+        Page head = pages.peekFirst();
+        return head == null ? null : head.newest;
+    }
+
+    /** True when the window starts at the newest row in range. */
+    public boolean isAtHead() {
+        return !hasNewer;
+    }
+
+    /**
+     * Patch the window after a batch edit elsewhere: {@code removed} rows leave it and
+     * {@code added} rows that fall inside it (by position and range) join it, all without
+     * a query. A row edited in place appears in both lists.
+     */
+    public void applyEdits(@NonNull List<AppDatabaseHelper.WeightEntry> removed,
+                           @NonNull List<AppDatabaseHelper.WeightEntry> added) {
+        List<AppDatabaseHelper.WeightEntry> gone = new ArrayList<>(removed.size());
+        for (AppDatabaseHelper.WeightEntry e : removed) {
+            Page p = covers(e) ? pageFor(e) : null;
+            if (p == null || p.size == 0) continue;
+            p.size--;
+            gone.add(e);
+        }
+        List<AppDatabaseHelper.WeightEntry> joined = new ArrayList<>(added.size());
+        for (AppDatabaseHelper.WeightEntry e : added) {
+            if (!covers(e)) continue;
+            Page p = pageFor(e);
+            if (p == null) {
+                p = new Page(e, e, 0); // the window was empty, and this is all there is
+                pages.addLast(p);
+            }
+            p.size++;
+            joined.add(e);
+        }
+        for (Iterator<Page> it = pages.iterator(); it.hasNext(); ) {
+            if (it.next().size == 0) it.remove();
+        }
+        if (!gone.isEmpty()) listener.onRowsRemoved(gone);
+        if (!joined.isEmpty()) listener.onRowsInserted(joined);
+        if (pages.isEmpty() && (hasOlder || hasNewer)) refresh(); // edited the whole window away
+    }
+
+    /** True when a row at e's position is (or would be) resident. */
+    private boolean covers(@NonNull AppDatabaseHelper.WeightEntry e) {
+        if (e.day < fromDay || e.day > toDay) return false;
+        Page head = pages.peekFirst();
+        Page tail = pages.peekLast();
+        if (head == null) return !hasOlder && !hasNewer;
+        if (hasNewer && compare(e, head.newest) < 0) return false;
+        return !hasOlder || compare(e, tail.oldest) <= 0;
+    }
+
+    /** The page holding e's position: the first whose oldest edge is not newer than it. */
+    @Nullable
+    private Page pageFor(@NonNull AppDatabaseHelper.WeightEntry e) {
+        for (Page p : pages) {
+            if (compare(e, p.oldest) <= 0) return p;
+        }
+        return pages.peekLast();
+    }
+
+    /** History order (date DESC, _id DESC): negative when a comes before b. */
+    private static int compare(@NonNull AppDatabaseHelper.WeightEntry a, @NonNull AppDatabaseHelper.WeightEntry b) {
+        if (a.day != b.day) return a.day > b.day ? -1 : 1;
+        return Long.compare(b.id, a.id);
+    }
+
+    private void loadOlder() {
+        Page tail = pages.peekLast();
+        if (tail == null) return;
+        loading = true;
+        repo.loadOlder(userId, fromDay, toDay, tail.oldest, PAGE_SIZE, rows -> {
+            loading = false;
+            if (rows == null) return; // hasOlder still set: the next scroll retries
+            hasOlder = rows.size() == PAGE_SIZE;
+            if (rows.size() == 0) return;
+            pages.addLast(new Page(rows));
+            listener.onAppended(rows);
+            if (pages.size() > MAX_PAGES) {
+                listener.onDropped(true, pages.removeFirst().size);
+                hasNewer = true;
+            }
+        });
+    }
+
+    private void loadNewer() {
+        Page head = pages.peekFirst();
+        if (head == null) return;
+        loading = true;
+        repo.loadNewer(userId, fromDay, toDay, head.newest, PAGE_SIZE, rows -> {
+            loading = false;
+            if (rows == null) return;
+            hasNewer = rows.size() == PAGE_SIZE;
+            if (rows.size() == 0) return;
+            pages.addFirst(new Page(rows));
+            listener.onPrepended(rows);
+            if (pages.size() > MAX_PAGES) {
+                listener.onDropped(false, pages.removeLast().size);
+                hasOlder = true;
+            }
+        });
+    }
+}
@@ -0,0 +1,334 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency histograms (plus allocated bytes where the runtime can tell) for
+ * DB operations, row binding and list refreshes.
+ *
+ * Usage on one thread:   long t = PerfMetrics.start(); ... PerfMetrics.end("db.insertWeight", t);
+ * Across threads/async:  long t = PerfMetrics.mark();  ... PerfMetrics.since("ui.refreshList", t);
+ *
+ * Disabled (the default outside debuggable builds), start()/mark() are one volatile read
+ * returning 0 and end()/since() return right away. Histograms are log-linear (8 buckets per
+ * power of two, so quantiles are within ~12%) and lock-free. Dump with
+ * {@code adb shell dumpsys activity edu.snhu.cs360.emmalie/.WeightsActivity [--json] [--reset]}.
+ */
+public final class PerfMetrics {
+
+    private static volatile boolean enabled;
+    private static volatile boolean trackAllocations;
+
+    private static final Map<String, Histogram> metrics = new ConcurrentHashMap<>();
+    private static final AllocCounter alloc = AllocCounter.detect();
+
+    // per-thread stack of allocation baselines for start()/end(): {startToken, bytes} pairs
+    private static final ThreadLocal<long[]> allocStack = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1 + 2 * 16]; // [0] = depth
+        }
+    };
+
+    private PerfMetrics() {
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Also record bytes allocated per start()/end() span, when the runtime exposes them. */
+    public static void setTrackAllocations(boolean on) {
+        trackAllocations = on && alloc != null;
+    }
+
+    /** Begin a span that ends on this thread. Returns 0 when disabled. */
+    public static long start() {
+        if (!enabled) return 0;
+        long t = System.nanoTime();
+        if (trackAllocations) pushAlloc(t);
+        return t == 0 ? 1 : t;
+    }
+
+    /** End a span begun by start() on this thread. */
+    public static void end(@NonNull String name, long start) {
+        if (start == 0) return;
+        long nanos = System.nanoTime() - start;
+        long bytes = trackAllocations ? popAlloc(start) : -1;
+        histogram(name).record(nanos, bytes);
+    }
+
+    /** Begin a span that may end on another thread or after a callback. Returns 0 when disabled. */
+    public static long mark() {
+        if (!enabled) return 0;
+        long t = System.nanoTime();
+        return t == 0 ? 1 : t;
+    }
+
+    /** End a span begun by mark(). */
+    public static void since(@NonNull String name, long mark) {
+        if (mark == 0) return;
+        histogram(name).record(System.nanoTime() - mark, -1);
+    }
+
+    /** Record a duration measured elsewhere. */
+    public static void record(@NonNull String name, long nanos) {
+        if (!enabled) return;
+        histogram(name).record(nanos, -1);
+    }
+
+    public static void reset() {
+        metrics.clear();
+    }
+
+    @NonNull
+    private static Histogram histogram(@NonNull String name) {
+        Histogram h = metrics.get(name);
+        if (h == null) {
+            h = metrics.computeIfAbsent(name, Histogram::new);
+        }
+        return h;
+    }
+
+    @VisibleForTesting
+    static Histogram get(@NonNull String name) {
+        return metrics.get(name);
+    }
+
+    private static void pushAlloc(long token) {
+        long[] s = allocStack.get();
+        int depth = (int) s[0];
+        if (1 + 2 * depth + 1 >= s.length) return; // too deep; that span reports no bytes
+        s[1 + 2 * depth] = token;
+        s[2 + 2 * depth] = alloc.bytes();
+        s[0] = depth + 1;
+    }
+
+    private static long popAlloc(long token) {
+        long now = alloc.bytes();
+        long[] s = allocStack.get();
+        // unwind past spans that never ended (an exception skipped their end())
+        for (int depth = (int) s[0] - 1; depth >= 0; depth--) {
+            if (s[1 + 2 * depth] == token) {
+                s[0] = depth;
+                return Math.max(0, now - s[2 + 2 * depth] - alloc.overhead);
+            }
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------------
+    // reports
+    // ---------------------------------------------------------------------
+
+    /** dumpsys-style table, one line per metric, sorted by name. */
+    public static void dump(@NonNull PrintWriter out) {
+        out.println(String.format(Locale.US, "PerfMetrics (%s, allocations: %s)",
+                enabled ? "enabled" : "disabled", allocationSource()));
+        out.println(String.format(Locale.US, "%-28s %8s %10s %10s %10s %10s %10s %10s",
+                "name", "count", "p50", "p90", "p99", "max", "mean", "alloc/op"));
+        for (Histogram h : sorted()) {
+            long count = h.count();
+            if (count == 0) continue;
+            long allocPerOp = h.allocPerOp();
+            out.println(String.format(Locale.US, "%-28s %8d %10s %10s %10s %10s %10s %10s",
+                    h.name, count,
+                    duration(h.quantile(0.50)), duration(h.quantile(0.90)), duration(h.quantile(0.99)),
+                    duration(h.max.get()), duration(h.sum.sum() / count),
+                    allocPerOp < 0 ? "-" : allocPerOp + "B"));
+        }
+    }
+
+    /** The same numbers as JSON (durations in ns), for diffing between builds. */
+    public static void dumpJson(@NonNull PrintWriter out) {
+        out.print("{\"enabled\":" + enabled + ",\"allocations\":\"" + allocationSource() + "\",\"metrics\":[");
+        boolean first = true;
+        for (Histogram h : sorted()) {
+            long count = h.count();
+            if (count == 0) continue;
+            if (!first) out.print(',');
+            first = false;
+            out.print(String.format(Locale.US,
+                    "{\"name\":\"%s\",\"count\":%d,\"p50Ns\":%d,\"p90Ns\":%d,\"p99Ns\":%d,\"maxNs\":%d,\"meanNs\":%d,\"allocBytesPerOp\":%d}",
+                    h.name, count, h.quantile(0.50), h.quantile(0.90), h.quantile(0.99),
+                    h.max.get(), h.sum.sum() / count, h.allocPerOp()));
+        }
+        out.println("]}");
+    }
+
+    @NonNull
+    private static String allocationSource() {
+        if (!trackAllocations) return "off";
+        return alloc.perThread ? "per-thread" : "process-wide";
+    }
+
+    @NonNull
+    private static List<Histogram> sorted() {
+        List<Histogram> list = new ArrayList<>(metrics.values());
+        Collections.sort(list, (a, b) -> a.name.compareTo(b.name));
+        return list;
+    }
+
+    @NonNull
+    private static String duration(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format(Locale.US, "%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format(Locale.US, "%.1fms", nanos / 1e6);
+        return String.format(Locale.US, "%.2fs", nanos / 1e9);
+    }
+
+    // ---------------------------------------------------------------------
+    // histogram
+    // ---------------------------------------------------------------------
+
+    /** Lock-free log-linear histogram of nanoseconds: values below 8 exact, then 8 buckets per power of two. */
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int MAX_EXP = 42;    // ~73 minutes; longer spans land in the last bucket
+        static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB;
+
+        final String name;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder allocBytes = new LongAdder();
+        private final LongAdder allocSamples = new LongAdder();
+
+        Histogram(@NonNull String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long bytes) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(bucket(nanos));
+            sum.add(nanos);
+            long m;
+            while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+                // retry
+            }
+            if (bytes >= 0) {
+                allocBytes.add(bytes);
+                allocSamples.increment();
+            }
+        }
+
+        long count() {
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+            return n;
+        }
+
+        /** Value at quantile {@code q} (0..1): midpoint of the bucket holding it; the top rank is max. */
+        long quantile(double q) {
+            long total = count();
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            if (rank >= total) return max.get();
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(max.get(), (lowerBound(i) + lowerBound(i + 1) - 1) / 2);
+            }
+            return max.get();
+        }
+
+        long allocPerOp() {
+            long n = allocSamples.sum();
+            return n == 0 ? -1 : allocBytes.sum() / n;
+        }
+
+        static int bucket(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            if (exp > MAX_EXP) return BUCKETS - 1;
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return (exp - SUB_BITS + 1) * SUB + sub;
+        }
+
+        static long lowerBound(int bucket) {
+            if (bucket < SUB) return bucket;
+            int exp = bucket / SUB + SUB_BITS - 1;
+            int sub = bucket % SUB;
+            return (long) (SUB + sub) << (exp - SUB_BITS);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // allocation counter
+    // ---------------------------------------------------------------------
+
+    /**
+     * Bytes allocated so far, read reflectively so this class runs on both runtimes:
+     * per-thread on a JVM (com.sun.management.ThreadMXBean, i.e. local unit tests),
+     * process-wide on ART (Debug.getRuntimeStat "art.gc.bytes-allocated").
+     */
+    private static final class AllocCounter {
+        private final Object target;
+        private final Method method;
+        private final Object[] args;
+        final boolean perThread;
+        long overhead;            // bytes one read itself allocates (boxing, strings)
+
+        private AllocCounter(Object target, Method method, Object[] args, boolean perThread) {
+            this.target = target;
+            this.method = method;
+            this.args = args;
+            this.perThread = perThread;
+        }
+
+        static AllocCounter detect() {
+            AllocCounter c = null;
+            try {
+                Object bean = Class.forName("java.lang.management.ManagementFactory")
+                        .getMethod("getThreadMXBean").invoke(null);
+                Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+                if (type.isInstance(bean)) {
+                    c = new AllocCounter(bean, type.getMethod("getCurrentThreadAllocatedBytes"), null, true);
+                }
+            } catch (ReflectiveOperationException | LinkageError | SecurityException ignored) {
+                // not a JVM with the HotSpot management extensions
+            }
+            if (c == null) {
+                try {
+                    Method m = Class.forName("android.os.Debug").getMethod("getRuntimeStat", String.class);
+                    c = new AllocCounter(null, m, new Object[]{"art.gc.bytes-allocated"}, false);
+                } catch (ReflectiveOperationException | LinkageError | SecurityException ignored) {
+                    return null;
+                }
+            }
+            long a = c.bytes();
+            long b = c.bytes();
+            if (a < 0 || b < 0) return null;
+            c.overhead = Math.max(0, b - a);
+            return c;
+        }
+
+        long bytes() {
+            try {
+                Object v = method.invoke(target, args);
+                if (v instanceof Long) return (Long) v;
+                return v == null ? -1 : Long.parseLong(v.toString());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return -1;
+            }
+        }
+    }
+}
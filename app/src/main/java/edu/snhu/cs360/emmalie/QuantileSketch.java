@@ -0,0 +1,113 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Mergeable quantile sketch with a relative-error guarantee (the DDSketch bucketing):
+ * a value v lands in bucket ceil(log_gamma(v)), and a bucket reports the point within
+ * RELATIVE_ACCURACY of everything in it. At 0.1% that is under 0.1 kg at 100 kg, finer
+ * than the UI prints, and a user's history spans a few hundred buckets at most.
+ * Counts just add, so merging the sketches of disjoint ranges gives exactly the sketch of
+ * their union, in any order. Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    static final double RELATIVE_ACCURACY = 0.001;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    /** Values at or below this (and negative ones) are counted together and reported as 0. */
+    static final double MIN_INDEXABLE = 1e-3;
+
+    // counts[i] is the count of bucket offset + i; grown to cover the buckets in use
+    private int[] counts = new int[0];
+    private int offset;
+    private long zeros;
+    private long total;
+
+    public long count() {
+        return total;
+    }
+
+    public void add(double value) {
+        total++;
+        if (value <= MIN_INDEXABLE) {
+            zeros++;
+            return;
+        }
+        int bucket = bucket(value);
+        grow(bucket, bucket);
+        counts[bucket - offset]++;
+    }
+
+    /** Fold {@code other}'s values into this sketch. */
+    public void merge(@NonNull QuantileSketch other) {
+        if (other.total == 0) return;
+        total += other.total;
+        zeros += other.zeros;
+        if (other.counts.length == 0) return;
+        grow(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset - offset + i] += other.counts[i];
+        }
+    }
+
+    @NonNull
+    public QuantileSketch copy() {
+        QuantileSketch c = new QuantileSketch();
+        c.counts = counts.clone();
+        c.offset = offset;
+        c.zeros = zeros;
+        c.total = total;
+        return c;
+    }
+
+    /**
+     * The value of rank floor(q * (count - 1)) in sorted order (so the lower median for an
+     * even count), within RELATIVE_ACCURACY. NaN when empty.
+     */
+    public double quantile(double q) {
+        if (total == 0) return Double.NaN;
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (total - 1));
+        long seen = zeros;
+        if (rank < seen) return 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) return value(offset + i);
+        }
+        return value(offset + counts.length - 1); // not reached: the counts sum to total
+    }
+
+    static int bucket(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /** Within RELATIVE_ACCURACY of every value in (gamma^(bucket-1), gamma^bucket]. */
+    static double value(int bucket) {
+        return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+    }
+
+    // make counts cover buckets [lo, hi], with some room so a slow drift doesn't copy per add
+    private void grow(int lo, int hi) {
+        if (counts.length == 0) {
+            counts = new int[Math.max(16, hi - lo + 1)];
+            offset = lo - (counts.length - (hi - lo + 1)) / 2;
+            return;
+        }
+        int end = offset + counts.length;
+        if (lo >= offset && hi < end) return;
+        int slack = counts.length / 2;
+        int newOffset = lo < offset ? lo - slack : offset;
+        int newEnd = hi >= end ? hi + 1 + slack : end;
+        int[] bigger = new int[newEnd - newOffset];
+        System.arraycopy(counts, 0, bigger, offset - newOffset, counts.length);
+        counts = bigger;
+        offset = newOffset;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{n=" + total + ", buckets=" + counts.length + " from " + offset
+                + ", zeros=" + zeros + "}";
+    }
+}
@@ -0,0 +1,43 @@
+package edu.snhu.cs360.emmalie;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.telephony.SmsManager;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/** Sends alerts as SMS; long (batched) bodies go out as one multipart message. */
+public final class SmsAlertTransport implements AlertTransport {
+
+    private final Context context;
+
+    public SmsAlertTransport(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void send(@NonNull String destination, @NonNull String body) throws IOException {
+        // checked per send: the permission can be revoked while alerts wait in the outbox
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
+                != PackageManager.PERMISSION_GRANTED) {
+            throw new IOException("SEND_SMS not granted");
+        }
+        SmsManager sms = context.getSystemService(SmsManager.class);
+        if (sms == null) throw new IOException("no SmsManager");
+        try {
+            ArrayList<String> parts = sms.divideMessage(body);
+            if (parts.size() == 1) {
+                sms.sendTextMessage(destination, null, body, null, null);
+            } else {
+                sms.sendMultipartTextMessage(destination, null, parts, null, null);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("SMS send failed", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.snhu.cs360.emmalie;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Times each launch from its start to the first frame that shows history rows
+ * ("time to first row"), with the database-open and first-page marks in between.
+ * A cold launch starts at process start; a later launch in the same process starts when
+ * the launcher activity is created again. One log line per launch, plus reportFullyDrawn().
+ */
+public final class StartupTimer {
+
+    private static final String TAG = "Startup";
+
+    // written by the pre-warm thread, read on the main thread
+    private volatile long launchStart = Process.getStartUptimeMillis();
+    private volatile boolean cold = true;
+    private volatile long dbReadyAt = -1;
+    private volatile long firstPageAt = -1;
+    private volatile boolean reported;
+    private volatile long lastTimeToFirstRow = -1;
+
+    /** The launcher activity was created. Starts a new (warm) launch if the last one was reported. */
+    void onLaunch() {
+        if (!reported) return; // still timing the cold start
+        launchStart = SystemClock.uptimeMillis();
+        cold = false;
+        dbReadyAt = -1;
+        firstPageAt = -1;
+        reported = false;
+    }
+
+    void markDbReady() {
+        if (dbReadyAt < 0) dbReadyAt = SystemClock.uptimeMillis();
+    }
+
+    void markFirstPage() {
+        if (firstPageAt < 0) firstPageAt = SystemClock.uptimeMillis();
+    }
+
+    /** The first frame with history rows was drawn. Only the first call per launch counts. */
+    void onFirstRowsDrawn(@NonNull Activity activity) {
+        if (reported) return;
+        reported = true;
+        long now = SystemClock.uptimeMillis();
+        lastTimeToFirstRow = now - launchStart;
+        PerfMetrics.record(cold ? "startup.coldFirstRow" : "startup.warmFirstRow", lastTimeToFirstRow * 1_000_000);
+        Log.i(TAG, String.format(Locale.US, "%s launch: first row %d ms (db %s, first page %s)",
+                cold ? "cold" : "warm", lastTimeToFirstRow, since(dbReadyAt), since(firstPageAt)));
+        activity.reportFullyDrawn();
+    }
+
+    /** Time to first row of the last reported launch in ms, or -1. */
+    public long lastTimeToFirstRow() {
+        return lastTimeToFirstRow;
+    }
+
+    @NonNull
+    private String since(long mark) {
+        return mark < 0 ? "-" : (mark - launchStart) + " ms";
+    }
+}
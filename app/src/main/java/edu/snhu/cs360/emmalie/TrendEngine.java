@@ -0,0 +1,197 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Running trend for one user's history:
+ *  - an exponentially smoothed weight (EMA over entries in (date, _id) order)
+ *  - a least-squares line through all (day, kg) points
+ * Appending the newest entry is O(1). Inserting, editing or deleting an older entry only
+ * re-smooths the suffix after it; the least-squares sums are order-free and never rescan.
+ * Not thread-safe; AppDatabaseHelper guards each engine and hands out Trend snapshots.
+ */
+public final class TrendEngine {
+
+    /** Weight of each new entry in the smoothed value. */
+    static final double ALPHA = 0.1;
+
+    /** Projections further out than this are reported as "no projection". */
+    static final int MAX_PROJECTION_DAYS = 10 * 366;
+
+    /** Immutable view of the trend at one point in time. */
+    public static final class Trend {
+        public final int count;
+        public final int latestDay;        // EpochDays.INVALID when count == 0
+        public final double smoothedKg;    // NaN when count == 0
+        public final double slopeKgPerDay; // NaN with fewer than two distinct days
+
+        Trend(int count, int latestDay, double smoothedKg, double slopeKgPerDay) {
+            this.count = count;
+            this.latestDay = latestDay;
+            this.smoothedKg = smoothedKg;
+            this.slopeKgPerDay = slopeKgPerDay;
+        }
+
+        /**
+         * Epoch day the smoothed weight reaches {@code goalKg} if the fitted slope holds;
+         * latestDay when it is already there, EpochDays.INVALID when the trend is flat,
+         * heading away from the goal, or more than MAX_PROJECTION_DAYS out.
+         */
+        public int projectGoalDay(double goalKg) {
+            if (count == 0 || Double.isNaN(goalKg)) return EpochDays.INVALID;
+            double need = goalKg - smoothedKg;
+            if (Math.abs(need) < 1e-4) return latestDay;
+            if (Double.isNaN(slopeKgPerDay) || slopeKgPerDay == 0) return EpochDays.INVALID;
+            double days = need / slopeKgPerDay;
+            if (days < 0 || days > MAX_PROJECTION_DAYS) return EpochDays.INVALID;
+            return latestDay + (int) Math.ceil(days);
+        }
+    }
+
+    // entries oldest first, sorted by (day, id); ema[i] is the smoothed value after entry i
+    private long[] ids = new long[16];
+    private int[] days = new int[16];
+    private double[] kg = new double[16];
+    private double[] ema = new double[16];
+    private int size;
+
+    // least-squares sums over x = day - origin (a fixed origin keeps the sums small)
+    private boolean hasOrigin;
+    private int origin;
+    private double sx, sy, sxx, sxy;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add an entry; O(1) when it is the newest, otherwise re-smooths the entries after it.
+     * Adding an entry that is already present (a load raced the write) is a no-op.
+     */
+    public void add(long id, int day, double weightKg) {
+        int at = insertionPoint(day, id);
+        if (at < size && days[at] == day && ids[at] == id) return;
+        insertAt(at, id, day, weightKg);
+        addToSums(day, weightKg, +1);
+        resmoothFrom(at);
+    }
+
+    /** Remove the entry with this id and day; false when it is not present. */
+    public boolean remove(long id, int day) {
+        int at = indexOf(day, id);
+        if (at < 0) return false;
+        addToSums(day, kg[at], -1);
+        removeAt(at);
+        if (size == 0) {
+            // nothing left: drop accumulated rounding along with the origin
+            sx = sy = sxx = sxy = 0;
+            hasOrigin = false;
+        }
+        resmoothFrom(at);
+        return true;
+    }
+
+    /** Move/re-weigh an entry; re-smooths once from the earlier of the two positions. */
+    public boolean update(long id, int oldDay, int newDay, double weightKg) {
+        int from = indexOf(oldDay, id);
+        if (from < 0) return false;
+        addToSums(oldDay, kg[from], -1);
+        removeAt(from);
+        int to = insertionPoint(newDay, id);
+        insertAt(to, id, newDay, weightKg);
+        addToSums(newDay, weightKg, +1);
+        resmoothFrom(Math.min(from, to));
+        return true;
+    }
+
+    @NonNull
+    public Trend snapshot() {
+        if (size == 0) return new Trend(0, EpochDays.INVALID, Double.NaN, Double.NaN);
+        double n = size;
+        double den = n * sxx - sx * sx;
+        double slope = den > 1e-9 * n * n ? (n * sxy - sx * sy) / den : Double.NaN;
+        return new Trend(size, days[size - 1], ema[size - 1], slope);
+    }
+
+    // ---------------------------------------------------------------------
+    // internals
+    // ---------------------------------------------------------------------
+
+    private void addToSums(int day, double w, int sign) {
+        if (!hasOrigin) {
+            origin = day;
+            hasOrigin = true;
+        }
+        double x = day - origin;
+        sx += sign * x;
+        sy += sign * w;
+        sxx += sign * x * x;
+        sxy += sign * x * w;
+    }
+
+    /** Recompute ema[from..size) from ema[from - 1]. */
+    private void resmoothFrom(int from) {
+        double prev = from > 0 ? ema[from - 1] : Double.NaN;
+        for (int i = from; i < size; i++) {
+            prev = i == 0 ? kg[0] : prev + ALPHA * (kg[i] - prev);
+            ema[i] = prev;
+        }
+    }
+
+    /** Index of the first entry that does not sort before (day, id). */
+    private int insertionPoint(int day, long id) {
+        // fast path: the newest entry goes on the end
+        if (size == 0 || compare(days[size - 1], ids[size - 1], day, id) < 0) return size;
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(days[mid], ids[mid], day, id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int indexOf(int day, long id) {
+        int at = insertionPoint(day, id);
+        return at < size && days[at] == day && ids[at] == id ? at : -1;
+    }
+
+    private static int compare(int dayA, long idA, int dayB, long idB) {
+        if (dayA != dayB) return dayA < dayB ? -1 : 1;
+        return Long.compare(idA, idB);
+    }
+
+    private void insertAt(int at, long id, int day, double w) {
+        if (size == ids.length) {
+            int cap = size * 2;
+            ids = Arrays.copyOf(ids, cap);
+            days = Arrays.copyOf(days, cap);
+            kg = Arrays.copyOf(kg, cap);
+            ema = Arrays.copyOf(ema, cap);
+        }
+        int tail = size - at;
+        if (tail > 0) {
+            System.arraycopy(ids, at, ids, at + 1, tail);
+            System.arraycopy(days, at, days, at + 1, tail);
+            System.arraycopy(kg, at, kg, at + 1, tail);
+            System.arraycopy(ema, at, ema, at + 1, tail);
+        }
+        ids[at] = id;
+        days[at] = day;
+        kg[at] = w;
+        size++;
+    }
+
+    private void removeAt(int at) {
+        int tail = size - at - 1;
+        if (tail > 0) {
+            System.arraycopy(ids, at + 1, ids, at, tail);
+            System.arraycopy(days, at + 1, days, at, tail);
+            System.arraycopy(kg, at + 1, kg, at, tail);
+            System.arraycopy(ema, at + 1, ema, at, tail);
+        }
+        size--;
+    }
+}
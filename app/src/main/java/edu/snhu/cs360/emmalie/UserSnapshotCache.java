@@ -0,0 +1,154 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Whole-history snapshots of recently active users, so switching back to one (shared
+ * devices where people log in and out all day) needs no history query at all.
+ *  - bounded by bytes, not users: a long history takes as much room as many short ones
+ *  - least recently used snapshots are evicted first
+ *  - single-row writes patch the snapshot in place; bulk writes drop it
+ *  - callers always get copies, so the cached arrays are never shared with a view
+ * Thread-safe: every method locks the cache, and the copies are made under that lock.
+ */
+final class UserSnapshotCache {
+
+    // ColumnarWeightStore keeps a long id, an int day and a double weight per row (counted
+    // by capacity, so the slack a patch leaves when the arrays grow is charged too)
+    static final int BYTES_PER_ROW = 8 + 4 + 8;
+    // the snapshot, the store and its three array headers
+    static final int BYTES_PER_SNAPSHOT = 128;
+
+    private final LruCache<Long, ColumnarWeightStore> snapshots;
+    // bumped by every write, cached user or not; see writeMark()/put()
+    private long writes;
+
+    UserSnapshotCache(int maxBytes) {
+        snapshots = new LruCache<Long, ColumnarWeightStore>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull Long userId, @NonNull ColumnarWeightStore history) {
+                return bytesFor(history.capacity());
+            }
+        };
+    }
+
+    static int bytesFor(int rows) {
+        return BYTES_PER_SNAPSHOT + rows * BYTES_PER_ROW;
+    }
+
+    /** A copy of the user's whole history, newest first, or null when not cached. */
+    @Nullable
+    synchronized ColumnarWeightStore history(long userId) {
+        ColumnarWeightStore h = snapshots.get(userId);
+        return h == null ? null : h.copy();
+    }
+
+    /** A copy of the user's newest {@code limit} rows, or null when not cached. */
+    @Nullable
+    synchronized ColumnarWeightStore newest(long userId, int limit) {
+        ColumnarWeightStore h = snapshots.get(userId);
+        if (h == null) return null;
+        int n = Math.min(limit, h.size());
+        ColumnarWeightStore out = new ColumnarWeightStore(userId, limit);
+        for (int i = 0; i < n; i++) out.append(h.idAt(i), h.dayAt(i), h.kgAt(i));
+        return out;
+    }
+
+    /** Take before reading a history to cache; put() refuses it if a write lands in between. */
+    synchronized long writeMark() {
+        return writes;
+    }
+
+    /**
+     * Cache a trimmed copy of a whole history read after {@code writeMark}. Dropped when a
+     * write happened since (the read may have missed it) or when it is too large to keep.
+     */
+    synchronized void put(long userId, @NonNull ColumnarWeightStore history, long writeMark) {
+        if (writeMark != writes) return;
+        snapshots.put(userId, history.copy());
+    }
+
+    // Patches re-put the snapshot: LruCache needs sizeOf() to stay fixed while an entry is in.
+
+    synchronized void onInserted(long userId, long id, int day, double kg) {
+        writes++;
+        ColumnarWeightStore h = snapshots.remove(userId);
+        if (h == null) return;
+        h.add(id, day, kg);
+        snapshots.put(userId, h);
+    }
+
+    synchronized void onUpdated(long userId, long id, int oldDay, int newDay, double kg) {
+        writes++;
+        ColumnarWeightStore h = snapshots.remove(userId);
+        if (h == null) return;
+        h.remove(id, oldDay);
+        h.add(id, newDay, kg);
+        snapshots.put(userId, h);
+    }
+
+    synchronized void onDeleted(long userId, long id, int day) {
+        writes++;
+        ColumnarWeightStore h = snapshots.remove(userId);
+        if (h == null) return;
+        h.remove(id, day);
+        snapshots.put(userId, h);
+    }
+
+    /** Drop a user's snapshot (after bulk writes that bypass the CRUD methods). */
+    synchronized void invalidate(long userId) {
+        writes++;
+        snapshots.remove(userId);
+    }
+
+    /** Drop every snapshot (after the whole database was replaced). */
+    synchronized void clear() {
+        writes++;
+        snapshots.evictAll();
+    }
+
+    /**
+     * Give memory back on an onTrimMemory() level: keep the most recent half while the UI
+     * is merely hidden, drop everything once the process is in the background LRU list.
+     */
+    synchronized void trim(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            snapshots.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            snapshots.trimToSize(snapshots.maxSize() / 2);
+        }
+    }
+
+    synchronized int sizeBytes() {
+        return snapshots.size();
+    }
+
+    synchronized int maxBytes() {
+        return snapshots.maxSize();
+    }
+
+    synchronized int hitCount() {
+        return snapshots.hitCount();
+    }
+
+    synchronized int missCount() {
+        return snapshots.missCount();
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        int hits = snapshots.hitCount();
+        int lookups = hits + snapshots.missCount();
+        return String.format(Locale.US,
+                "UserSnapshotCache: %d users, %d/%d KiB, %d hits / %d lookups (%d%%), %d evicted",
+                snapshots.snapshot().size(), snapshots.size() / 1024, snapshots.maxSize() / 1024,
+                hits, lookups, lookups == 0 ? 0 : 100 * hits / lookups, snapshots.evictionCount());
+    }
+}
@@ -1,6 +1,8 @@
 package edu.snhu.cs360.emmalie;
 
 import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,50 +10,198 @@ import android.widget.Button;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
-import java.util.Locale;
-import java.util.function.Function;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * RecyclerView adapter for showing weight entries (date + weight) with edit/delete actions.
  * Rows use layout: res/layout/item_weight.xml
+ * Item ids are stable (WeightEntry.id); full-list updates are diffed off the main thread
+ * so only the rows that actually changed are rebound and animated.
+ * Rows are held in a ColumnarWeightStore and bound straight from its columns; a
+ * WeightEntry is only created when a row's edit/delete button is tapped. Click listeners
+ * are installed once per view holder and find their row by adapter position, so binding
+ * a row allocates nothing.
+ * Long-press starts multi-select: taps then toggle rows, the per-row buttons are disabled,
+ * and the selection (kept by id, so it survives paging) is read with {@link #selection()}.
  */
 public class WeightAdapter extends RecyclerView.Adapter<WeightAdapter.VH> {
 
     public interface OnRowActionListener {
         void onEdit(@NonNull AppDatabaseHelper.WeightEntry entry);
         void onDelete(@NonNull AppDatabaseHelper.WeightEntry entry);
+        /** Multi-select started or changed; 0 when it ended. */
+        void onSelectionChanged(int count);
     }
 
+    // rebind only the selected state (and the buttons' enabled state)
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    /**
+     * Recycled rows to keep (one view type). The default of 5 is less than a screen, so
+     * a page dropped or a fling back up re-inflated rows; this holds about two screens.
+     */
+    static final int RECYCLED_ROWS = 24;
+    // rows just scrolled off, rebound without going through the pool (default 2)
+    static final int CACHED_ROWS = 4;
+
+    // one background thread shared by all adapters; diffs are short and rare
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "weight-diff");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
     private final OnRowActionListener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
 
     // Data is always kept in kg (as stored in DB).
-    private final List<AppDatabaseHelper.WeightEntry> items = new ArrayList<>();
+    private ColumnarWeightStore items = new ColumnarWeightStore(0);
+
+    // bumped by every submitList(); a diff result only applies if it is still the latest
+    private int submitGeneration;
+    private boolean diffPending;
+    // window edits that arrived while a diff was running; replayed once it lands
+    private final ArrayDeque<Runnable> afterDiff = new ArrayDeque<>();
+
+    // selected rows, in history order; empty when not selecting
+    private final ColumnarWeightStore selected = new ColumnarWeightStore(0);
 
     // Formatter provided by the Activity (switchable between kg/lbs).
     // Default is kg so this works even before the Activity sets one.
-    private Function<Double, String> unitFormatter = kg -> String.format(Locale.US, "%.1f kg", kg);
+    private WeightFormatter unitFormatter = WeightFormatter.KG;
 
     public WeightAdapter(@NonNull OnRowActionListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     /** Allow the Activity to set how we print a value in kg (e.g., "72.0 kg" or "158.7 lbs"). */
     @SuppressLint("NotifyDataSetChanged")
-    public void setUnitFormatter(@NonNull Function<Double, String> formatter) {
+    public void setUnitFormatter(@NonNull WeightFormatter formatter) {
+        if (formatter == unitFormatter) return;
         this.unitFormatter = formatter;
         notifyDataSetChanged();
     }
 
-    /** Replace all rows (called after inserts/updates/deletes). */
-    @SuppressLint("NotifyDataSetChanged")
-    public void submitList(@NonNull List<AppDatabaseHelper.WeightEntry> newItems) {
-        items.clear();
-        items.addAll(newItems);
-        notifyDataSetChanged(); // simple & safe; list is small
+    /**
+     * Replace all rows (called after inserts/updates/deletes). The diff against the
+     * current rows runs in the background; a newer submit supersedes an older one.
+     */
+    public void submitList(@NonNull WeightStore newItems) {
+        final int gen = ++submitGeneration;
+        final ColumnarWeightStore oldSnapshot = items.copy();
+        final ColumnarWeightStore newSnapshot = new ColumnarWeightStore(newItems.userId(), newItems.size());
+        newSnapshot.insertAll(0, newItems);
+        diffPending = true;
+        afterDiff.clear(); // edits to the window being replaced no longer apply
+
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result =
+                    DiffUtil.calculateDiff(new EntryDiff(oldSnapshot, newSnapshot), false);
+            main.post(() -> {
+                if (gen != submitGeneration) return; // superseded
+                items = newSnapshot;
+                result.dispatchUpdatesTo(this);
+                diffPending = false;
+                while (!afterDiff.isEmpty()) afterDiff.removeFirst().run();
+            });
+        });
+    }
+
+    // --- paged window updates (see PagedWeightSource) ---
+
+    /** Add older rows below the current window. */
+    public void appendRows(@NonNull WeightStore rows) {
+        if (diffPending) {
+            afterDiff.addLast(() -> appendRows(rows));
+            return;
+        }
+        int start = items.size();
+        items.insertAll(start, rows);
+        notifyItemRangeInserted(start, rows.size());
+    }
+
+    /** Add newer rows above the current window. */
+    public void prependRows(@NonNull WeightStore rows) {
+        if (diffPending) {
+            afterDiff.addLast(() -> prependRows(rows));
+            return;
+        }
+        items.insertAll(0, rows);
+        notifyItemRangeInserted(0, rows.size());
+    }
+
+    /** Drop {@code count} rows from the top (fromHead) or bottom of the window. */
+    public void dropRows(boolean fromHead, int count) {
+        if (diffPending) {
+            afterDiff.addLast(() -> dropRows(fromHead, count));
+            return;
+        }
+        int start = fromHead ? 0 : items.size() - count;
+        items.removeRange(start, start + count);
+        notifyItemRangeRemoved(start, count);
+    }
+
+    /** Take out rows that were deleted or moved (no diff: they are located by id). */
+    public void removeRows(@NonNull List<AppDatabaseHelper.WeightEntry> rows) {
+        if (diffPending) {
+            afterDiff.addLast(() -> removeRows(rows));
+            return;
+        }
+        for (AppDatabaseHelper.WeightEntry e : rows) {
+            int at = items.remove(e.id, e.day);
+            if (at >= 0) notifyItemRemoved(at);
+        }
+    }
+
+    /** Put rows into their place in date order. */
+    public void insertRows(@NonNull List<AppDatabaseHelper.WeightEntry> rows) {
+        if (diffPending) {
+            afterDiff.addLast(() -> insertRows(rows));
+            return;
+        }
+        for (AppDatabaseHelper.WeightEntry e : rows) {
+            if (items.indexOf(e.id, e.day) >= 0) continue;
+            notifyItemInserted(items.add(e.id, e.day, e.weight));
+        }
+    }
+
+    // --- multi-select ---
+
+    public boolean isSelecting() {
+        return selected.size() > 0;
+    }
+
+    /** The selected rows (a copy), newest first. */
+    @NonNull
+    public ColumnarWeightStore selection() {
+        return selected.copy();
+    }
+
+    public void clearSelection() {
+        if (!isSelecting()) return;
+        selected.clear();
+        notifyItemRangeChanged(0, items.size(), PAYLOAD_SELECTION);
+        listener.onSelectionChanged(0);
+    }
+
+    private void toggle(int pos) {
+        boolean wasSelecting = isSelecting();
+        long id = items.idAt(pos);
+        int day = items.dayAt(pos);
+        if (selected.remove(id, day) < 0) selected.add(id, day, items.kgAt(pos));
+        if (wasSelecting != isSelecting()) {
+            notifyItemRangeChanged(0, items.size(), PAYLOAD_SELECTION); // buttons on/off everywhere
+        } else {
+            notifyItemChanged(pos, PAYLOAD_SELECTION);
+        }
+        listener.onSelectionChanged(selected.size());
     }
 
     @NonNull
@@ -59,18 +209,57 @@ public class WeightAdapter extends RecyclerView.Adapter<WeightAdapter.VH> {
     public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View v = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_weight, parent, false);
-        return new VH(v);
+        VH holder = new VH(v);
+        // once per holder, not per bind: the row is whatever the holder shows when tapped
+        holder.btnEdit.setOnClickListener(b -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) listener.onEdit(items.entryAt(pos));
+        });
+        holder.btnDelete.setOnClickListener(b -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) listener.onDelete(items.entryAt(pos));
+        });
+        holder.itemView.setOnLongClickListener(row -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos == RecyclerView.NO_POSITION) return false;
+            toggle(pos);
+            return true;
+        });
+        holder.itemView.setOnClickListener(row -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION && isSelecting()) toggle(pos);
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        AppDatabaseHelper.WeightEntry row = items.get(position);
+        long perf = PerfMetrics.start();
+        EpochDays.format(items.dayAt(position), holder.dateChars, 0);
+        holder.textDate.setText(holder.dateChars, 0, EpochDays.ISO_LENGTH);
+        int len = unitFormatter.format(items.kgAt(position), holder.weightChars);
+        holder.textWeight.setText(holder.weightChars, 0, len);
+        bindSelection(holder, position);
+        PerfMetrics.end("ui.bindRow", perf);
+    }
 
-        holder.textDate.setText(row.date);
-        holder.textWeight.setText(unitFormatter.apply(row.weight));
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        for (Object p : payloads) {
+            if (p != PAYLOAD_SELECTION) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        if (payloads.isEmpty()) onBindViewHolder(holder, position);
+        else bindSelection(holder, position);
+    }
 
-        holder.btnEdit.setOnClickListener(v -> listener.onEdit(row));
-        holder.btnDelete.setOnClickListener(v -> listener.onDelete(row));
+    private void bindSelection(@NonNull VH holder, int position) {
+        boolean selecting = isSelecting();
+        holder.itemView.setActivated(selecting && selected.indexOf(items.idAt(position), items.dayAt(position)) >= 0);
+        holder.btnEdit.setEnabled(!selecting);
+        holder.btnDelete.setEnabled(!selecting);
     }
 
     @Override
@@ -78,12 +267,52 @@ public class WeightAdapter extends RecyclerView.Adapter<WeightAdapter.VH> {
         return items.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return items.idAt(position);
+    }
+
+    /** Rows are the same item when their _id matches; contents compare date + weight. */
+    static final class EntryDiff extends DiffUtil.Callback {
+        private final WeightStore oldList;
+        private final WeightStore newList;
+
+        EntryDiff(@NonNull WeightStore oldList, @NonNull WeightStore newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPos, int newPos) {
+            return oldList.idAt(oldPos) == newList.idAt(newPos);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPos, int newPos) {
+            return oldList.kgAt(oldPos) == newList.kgAt(newPos)
+                    && oldList.dayAt(oldPos) == newList.dayAt(newPos);
+        }
+    }
+
     /** View holder for a single row. */
     public static class VH extends RecyclerView.ViewHolder {
         final TextView textDate;
         final TextView textWeight;
         final Button btnEdit;
         final Button btnDelete;
+        // reused for every bind; TextView keeps a wrapper around it instead of copying
+        final char[] weightChars = new char[WeightFormatter.MAX_CHARS];
+        final char[] dateChars = new char[EpochDays.ISO_LENGTH];
 
         public VH(@NonNull View itemView) {
             super(itemView);
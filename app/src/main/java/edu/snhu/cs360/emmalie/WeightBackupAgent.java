@@ -0,0 +1,91 @@
+package edu.snhu.cs360.emmalie;
+
+import android.app.backup.BackupAgent;
+import android.app.backup.BackupDataInput;
+import android.app.backup.BackupDataOutput;
+import android.app.backup.FullBackupDataOutput;
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Auto Backup through a DatabaseSnapshot. Just before the platform copies the app's files,
+ * the database is written to one compact snapshot file, and backup_rules.xml /
+ * data_extraction_rules.xml include only that file: the .db itself (indexes, rollups,
+ * free pages) is never uploaded. After a restore the snapshot is loaded and deleted.
+ * Full backup and restore may start the process in restricted mode with the base
+ * Application class, so the agent then opens (and closes) a helper of its own.
+ */
+public class WeightBackupAgent extends BackupAgent {
+
+    private static final String TAG = "WeightBackupAgent";
+
+    /** Must match the path in backup_rules.xml and data_extraction_rules.xml. */
+    @NonNull
+    static File snapshotFile(@NonNull Context context) {
+        return new File(new File(context.getFilesDir(), "backup"), "weights.wts");
+    }
+
+    // key/value backup is not used (fullBackupOnly)
+    @Override
+    public void onBackup(ParcelFileDescriptor oldState, BackupDataOutput data, ParcelFileDescriptor newState) {
+    }
+
+    @Override
+    public void onRestore(BackupDataInput data, int appVersionCode, ParcelFileDescriptor newState) {
+    }
+
+    @Override
+    public void onFullBackup(FullBackupDataOutput data) throws IOException {
+        File file = snapshotFile(this);
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        AppDatabaseHelper db = db();
+        DatabaseSnapshot.Result r;
+        try {
+            r = new DatabaseSnapshot(db).write(file);
+        } finally {
+            release(db);
+        }
+        Log.i(TAG, "backing up " + r.weights + " weights of " + r.users + " users in " + r.bytes + " bytes");
+        try {
+            super.onFullBackup(data);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    @Override
+    public void onRestoreFinished() {
+        File file = snapshotFile(this);
+        if (!file.exists()) return;
+        AppDatabaseHelper db = db();
+        try {
+            DatabaseSnapshot.Result r = new DatabaseSnapshot(db).restore(file);
+            Log.i(TAG, "restored " + r.weights + " weights of " + r.users + " users");
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "snapshot restore failed; the database was left as it was", e);
+        } finally {
+            release(db);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    // The app's shared helper when the app is running normally, else one for this agent only.
+    @NonNull
+    private AppDatabaseHelper db() {
+        Context app = getApplicationContext();
+        return app instanceof WeightTrackerApp ? ((WeightTrackerApp) app).db() : new AppDatabaseHelper(this);
+    }
+
+    private void release(@NonNull AppDatabaseHelper db) {
+        if (!(getApplicationContext() instanceof WeightTrackerApp)) db.close();
+    }
+}
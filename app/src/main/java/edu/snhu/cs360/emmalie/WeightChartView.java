@@ -0,0 +1,289 @@
+package edu.snhu.cs360.emmalie;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Line chart of weight over time for the whole history.
+ *  - draws at most ~one point per pixel column, picked by ChartDownsampler (LTTB) at the
+ *    level that matches the current zoom; levels are cached and patched on writes
+ *  - pinch to zoom, drag to pan, double-tap to fit the whole history
+ *  - onDraw only fills preallocated buffers (sized in onSizeChanged), so it never allocates
+ */
+public class WeightChartView extends View {
+
+    private static final int MIN_SPAN_DAYS = 7;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    @Nullable
+    private ColumnarWeightStore rows;
+    @Nullable
+    private ChartDownsampler sampler;
+    private WeightFormatter formatter = WeightFormatter.KG;
+
+    // visible window in (fractional) epoch days
+    private double viewStart;
+    private double viewSpan = MIN_SPAN_DAYS;
+    private boolean fitAll = true;   // keep showing everything until the user zooms/pans
+
+    // draw buffers: 4 floats per line segment, label text
+    private float[] segments = new float[0];
+    private final char[] labelChars = new char[WeightFormatter.MAX_CHARS];
+
+    public WeightChartView(@NonNull Context context) {
+        this(context, null);
+    }
+
+    public WeightChartView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2 * density);
+        linePaint.setColor(Color.rgb(0x3F, 0x51, 0xB5));
+        labelPaint.setTextSize(11 * density);
+        labelPaint.setColor(Color.GRAY);
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(@NonNull ScaleGestureDetector d) {
+                zoomAround(d.getFocusX(), d.getScaleFactor());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float dx, float dy) {
+                panBy(dx);
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                fitAll = true;
+                fit();
+                invalidate();
+                return true;
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------
+    // data
+    // ---------------------------------------------------------------------
+
+    /** Show a full history (newest first). The view takes ownership of the store. */
+    public void setData(@NonNull ColumnarWeightStore history) {
+        rows = history;
+        sampler = new ChartDownsampler(history);
+        if (fitAll) fit();
+        invalidate();
+    }
+
+    public void addRow(long id, int day, double kg) {
+        if (rows == null || sampler == null) return;
+        rows.add(id, day, kg);
+        sampler.onRowChanged(day);
+        changed();
+    }
+
+    public void updateRow(long id, int oldDay, int newDay, double kg) {
+        if (rows == null || sampler == null) return;
+        rows.remove(id, oldDay);
+        rows.add(id, newDay, kg);
+        sampler.onRowChanged(oldDay);
+        if (newDay != oldDay) sampler.onRowChanged(newDay);
+        changed();
+    }
+
+    public void removeRow(long id, int day) {
+        if (rows == null || sampler == null) return;
+        if (rows.remove(id, day) < 0) return;
+        sampler.onRowChanged(day);
+        changed();
+    }
+
+    public void setUnitFormatter(@NonNull WeightFormatter formatter) {
+        if (formatter == this.formatter) return;
+        this.formatter = formatter;
+        invalidate();
+    }
+
+    private void changed() {
+        if (fitAll) fit();
+        invalidate();
+    }
+
+    // ---------------------------------------------------------------------
+    // viewport
+    // ---------------------------------------------------------------------
+
+    /**
+     * Zoom to [fromDay, toDay], clamped to the data. A range covering every row fits the
+     * whole history again (and keeps fitting it as rows are added).
+     */
+    public void showRange(int fromDay, int toDay) {
+        if (rows == null || rows.size() == 0) return;
+        int oldest = rows.dayAt(rows.size() - 1);
+        int newest = rows.dayAt(0);
+        int from = Math.max(fromDay, oldest);
+        int to = Math.min(toDay, newest);
+        if (from > to) return; // nothing charted in that range; leave the view where it is
+        fitAll = from == oldest && to == newest;
+        if (fitAll) {
+            fit();
+        } else {
+            viewSpan = Math.max(MIN_SPAN_DAYS, to - from);
+            viewStart = to - viewSpan;
+            clamp();
+        }
+        invalidate();
+    }
+
+    /** Oldest charted day, or EpochDays.INVALID before data arrives. */
+    public int oldestDay() {
+        return rows == null || rows.size() == 0 ? EpochDays.INVALID : rows.dayAt(rows.size() - 1);
+    }
+
+    /** Newest charted day, or EpochDays.INVALID before data arrives. */
+    public int newestDay() {
+        return rows == null || rows.size() == 0 ? EpochDays.INVALID : rows.dayAt(0);
+    }
+
+    private void fit() {
+        if (rows == null || rows.size() == 0) return;
+        int oldest = rows.dayAt(rows.size() - 1);
+        int newest = rows.dayAt(0);
+        viewSpan = Math.max(MIN_SPAN_DAYS, newest - oldest);
+        viewStart = newest - viewSpan;
+    }
+
+    private void zoomAround(float focusX, float scale) {
+        if (getWidth() == 0 || scale <= 0) return;
+        double focusDay = viewStart + viewSpan * focusX / getWidth();
+        viewSpan = Math.max(MIN_SPAN_DAYS, Math.min(maxSpan(), viewSpan / scale));
+        viewStart = focusDay - viewSpan * focusX / getWidth();
+        fitAll = false;
+        clamp();
+        invalidate();
+    }
+
+    private void panBy(float dxPixels) {
+        if (getWidth() == 0) return;
+        viewStart += viewSpan * dxPixels / getWidth();
+        fitAll = false;
+        clamp();
+        invalidate();
+    }
+
+    private double maxSpan() {
+        if (rows == null || rows.size() == 0) return MIN_SPAN_DAYS;
+        return Math.max(MIN_SPAN_DAYS, rows.dayAt(0) - rows.dayAt(rows.size() - 1));
+    }
+
+    private void clamp() {
+        if (rows == null || rows.size() == 0) return;
+        double min = rows.dayAt(rows.size() - 1);
+        double max = rows.dayAt(0);
+        if (viewStart + viewSpan > max) viewStart = max - viewSpan;
+        if (viewStart < min) viewStart = min;
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // keep the list from stealing a horizontal pan
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    // ---------------------------------------------------------------------
+    // drawing
+    // ---------------------------------------------------------------------
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // levelFor() keeps visible buckets <= width; +4 covers the off-screen neighbours
+        segments = new float[(w + 4) * 4];
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (sampler == null || rows == null || rows.size() == 0 || getWidth() == 0) return;
+
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (width <= 0 || height <= 0) return;
+
+        ChartDownsampler.Level level = sampler.level(ChartDownsampler.levelFor(viewSpan, width));
+        // one point either side of the window so lines run off the edges
+        int from = Math.max(0, level.firstOnOrAfter((int) Math.floor(viewStart)) - 1);
+        int to = Math.min(level.count, level.firstOnOrAfter((int) Math.ceil(viewStart + viewSpan)) + 1);
+        if (to - from > segments.length / 4 + 1) to = from + segments.length / 4 + 1;
+        if (to <= from) return;
+
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, level.kg[i]);
+            max = Math.max(max, level.kg[i]);
+        }
+        float pad = Math.max(0.5f, (max - min) * 0.05f);
+        min -= pad;
+        max += pad;
+
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float xScale = (float) (width / viewSpan);
+        float yScale = height / (max - min);
+
+        int n = 0;
+        float px = left + (float) ((level.day[from] - viewStart) * xScale);
+        float py = top + (max - level.kg[from]) * yScale;
+        for (int i = from + 1; i < to; i++) {
+            float x = left + (float) ((level.day[i] - viewStart) * xScale);
+            float y = top + (max - level.kg[i]) * yScale;
+            segments[n++] = px;
+            segments[n++] = py;
+            segments[n++] = x;
+            segments[n++] = y;
+            px = x;
+            py = y;
+        }
+        if (n > 0) {
+            canvas.drawLines(segments, 0, n, linePaint);
+        } else {
+            canvas.drawPoint(px, py, linePaint);
+        }
+
+        // y-axis extremes, in the user's unit
+        int len = formatter.format(max, labelChars);
+        canvas.drawText(labelChars, 0, len, left, top - labelPaint.ascent(), labelPaint);
+        len = formatter.format(min, labelChars);
+        canvas.drawText(labelChars, 0, len, left, top + height - labelPaint.descent(), labelPaint);
+    }
+}
@@ -0,0 +1,142 @@
+package edu.snhu.cs360.emmalie;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streams "date,weight,unit" rows from a CSV into the weights table for one user.
+ *  - reads one line at a time, so file size does not matter
+ *  - unit is "kg" or "lbs"/"lb" (blank = kg); values are stored in kg like everything else
+ *  - rows are written BATCH_SIZE per transaction through one compiled upsert: a day the
+ *    user already has (or that appears twice in the file) takes the later weight
+ *  - a header line and malformed rows are skipped and counted, not fatal
+ * Cancelling stops at the next row; batches already committed stay imported.
+ */
+public class WeightCsvImporter {
+
+    /** Progress callback, invoked after every committed batch (on the importing thread). */
+    public interface ProgressListener {
+        void onProgress(int imported, int skipped);
+    }
+
+    /** Outcome of an import. */
+    public static class Result {
+        public final int imported;
+        public final int skipped;
+        public final int firstBadLine;   // 1-based line number of the first skipped row, 0 if none
+        public final boolean cancelled;
+
+        Result(int imported, int skipped, int firstBadLine, boolean cancelled) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.firstBadLine = firstBadLine;
+            this.cancelled = cancelled;
+        }
+    }
+
+    static final int BATCH_SIZE = 2_000;
+
+    private final AppDatabaseHelper helper;
+
+    public WeightCsvImporter(@NonNull AppDatabaseHelper helper) {
+        this.helper = helper;
+    }
+
+    @NonNull
+    public Result importCsv(long userId, @NonNull Reader source,
+                            @Nullable ProgressListener progress,
+                            @Nullable CancellationSignal signal) throws IOException {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        BufferedReader in = source instanceof BufferedReader
+                ? (BufferedReader) source : new BufferedReader(source, 64 * 1024);
+
+        int imported = 0;
+        int skipped = 0;
+        int firstBad = 0;
+        int lineNo = 0;
+        boolean cancelled = false;
+
+        try (SQLiteStatement insert = db.compileStatement(AppDatabaseHelper.SQL_UPSERT_WEIGHT)) {
+            String line = null;
+            while (!cancelled) {
+                int inBatch = 0;
+                db.beginTransaction();
+                try {
+                    while (inBatch < BATCH_SIZE && (line = in.readLine()) != null) {
+                        lineNo++;
+                        if (signal != null && signal.isCanceled()) {
+                            cancelled = true;
+                            break;
+                        }
+                        if (!parseInto(insert, userId, line)) {
+                            // the first line may just be a header; don't count it against the file
+                            if (lineNo > 1 || !isHeader(line)) {
+                                skipped++;
+                                if (firstBad == 0) firstBad = lineNo;
+                            }
+                            continue;
+                        }
+                        insert.executeInsert();
+                        inBatch++;
+                    }
+                    if (!cancelled) db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                if (cancelled) break;
+                imported += inBatch;
+                if (progress != null) progress.onProgress(imported, skipped);
+                if (line == null) break; // end of input
+            }
+        } finally {
+            helper.invalidateSummary(userId);
+        }
+        return new Result(imported, skipped, firstBad, cancelled);
+    }
+
+    /** Validate one CSV line and bind it to the insert; false if the row is malformed. */
+    private static boolean parseInto(@NonNull SQLiteStatement insert, long userId, @NonNull String line) {
+        int c1 = line.indexOf(',');
+        if (c1 < 0) return false;
+        int c2 = line.indexOf(',', c1 + 1);
+
+        int day = EpochDays.parse(line, 0, c1);
+        if (day == EpochDays.INVALID) return false;
+
+        String weightStr = (c2 < 0 ? line.substring(c1 + 1) : line.substring(c1 + 1, c2)).trim();
+        double value;
+        try {
+            value = Double.parseDouble(weightStr);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (!(value > 0) || Double.isInfinite(value)) return false;
+
+        String unit = c2 < 0 ? "" : line.substring(c2 + 1).trim();
+        double kg;
+        if (unit.isEmpty() || unit.equalsIgnoreCase("kg")) {
+            kg = value;
+        } else if (unit.equalsIgnoreCase("lbs") || unit.equalsIgnoreCase("lb")) {
+            kg = value * WeightFormatter.KG_PER_LB;
+        } else {
+            return false;
+        }
+
+        insert.bindLong(1, userId);
+        insert.bindLong(2, day);
+        insert.bindDouble(3, kg);
+        return true;
+    }
+
+    private static boolean isHeader(@NonNull String line) {
+        return line.regionMatches(true, 0, "date", 0, 4);
+    }
+}
@@ -0,0 +1,177 @@
+package edu.snhu.cs360.emmalie;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams one user's history, oldest first, from a cursor straight into a channel.
+ * Nothing is collected into a list: memory use is one cursor window plus one buffer,
+ * whatever the row count. Two formats:
+ *  - CSV:    "date,weight,unit" header, then "YYYY-MM-DD,<kg>,kg" (re-importable)
+ *  - binary: "WTW1" magic, then fixed 8-byte records of int epoch day + float kg (big-endian)
+ */
+public class WeightExporter {
+
+    public static final byte[] BINARY_MAGIC = {'W', 'T', 'W', '1'};
+    public static final int BINARY_RECORD_BYTES = 8;
+
+    static final int BUFFER_BYTES = 64 * 1024;
+
+    private final AppDatabaseHelper helper;
+
+    public WeightExporter(@NonNull AppDatabaseHelper helper) {
+        this.helper = helper;
+    }
+
+    /** Write the user's history as CSV. Returns the number of rows written. */
+    public int exportCsv(long userId, @NonNull WritableByteChannel out) throws IOException {
+        CsvWriter w = new CsvWriter(out);
+        int rows = 0;
+        try (Cursor c = helper.openHistoryCursor(userId)) {
+            while (c.moveToNext()) {
+                w.row(c.getInt(0), c.getDouble(1));
+                rows++;
+            }
+        }
+        w.flush();
+        return rows;
+    }
+
+    /** Write the user's history in the fixed-width binary format. Returns rows written. */
+    public int exportBinary(long userId, @NonNull WritableByteChannel out) throws IOException {
+        BinaryWriter w = new BinaryWriter(out);
+        int rows = 0;
+        try (Cursor c = helper.openHistoryCursor(userId)) {
+            while (c.moveToNext()) {
+                w.row(c.getInt(0), (float) c.getDouble(1));
+                rows++;
+            }
+        }
+        w.flush();
+        return rows;
+    }
+
+    // ---------------------------------------------------------------------
+    // Format writers / reader (plain NIO, no Android types)
+    // ---------------------------------------------------------------------
+
+    /** Buffered CSV rows into a channel. */
+    static final class CsvWriter {
+        private static final byte[] HEADER = "date,weight,unit\n".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] KG_SUFFIX = ",kg\n".getBytes(StandardCharsets.US_ASCII);
+
+        private final WritableByteChannel out;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        private final char[] date = new char[EpochDays.ISO_LENGTH];
+
+        CsvWriter(@NonNull WritableByteChannel out) {
+            this.out = out;
+            buf.put(HEADER);
+        }
+
+        void row(int epochDay, double kg) throws IOException {
+            if (buf.remaining() < 64) drain();
+            EpochDays.format(epochDay, date, 0);
+            for (char ch : date) buf.put((byte) ch);
+            buf.put((byte) ',');
+            putAscii(Double.toString(kg)); // shortest exact repr, so the backup is lossless
+            buf.put(KG_SUFFIX);
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void putAscii(@NonNull String s) {
+            for (int i = 0, n = s.length(); i < n; i++) buf.put((byte) s.charAt(i));
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+        }
+    }
+
+    /** Buffered fixed-width binary records into a channel. */
+    static final class BinaryWriter {
+        private final WritableByteChannel out;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+
+        BinaryWriter(@NonNull WritableByteChannel out) {
+            this.out = out;
+            buf.put(BINARY_MAGIC);
+        }
+
+        void row(int epochDay, float kg) throws IOException {
+            if (buf.remaining() < BINARY_RECORD_BYTES) drain();
+            buf.putInt(epochDay).putFloat(kg);
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+        }
+    }
+
+    /** Reads a binary export back one record at a time. */
+    public static final class BinaryReader {
+        private final ReadableByteChannel in;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        private boolean eof;
+        private int epochDay;
+        private float kg;
+
+        public BinaryReader(@NonNull ReadableByteChannel in) throws IOException {
+            this.in = in;
+            buf.flip(); // start empty
+            if (!fill(BINARY_MAGIC.length)) throw new EOFException("missing header");
+            for (byte b : BINARY_MAGIC) {
+                if (buf.get() != b) throw new IOException("not a weight export");
+            }
+        }
+
+        /** Advance to the next record; false at the end of the stream. */
+        public boolean next() throws IOException {
+            if (!fill(BINARY_RECORD_BYTES)) {
+                if (buf.hasRemaining()) throw new EOFException("truncated record");
+                return false;
+            }
+            epochDay = buf.getInt();
+            kg = buf.getFloat();
+            return true;
+        }
+
+        public int epochDay() {
+            return epochDay;
+        }
+
+        public float kg() {
+            return kg;
+        }
+
+        /** Make sure at least n bytes are readable; false if the stream ends first. */
+        private boolean fill(int n) throws IOException {
+            if (buf.remaining() >= n) return true;
+            buf.compact();
+            while (!eof && buf.position() < n) {
+                if (in.read(buf) < 0) eof = true;
+            }
+            buf.flip();
+            return buf.remaining() >= n;
+        }
+    }
+}
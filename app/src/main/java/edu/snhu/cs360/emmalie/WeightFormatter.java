@@ -0,0 +1,74 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Formats a weight stored in kg as "72.5 kg" or "159.8 lbs" straight into a caller-owned
+ * char buffer. No boxing, no Formatter, no String: the row binder hands the buffer to
+ * TextView.setText(char[], int, int), so binding a row during a fling creates no garbage.
+ */
+public final class WeightFormatter {
+
+    /** Large enough for any long with one decimal plus the longest unit suffix. */
+    public static final int MAX_CHARS = 32;
+
+    static final double KG_PER_LB = 0.45359237d;
+
+    public static final WeightFormatter KG = new WeightFormatter(false);
+    public static final WeightFormatter LBS = new WeightFormatter(true);
+
+    private final boolean lbs;
+    private final char[] suffix;
+
+    private WeightFormatter(boolean lbs) {
+        this.lbs = lbs;
+        this.suffix = (lbs ? " lbs" : " kg").toCharArray();
+    }
+
+    /** Formatter for the "kg" / "lbs" unit strings used across the app. */
+    @NonNull
+    public static WeightFormatter forUnit(@NonNull String unit) {
+        return "kg".equals(unit) ? KG : LBS;
+    }
+
+    /**
+     * Write {@code kg}, converted to this formatter's unit and rounded to one decimal,
+     * into {@code out} starting at 0. Returns the number of chars written.
+     */
+    public int format(double kg, @NonNull char[] out) {
+        if (Double.isNaN(kg) || Double.isInfinite(kg)) {
+            out[0] = '-';
+            out[1] = '-';
+            return appendSuffix(out, 2);
+        }
+
+        double value = lbs ? kg / KG_PER_LB : kg;
+        int pos = 0;
+        if (value < 0) {
+            out[pos++] = '-';
+            value = -value; // round the magnitude so -3.25 prints like 3.25
+        }
+        long tenths = Math.round(value * 10d);
+        pos = appendDigits(tenths / 10, out, pos);
+        out[pos++] = '.';
+        out[pos++] = (char) ('0' + (tenths % 10));
+        return appendSuffix(out, pos);
+    }
+
+    private static int appendDigits(long v, char[] out, int pos) {
+        // count digits first so they can be written left to right without a scratch buffer
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) digits++;
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            out[i] = (char) ('0' + (v % 10));
+            v /= 10;
+        }
+        return end;
+    }
+
+    private int appendSuffix(char[] out, int pos) {
+        System.arraycopy(suffix, 0, out, pos, suffix.length);
+        return pos + suffix.length;
+    }
+}
@@ -0,0 +1,357 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.SharedPreferences;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Async front for AppDatabaseHelper so screens never touch SQLite on the main thread.
+ *  - writes run in order on one dedicated writer thread
+ *  - reads run on a small pool (WAL-style concurrent readers)
+ *  - CSV import and export, which stream a whole file, run on a thread of their own so
+ *    they hold neither the writer nor a reader for their duration
+ *  - every result is delivered back on the main thread; work that throws delivers null
+ * History reads are "latest wins": a new request cancels the previous one, so a burst
+ * of refreshes collapses into a single query.
+ */
+public class WeightRepository {
+
+    /** Receives a result on the main thread; null if the database work failed. */
+    public interface Callback<T> {
+        void onResult(@Nullable T result);
+    }
+
+    /** A read that can be aborted mid-query through the signal. */
+    interface Query<T> {
+        T run(@NonNull CancellationSignal signal);
+    }
+
+    private static final String TAG = "WeightRepository";
+    private static final int READ_THREADS = 2;
+
+    private final AppDatabaseHelper db;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(named("db-writer"));
+    private final ExecutorService readers = Executors.newFixedThreadPool(READ_THREADS, named("db-read"));
+    private final ExecutorService files = Executors.newSingleThreadExecutor(named("db-file"));
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    private final LatestRead<ColumnarWeightStore> historyRead = new LatestRead<>();
+    private final LatestRead<ColumnarWeightStore> chartRead = new LatestRead<>();
+    private final LatestRead<WeightStats> statsRead = new LatestRead<>();
+
+    private volatile boolean closed;
+
+    public WeightRepository(@NonNull AppDatabaseHelper db) {
+        this.db = db;
+    }
+
+    // ---------------------------------------------------------------------
+    // Login / Users
+    // ---------------------------------------------------------------------
+
+    public void createUser(@NonNull String username, @NonNull String password,
+                           @NonNull Callback<Long> cb) {
+        write(() -> db.createUser(username, password), cb);
+    }
+
+    public void checkLogin(@NonNull String username, @NonNull String password,
+                           @NonNull Callback<Long> cb) {
+        read(() -> db.checkLogin(username, password), cb);
+    }
+
+    // ---------------------------------------------------------------------
+    // Settings
+    // ---------------------------------------------------------------------
+
+    /**
+     * Load a user's settings into the helper's cache, first moving any that are still in
+     * {@code legacy} prefs into the table. Runs on the writer so it is ordered before any
+     * setter queued after it.
+     */
+    public void warmSettings(long userId, @NonNull SharedPreferences legacy,
+                             @NonNull Callback<AppDatabaseHelper.UserSettings> cb) {
+        write(() -> {
+            db.importLegacySettings(legacy);
+            return db.getSettings(userId);
+        }, cb);
+    }
+
+    public void setUnit(long userId, @NonNull String unit) {
+        write(() -> db.setUnit(userId, unit));
+    }
+
+    /** NaN clears the goal. */
+    public void setGoalKg(long userId, double goalKg) {
+        write(() -> db.setGoalKg(userId, goalKg));
+    }
+
+    // ---------------------------------------------------------------------
+    // Weights
+    // ---------------------------------------------------------------------
+
+    /** Add or replace the user's entry for {@code day}; null if it failed. */
+    public void upsertWeight(long userId, int day, double weight,
+                             @NonNull Callback<AppDatabaseHelper.WeightBatch> cb) {
+        write(() -> db.upsertWeight(userId, day, weight), cb);
+    }
+
+    /** -1 rows if another entry already has {@code day}. */
+    public void updateWeight(long id, int day, double weight, @NonNull Callback<Integer> cb) {
+        write(() -> db.updateWeight(id, day, weight), cb);
+    }
+
+    public void deleteWeight(long id, @NonNull Callback<Integer> cb) {
+        write(() -> db.deleteWeight(id), cb);
+    }
+
+    /** Delete many rows in one transaction; the batch is what undoBatch() needs. */
+    public void deleteWeights(long userId, @NonNull long[] ids,
+                              @NonNull Callback<AppDatabaseHelper.WeightBatch> cb) {
+        write(() -> db.deleteWeights(userId, ids), cb);
+    }
+
+    /** Rewrite many rows (same ids, new date / weight) in one transaction; null on a date clash. */
+    public void updateWeights(long userId, @NonNull List<AppDatabaseHelper.WeightEntry> rows,
+                              @NonNull Callback<AppDatabaseHelper.WeightBatch> cb) {
+        write(() -> db.updateWeights(userId, rows), cb);
+    }
+
+    /** Put an earlier batch's rows back as they were; delivers the batch that did it (null on a date clash). */
+    public void undoBatch(@NonNull AppDatabaseHelper.WeightBatch batch,
+                          @NonNull Callback<AppDatabaseHelper.WeightBatch> cb) {
+        write(() -> db.undoBatch(batch), cb);
+    }
+
+    /**
+     * Load one page of history older than {@code anchor} (null = newest page), newest first.
+     * Supersedes any history load still pending.
+     */
+    public void loadOlder(long userId, @Nullable AppDatabaseHelper.WeightEntry anchor, int limit,
+                          @NonNull Callback<ColumnarWeightStore> cb) {
+        loadOlder(userId, AppDatabaseHelper.FIRST_DAY, AppDatabaseHelper.LAST_DAY, anchor, limit, cb);
+    }
+
+    /** Load one page of history newer than {@code anchor}, newest first. */
+    public void loadNewer(long userId, @NonNull AppDatabaseHelper.WeightEntry anchor, int limit,
+                          @NonNull Callback<ColumnarWeightStore> cb) {
+        loadNewer(userId, AppDatabaseHelper.FIRST_DAY, AppDatabaseHelper.LAST_DAY, anchor, limit, cb);
+    }
+
+    /**
+     * {@link #loadOlder} limited to rows dated within [fromDay, toDay]. Shares the history
+     * channel, so changing the range while a page is loading aborts that page's query.
+     */
+    public void loadOlder(long userId, int fromDay, int toDay,
+                          @Nullable AppDatabaseHelper.WeightEntry anchor, int limit,
+                          @NonNull Callback<ColumnarWeightStore> cb) {
+        historyRead.submit(signal -> db.getPageOlderThan(userId, fromDay, toDay, anchor, limit, signal), cb);
+    }
+
+    /** {@link #loadNewer} limited to rows dated within [fromDay, toDay]. */
+    public void loadNewer(long userId, int fromDay, int toDay,
+                          @NonNull AppDatabaseHelper.WeightEntry anchor, int limit,
+                          @NonNull Callback<ColumnarWeightStore> cb) {
+        historyRead.submit(signal -> db.getPageNewerThan(userId, fromDay, toDay, anchor, limit, signal), cb);
+    }
+
+    /** Every row of a user's history in columns, for the chart; a newer call cancels this one. */
+    public void loadChartHistory(long userId, @NonNull Callback<ColumnarWeightStore> cb) {
+        chartRead.submit(signal -> db.getHistoryColumns(userId, signal), cb);
+    }
+
+    /**
+     * Mean / spread / percentiles of a user's weights in [fromDay, toDay]. Latest wins: a
+     * new range cancels the one still streaming. Whole months come from the month cache.
+     */
+    public void loadStats(long userId, int fromDay, int toDay, @NonNull Callback<WeightStats> cb) {
+        statsRead.submit(signal -> db.getStats(userId, fromDay, toDay, signal), cb);
+    }
+
+    /** Latest entry / count / min / max for a user; usually answered from memory. */
+    public void loadSummary(long userId, @NonNull Callback<AppDatabaseHelper.WeightSummary> cb) {
+        read(() -> db.getSummary(userId), cb);
+    }
+
+    /** Smoothed weight, slope and goal projection input for a user; usually from memory. */
+    public void loadTrend(long userId, @NonNull Callback<TrendEngine.Trend> cb) {
+        read(() -> db.getTrend(userId), cb);
+    }
+
+    /** Weekly or monthly rollups whose bucket starts in [fromDay, toDay], newest first. */
+    public void loadRollups(long userId, int period, int fromDay, int toDay,
+                            @NonNull Callback<List<AppDatabaseHelper.WeightRollup>> cb) {
+        read(() -> db.getRollups(userId, period, fromDay, toDay), cb);
+    }
+
+    /**
+     * Import a CSV on the file thread, committing a batch at a time so ordinary writes
+     * interleave. Progress and the result (null on an I/O error) arrive on the main
+     * thread; the reader is closed when done. Cancel via the returned signal.
+     */
+    @NonNull
+    public CancellationSignal importCsv(long userId, @NonNull Reader csv,
+                                        @NonNull WeightCsvImporter.ProgressListener progress,
+                                        @NonNull Callback<WeightCsvImporter.Result> cb) {
+        CancellationSignal signal = new CancellationSignal();
+        file(() -> {
+            try (Reader in = csv) {
+                return new WeightCsvImporter(db).importCsv(userId, in,
+                        (imported, skipped) -> main.post(() -> {
+                            if (!closed) progress.onProgress(imported, skipped);
+                        }),
+                        signal);
+            } catch (IOException e) {
+                return null;
+            }
+        }, cb);
+        return signal;
+    }
+
+    /**
+     * Stream a user's history to {@code out} (CSV, or the binary format when {@code binary}).
+     * Runs on the file thread. Delivers the row count, or -1 on an I/O error; the channel
+     * is closed when done.
+     */
+    public void exportWeights(long userId, boolean binary, @NonNull WritableByteChannel out,
+                              @NonNull Callback<Integer> cb) {
+        file(() -> {
+            try (WritableByteChannel ch = out) {
+                WeightExporter exporter = new WeightExporter(db);
+                return binary ? exporter.exportBinary(userId, ch) : exporter.exportCsv(userId, ch);
+            } catch (IOException e) {
+                return -1;
+            }
+        }, cb);
+    }
+
+    /** Stop the worker threads and drop any result that has not been delivered yet. */
+    public void close() {
+        closed = true;
+        historyRead.cancel();
+        chartRead.cancel();
+        statsRead.cancel();
+        writer.shutdown();
+        readers.shutdown();
+        files.shutdown();
+        main.removeCallbacksAndMessages(null);
+    }
+
+    // ---------------------------------------------------------------------
+    // plumbing
+    // ---------------------------------------------------------------------
+
+    private interface Work<T> {
+        T run();
+    }
+
+    private <T> void write(@NonNull Work<T> work, @NonNull Callback<T> cb) {
+        if (closed) return;
+        writer.execute(() -> deliver(attempt(work), cb));
+    }
+
+    /** A write nobody waits for (settings); still ordered with every other write. */
+    private void write(@NonNull Runnable work) {
+        if (closed) return;
+        writer.execute(() -> attempt(() -> {
+            work.run();
+            return null;
+        }));
+    }
+
+    private <T> void read(@NonNull Work<T> work, @NonNull Callback<T> cb) {
+        if (closed) return;
+        readers.execute(() -> deliver(attempt(work), cb));
+    }
+
+    private <T> void file(@NonNull Work<T> work, @NonNull Callback<T> cb) {
+        if (closed) return;
+        files.execute(() -> deliver(attempt(work), cb));
+    }
+
+    // The one place work fails: logged, and null for the callback, so a SQLiteException
+    // neither kills a pool thread nor leaves a caller (a pager's loading flag) waiting.
+    // Cancellation is not a failure and passes through.
+    @Nullable
+    private static <T> T attempt(@NonNull Work<T> work) {
+        try {
+            return work.run();
+        } catch (OperationCanceledException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "database work failed", e);
+            return null;
+        }
+    }
+
+    private <T> void deliver(T result, @NonNull Callback<T> cb) {
+        main.post(() -> {
+            if (!closed) cb.onResult(result);
+        });
+    }
+
+    /**
+     * One logical read channel where only the newest request matters. Submitting again
+     * removes the queued task (coalescing) or aborts the running query (stale read).
+     */
+    private final class LatestRead<T> {
+        private long generation;
+        private Future<?> pending;
+        private CancellationSignal signal;
+
+        synchronized void submit(@NonNull Query<T> query, @NonNull Callback<T> cb) {
+            if (closed) return;
+            cancel();
+            final long gen = ++generation;
+            final CancellationSignal s = new CancellationSignal();
+            signal = s;
+            pending = readers.submit(() -> {
+                if (!isCurrent(gen)) return;
+                T result;
+                try {
+                    result = attempt(() -> query.run(s));
+                } catch (OperationCanceledException e) {
+                    return; // a newer request took over
+                }
+                main.post(() -> {
+                    if (!closed && isCurrent(gen)) cb.onResult(result);
+                });
+            });
+        }
+
+        synchronized void cancel() {
+            if (pending != null) pending.cancel(false);
+            if (signal != null) signal.cancel();
+            pending = null;
+            signal = null;
+        }
+
+        private synchronized boolean isCurrent(long gen) {
+            return gen == generation;
+        }
+    }
+
+    private static ThreadFactory named(@NonNull String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+/**
+ * One-pass statistics over weights (kg): count, mean, standard deviation, min/max and
+ * quantiles. Mean and variance use Welford's update, which stays accurate where the
+ * sum-of-squares formula cancels catastrophically (values near 80 differing by tenths);
+ * quantiles come from a QuantileSketch. Two instances over disjoint rows merge into the
+ * statistics of all of them (Chan et al.'s pairwise update), which is how AppDatabaseHelper
+ * assembles a range from cached per-month stats. Not thread-safe.
+ */
+public final class WeightStats {
+
+    private long count;
+    private double mean;
+    private double m2;          // sum of squared differences from the mean
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private final QuantileSketch sketch;
+
+    public WeightStats() {
+        this(new QuantileSketch());
+    }
+
+    private WeightStats(@NonNull QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    public void add(double kg) {
+        count++;
+        double delta = kg - mean;
+        mean += delta / count;
+        m2 += delta * (kg - mean);
+        if (count == 1) {
+            min = kg;
+            max = kg;
+        } else {
+            min = Math.min(min, kg);
+            max = Math.max(max, kg);
+        }
+        sketch.add(kg);
+    }
+
+    /** Fold in the statistics of rows disjoint from this one's. */
+    public void merge(@NonNull WeightStats other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+        } else {
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / n;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / n);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        sketch.merge(other.sketch);
+    }
+
+    @NonNull
+    public WeightStats copy() {
+        WeightStats c = new WeightStats(sketch.copy());
+        c.count = count;
+        c.mean = mean;
+        c.m2 = m2;
+        c.min = min;
+        c.max = max;
+        return c;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** NaN when empty. */
+    public double meanKg() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /** Sample standard deviation; NaN with fewer than two rows. */
+    public double stdDevKg() {
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    /** NaN when empty. */
+    public double minKg() {
+        return min;
+    }
+
+    /** NaN when empty. */
+    public double maxKg() {
+        return max;
+    }
+
+    /**
+     * Quantile {@code q} in [0, 1] (see QuantileSketch.quantile); exact at 0 and 1, kept
+     * within [min, max] in between. NaN when empty.
+     */
+    public double quantileKg(double q) {
+        if (count == 0) return Double.NaN;
+        if (q <= 0) return min;
+        if (q >= 1) return max;
+        return Math.max(min, Math.min(max, sketch.quantile(q)));
+    }
+
+    public double medianKg() {
+        return quantileKg(0.5);
+    }
+}
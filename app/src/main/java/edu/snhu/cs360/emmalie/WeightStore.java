@@ -0,0 +1,37 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Read-only view of weight rows in history order: date DESC, _id DESC (newest first),
+ * addressed by position. Readers pull primitives per column, so walking, diffing or
+ * binding rows never needs a WeightEntry per row.
+ */
+public interface WeightStore {
+
+    /** Owner of every row in the store. */
+    long userId();
+
+    int size();
+
+    long idAt(int index);
+
+    /** Epoch day (EpochDays) of the row. */
+    int dayAt(int index);
+
+    /** Weight in kg, as stored. */
+    double kgAt(int index);
+
+    /** Position of the row with this _id and day, or -1. O(log n). */
+    int indexOf(long id, int day);
+
+    /**
+     * Position of the newest row dated on or before {@code day} (size() when there is none).
+     * Rows in [fromDay, toDay] are positions [firstOnOrBefore(toDay), firstOnOrBefore(fromDay - 1)).
+     */
+    int firstOnOrBefore(int day);
+
+    /** Materialize one row, e.g. for a click handler. Allocates; keep off per-row paths. */
+    @NonNull
+    AppDatabaseHelper.WeightEntry entryAt(int index);
+}
@@ -0,0 +1,142 @@
+package edu.snhu.cs360.emmalie;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide state: the one AppDatabaseHelper every screen shares, the login session,
+ * and startup pre-warming. onCreate opens (and if needed migrates) the database on a
+ * background thread and, for a returning session, loads that user's settings, summary
+ * and first history page, so WeightsActivity can show rows without waiting on SQLite.
+ * A user switched back to is served from the helper's snapshot cache instead.
+ */
+public class WeightTrackerApp extends Application {
+
+    // session prefs (the settings themselves live in user_settings)
+    private static final String PREFS = "prefs";
+    private static final String KEY_USER_ID = "user_id";
+
+    private final StartupTimer startup = new StartupTimer();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "db-prewarm");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private AppDatabaseHelper db;
+
+    // first page for prefetchUserId, handed to the first WeightsActivity that asks (main thread)
+    private CompletableFuture<ColumnarWeightStore> firstPage;
+    private long prefetchUserId = -1L;
+
+    @NonNull
+    public static WeightTrackerApp get(@NonNull Context context) {
+        return (WeightTrackerApp) context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // off (and nearly free) in release builds; read with dumpsys, see WeightsActivity.dump
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        PerfMetrics.setEnabled(debuggable);
+        PerfMetrics.setTrackAllocations(debuggable);
+
+        db = new AppDatabaseHelper(this);
+        long userId = sessionUserId();
+        if (userId > 0) {
+            prefetch(userId);
+        } else {
+            warmer.execute(() -> {
+                db.getWritableDatabase(); // open + migrate before the login click needs it
+                startup.markDbReady();
+            });
+        }
+    }
+
+    // Cached histories are the bulk of what this process holds beyond the views.
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        db.trimMemory(level);
+    }
+
+    @NonNull
+    public AppDatabaseHelper db() {
+        return db;
+    }
+
+    @NonNull
+    public StartupTimer startup() {
+        return startup;
+    }
+
+    // ---------------------------------------------------------------------
+    // session
+    // ---------------------------------------------------------------------
+
+    /** The logged-in user, or -1. */
+    public long sessionUserId() {
+        return prefs().getLong(KEY_USER_ID, -1L);
+    }
+
+    /** Remember {@code userId} as logged in and start loading their data. */
+    public void startSession(long userId) {
+        prefs().edit().putLong(KEY_USER_ID, userId).apply();
+        prefetch(userId);
+    }
+
+    public void endSession() {
+        prefs().edit().remove(KEY_USER_ID).apply();
+        firstPage = null;
+        prefetchUserId = -1L;
+    }
+
+    @NonNull
+    SharedPreferences prefs() {
+        return getSharedPreferences(PREFS, MODE_PRIVATE);
+    }
+
+    // ---------------------------------------------------------------------
+    // prefetch
+    // ---------------------------------------------------------------------
+
+    private void prefetch(long userId) {
+        SharedPreferences legacy = prefs();
+        prefetchUserId = userId;
+        firstPage = CompletableFuture.supplyAsync(() -> {
+            db.getWritableDatabase();
+            startup.markDbReady();
+            db.importLegacySettings(legacy);
+            db.getSettings(userId);
+            db.getSummary(userId);
+            ColumnarWeightStore rows = db.getPageOlderThan(userId, null, PagedWeightSource.PAGE_SIZE, null);
+            startup.markFirstPage();
+            return rows;
+        }, warmer);
+    }
+
+    /**
+     * Hand over the prefetched first page for {@code userId}, once. Returns false when there
+     * is none (load it normally); otherwise {@code cb} gets it on the main thread as soon as
+     * it is ready, or null if the prefetch failed.
+     */
+    public boolean takeFirstPage(long userId, @NonNull WeightRepository.Callback<ColumnarWeightStore> cb) {
+        CompletableFuture<ColumnarWeightStore> f = firstPage;
+        if (f == null || prefetchUserId != userId) return false;
+        firstPage = null;
+        f.whenComplete((rows, error) -> main.post(() -> cb.onResult(error == null ? rows : null)));
+        return true;
+    }
+}
@@ -2,45 +2,67 @@ package edu.snhu.cs360.emmalie;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.content.SharedPreferences;
+import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
-import android.telephony.SmsManager;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
 import android.text.InputType;
 import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
 import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.slider.RangeSlider;
+import com.google.android.material.snackbar.Snackbar;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
 /**
  * Weights screen with goal + kg/lbs toggle.
- * Data is stored in the DB as kg; unit & goal are persisted in SharedPreferences per user.
+ * Data is stored in the DB as kg; unit & goal are per-user settings in the DB (user_settings).
  */
 public class WeightsActivity extends AppCompatActivity {
 
-    // prefs
-    private static final String PREFS = "prefs";
-    private static final String KEY_USER_ID = "user_id";
-
-    // per-user keys
-    private static String keyUnit(long userId) { return "unit_" + userId; }           // "kg" or "lbs"
-    private static String keyGoal(long userId) { return "goal_kg_" + userId; }        // double (kg)
-
     private static String defaultUnit() {
         String c = Locale.getDefault().getCountry();
         return ("US".equalsIgnoreCase(c) || "LR".equalsIgnoreCase(c) || "MM".equalsIgnoreCase(c))
@@ -53,8 +75,18 @@ public class WeightsActivity extends AppCompatActivity {
     // optional SMS number (empty means disabled)
     private static final String ALERT_PHONE = "";
 
-    private AppDatabaseHelper db;
+    private WeightRepository repo;
     private WeightAdapter adapter;
+    private PagedWeightSource source;
+    private WeightChartView chart;
+    private boolean firstRowsReported;
+    // PerfMetrics mark of the oldest refreshList() not yet answered (0 = none / disabled)
+    private long refreshMark;
+
+    // newest entry for the goal banner (NaN when there are no rows)
+    private double latestKg = Double.NaN;
+    // smoothed trend for the goal projection (null until loaded)
+    private TrendEngine.Trend trend;
 
     private long userId = -1L;
 
@@ -64,6 +96,8 @@ public class WeightsActivity extends AppCompatActivity {
     // goal UI
     private EditText editGoal;
     private TextView textGoalStatus;
+    private TextView textStats;
+    private WeightStats stats; // over the current range; reformatted on unit change
 
     // unit UI
     private SwitchCompat switchUnit;
@@ -71,25 +105,59 @@ public class WeightsActivity extends AppCompatActivity {
     // current unit selection ("kg" or "lbs")
     private String currentUnit;
 
+    // date-range filter; positions in R.array.range_presets
+    private static final int RANGE_ALL = 0;
+    private static final int RANGE_30_DAYS = 1;
+    private static final int RANGE_90_DAYS = 2;
+    private static final int RANGE_THIS_YEAR = 3;
+    private static final int RANGE_CUSTOM = 4;
+    // a typed or dragged range is queried this long after the last change
+    private static final long RANGE_DEBOUNCE_MS = 250;
+
+    private final Handler rangeHandler = new Handler(Looper.getMainLooper());
+    private final Runnable applyCustomRange = this::applyCustomRange;
+    private View rowCustomRange;
+    private EditText editRangeFrom;
+    private EditText editRangeTo;
+    private RangeSlider sliderRange;
+    private boolean syncingRange; // code is writing the range inputs; don't re-query
+
+    // multi-select: the contextual bar while rows are selected, and the last batch for undo
+    private ActionMode selectionMode;
+    private AppDatabaseHelper.WeightBatch undoBuffer;
+
+    // CSV import (null when no import is running)
+    private Button btnImport;
+    private CancellationSignal importSignal;
+
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::startImport);
+
+    // export targets, one per format
+    private final ActivityResultLauncher<String> exportCsvLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("text/csv"),
+                    uri -> startExport(uri, false));
+    private final ActivityResultLauncher<String> exportBinaryLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("application/octet-stream"),
+                    uri -> startExport(uri, true));
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_weights);
 
-        db = new AppDatabaseHelper(this);
+        WeightTrackerApp app = WeightTrackerApp.get(this);
+        repo = new WeightRepository(app.db());
 
-        SharedPreferences sp = getSharedPreferences(PREFS, MODE_PRIVATE);
-        userId = sp.getLong(KEY_USER_ID, -1L);
+        userId = app.sessionUserId();
         if (userId <= 0) {
             Toast.makeText(this, "No user session. Please log in again.", Toast.LENGTH_LONG).show();
             finish();
             return;
         }
 
-        // load prefs
-        currentUnit = sp.getString(keyUnit(userId), defaultUnit());
-        long goalBits = Double.doubleToRawLongBits(Double.NaN);
-        goalKg = Double.longBitsToDouble(sp.getLong(keyGoal(userId), goalBits));
+        // locale default until the user's settings arrive (see warmSettings below)
+        currentUnit = defaultUnit();
 
         // views
         editDate       = findViewById(R.id.editDate);
@@ -102,8 +170,10 @@ public class WeightsActivity extends AppCompatActivity {
         // initialize switch label/state and listener
         updateUnitSwitchLabel();
         switchUnit.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            currentUnit = isChecked ? "kg" : "lbs";
-            sp.edit().putString(keyUnit(userId), currentUnit).apply();
+            String unit = isChecked ? "kg" : "lbs";
+            if (unit.equals(currentUnit)) return; // set from code, already saved
+            currentUnit = unit;
+            repo.setUnit(userId, unit);
             applyUnitToAdapter();
             updateGoalStatus();
             updateUnitSwitchLabel();
@@ -115,15 +185,14 @@ public class WeightsActivity extends AppCompatActivity {
             if (TextUtils.isEmpty(s)) {
                 // clear goal
                 goalKg = Double.NaN;
-                sp.edit().remove(keyGoal(userId)).apply();
+                repo.setGoalKg(userId, goalKg);
                 updateGoalStatus();
                 return;
             }
             try {
                 double val = Double.parseDouble(s);
                 goalKg = ("kg".equals(currentUnit)) ? val : lbsToKg(val);
-                sp.edit().putLong(keyGoal(userId),
-                        Double.doubleToRawLongBits(goalKg)).apply();
+                repo.setGoalKg(userId, goalKg);
                 updateGoalStatus();
                 Toast.makeText(this, "Goal updated", Toast.LENGTH_SHORT).show();
             } catch (NumberFormatException e) {
@@ -131,9 +200,32 @@ public class WeightsActivity extends AppCompatActivity {
             }
         });
 
+        // settings come from the DB (old prefs keys are moved over on first run); the
+        // unit/goal controls wait for them so an early toggle can't be overwritten by the load
+        switchUnit.setEnabled(false);
+        btnSetGoal.setEnabled(false);
+        repo.warmSettings(userId, app.prefs(), settings -> {
+            if (settings != null) {
+                if (settings.unit != null) currentUnit = settings.unit;
+                goalKg = settings.goalKg;
+            }
+            switchUnit.setEnabled(true);
+            btnSetGoal.setEnabled(true);
+            updateUnitSwitchLabel();
+            applyUnitToAdapter();
+            updateGoalStatus();
+        });
+
+        // chart: whole history, downsampled to the view width
+        chart = findViewById(R.id.chartWeights);
+        textStats = findViewById(R.id.textStats);
+
         // RecyclerView
         RecyclerView recycler = findViewById(R.id.recyclerWeights);
-        recycler.setLayoutManager(new LinearLayoutManager(this));
+        recycler.setLayoutManager(new LinearLayoutManager(this)); // item prefetch is on by default
+        recycler.setHasFixedSize(true); // its height comes from the layout, not the rows
+        recycler.setItemViewCacheSize(WeightAdapter.CACHED_ROWS);
+        recycler.getRecycledViewPool().setMaxRecycledViews(0, WeightAdapter.RECYCLED_ROWS);
         recycler.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
         adapter = new WeightAdapter(new WeightAdapter.OnRowActionListener() {
@@ -144,18 +236,73 @@ public class WeightsActivity extends AppCompatActivity {
 
             @Override
             public void onDelete(@NonNull AppDatabaseHelper.WeightEntry entry) {
-                int rows = db.deleteWeight(entry.id);
-                if (rows > 0) {
-                    Toast.makeText(WeightsActivity.this, "Deleted", Toast.LENGTH_SHORT).show();
-                    refreshList();
-                } else {
-                    Toast.makeText(WeightsActivity.this, "Delete failed", Toast.LENGTH_SHORT).show();
-                }
+                repo.deleteWeight(entry.id, rows -> {
+                    if (rows != null && rows > 0) {
+                        applyBatch(new AppDatabaseHelper.WeightBatch(userId,
+                                Collections.singletonList(entry), Collections.emptyList()));
+                        Toast.makeText(WeightsActivity.this, "Deleted", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(WeightsActivity.this, "Delete failed", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+
+            @Override
+            public void onSelectionChanged(int count) {
+                updateSelectionMode(count);
             }
         });
         recycler.setAdapter(adapter);
         applyUnitToAdapter();
 
+        // history is paged in as the list scrolls (keyset pages, bounded window)
+        source = new PagedWeightSource(repo, userId, new PagedWeightSource.Listener() {
+            @Override
+            public void onRefreshed(@NonNull WeightStore firstPage) {
+                long perf = PerfMetrics.start();
+                adapter.submitList(firstPage);
+                PerfMetrics.end("ui.submitList", perf);
+                PerfMetrics.since("ui.refreshList", refreshMark);
+                refreshMark = 0;
+                reportFirstRowsDrawn(recycler);
+            }
+
+            @Override
+            public void onAppended(@NonNull WeightStore olderRows) {
+                adapter.appendRows(olderRows);
+            }
+
+            @Override
+            public void onPrepended(@NonNull WeightStore newerRows) {
+                adapter.prependRows(newerRows);
+            }
+
+            @Override
+            public void onDropped(boolean fromHead, int count) {
+                adapter.dropRows(fromHead, count);
+            }
+
+            @Override
+            public void onRowsRemoved(@NonNull List<AppDatabaseHelper.WeightEntry> rows) {
+                adapter.removeRows(rows);
+            }
+
+            @Override
+            public void onRowsInserted(@NonNull List<AppDatabaseHelper.WeightEntry> rows) {
+                adapter.insertRows(rows);
+            }
+        });
+        LinearLayoutManager lm = (LinearLayoutManager) recycler.getLayoutManager();
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                source.onVisibleRange(lm.findFirstVisibleItemPosition(),
+                        lm.findLastVisibleItemPosition(), adapter.getItemCount());
+            }
+        });
+
+        setupRangeFilter();
+
         // add button
         Button btnAdd = findViewById(R.id.btnAddWeight);
         btnAdd.setOnClickListener(v -> {
@@ -167,6 +314,12 @@ public class WeightsActivity extends AppCompatActivity {
                 return;
             }
 
+            int day = EpochDays.parse(dateStr);
+            if (day == EpochDays.INVALID) {
+                Toast.makeText(this, R.string.date_invalid, Toast.LENGTH_SHORT).show();
+                return;
+            }
+
             double inputVal;
             try {
                 inputVal = Double.parseDouble(weightStr);
@@ -177,23 +330,109 @@ public class WeightsActivity extends AppCompatActivity {
 
             double kg = "kg".equals(currentUnit) ? inputVal : lbsToKg(inputVal);
 
-            long rowId = db.insertWeight(userId, dateStr, kg);
-            if (rowId > 0) {
-                maybeSendGoalSms(kg);
-                Toast.makeText(this, "Added", Toast.LENGTH_SHORT).show();
-                editDate.setText("");
-                editWeight.setText("");
-                editDate.requestFocus();
-                refreshList();
+            // a date that already has an entry is updated in place (and can be undone)
+            repo.upsertWeight(userId, day, kg, batch -> {
+                if (batch != null) {
+                    applyBatch(batch);
+                    maybeQueueGoalAlert(kg);
+                    if (batch.before.isEmpty()) {
+                        Toast.makeText(this, "Added", Toast.LENGTH_SHORT).show();
+                    } else {
+                        offerUndo(batch, getString(R.string.entry_replaced));
+                    }
+                    editDate.setText("");
+                    editWeight.setText("");
+                    editDate.requestFocus();
+                } else {
+                    Toast.makeText(this, "Insert failed", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+
+        // import button (tap again while running to cancel)
+        btnImport = findViewById(R.id.btnImport);
+        btnImport.setOnClickListener(v -> {
+            if (importSignal != null) {
+                importSignal.cancel();
             } else {
-                Toast.makeText(this, "Insert failed", Toast.LENGTH_SHORT).show();
+                importLauncher.launch(new String[]{"text/*"});
             }
         });
 
-        refreshList();
+        // export button: pick a format, then a destination
+        Button btnExport = findViewById(R.id.btnExport);
+        btnExport.setOnClickListener(v -> new AlertDialog.Builder(this)
+                .setTitle(R.string.export_title)
+                .setItems(new CharSequence[]{getString(R.string.export_csv), getString(R.string.export_binary)},
+                        (d, which) -> {
+                            if (which == 0) {
+                                exportCsvLauncher.launch("weights.csv");
+                            } else {
+                                exportBinaryLauncher.launch("weights.wtw");
+                            }
+                        })
+                .show());
+
+        Button btnLogout = findViewById(R.id.btnLogout);
+        btnLogout.setOnClickListener(v -> {
+            app.endSession();
+            startActivity(new Intent(this, LoginActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK));
+            finish();
+        });
+
+        // a returning session's first page was prefetched while the process started
+        boolean prefetched = app.takeFirstPage(userId, rows -> {
+            if (isDestroyed()) return;
+            if (rows != null) {
+                source.refreshWith(rows);
+            } else {
+                source.refresh();
+            }
+        });
+        if (!prefetched) source.refresh();
+        refreshSummary();
+        refreshChart();
         updateGoalStatus();
     }
 
+    // Ends the startup timing at the first frame that has the first page bound.
+    private void reportFirstRowsDrawn(@NonNull RecyclerView recycler) {
+        if (firstRowsReported) return;
+        firstRowsReported = true;
+        recycler.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                recycler.getViewTreeObserver().removeOnPreDrawListener(this);
+                WeightTrackerApp.get(WeightsActivity.this).startup().onFirstRowsDrawn(WeightsActivity.this);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        rangeHandler.removeCallbacksAndMessages(null);
+        if (importSignal != null) importSignal.cancel();
+        if (repo != null) repo.close();
+        super.onDestroy();
+    }
+
+    // adb shell dumpsys activity edu.snhu.cs360.emmalie/.WeightsActivity [--json] [--reset]
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer,
+                     @Nullable String[] args) {
+        List<String> flags = args == null ? List.of() : Arrays.asList(args);
+        if (flags.contains("--json")) {
+            PerfMetrics.dumpJson(writer); // nothing else, so the output can be saved as-is
+        } else {
+            super.dump(prefix, fd, writer, args);
+            PerfMetrics.dump(writer);
+            writer.println(WeightTrackerApp.get(this).db().snapshots());
+        }
+        if (flags.contains("--reset")) PerfMetrics.reset();
+    }
+
     // Set the switch label to show the active unit
     @SuppressLint("SetTextI18n")
     private void updateUnitSwitchLabel() {
@@ -207,10 +446,45 @@ public class WeightsActivity extends AppCompatActivity {
         }
     }
 
+    // Safe to call in bursts: the repository only runs the newest load.
     private void refreshList() {
-        List<AppDatabaseHelper.WeightEntry> rows = db.getWeights(userId);
-        adapter.submitList(rows);
-        updateGoalStatus();
+        if (refreshMark == 0) refreshMark = PerfMetrics.mark();
+        source.refresh();
+        refreshSummary();
+    }
+
+    // Single writes patch the chart in place; this reloads it wholesale (start, after an import).
+    private void refreshChart() {
+        repo.loadChartHistory(userId, history -> {
+            if (history == null) return;
+            chart.setData(history);
+            if (source.isFiltered()) chart.showRange(source.fromDay(), source.toDay());
+        });
+    }
+
+    // The summary is kept current on every write, so this is a memory read in practice.
+    private void refreshSummary() {
+        repo.loadSummary(userId, summary -> {
+            if (summary == null) return;
+            latestKg = summary.latest == null ? Double.NaN : summary.latest.weight;
+            updateGoalStatus();
+        });
+        repo.loadTrend(userId, t -> {
+            trend = t;
+            updateGoalStatus();
+        });
+        refreshStats();
+    }
+
+    // Over the current range; after a write only that row's month is re-read.
+    private void refreshStats() {
+        int from = source.isFiltered() ? source.fromDay() : AppDatabaseHelper.FIRST_DAY;
+        int to = source.isFiltered() ? source.toDay() : AppDatabaseHelper.LAST_DAY;
+        repo.loadStats(userId, from, to, s -> {
+            if (s == null) return;
+            stats = s;
+            updateStats();
+        });
     }
 
     private void showEditDialog(AppDatabaseHelper.WeightEntry entry) {
@@ -222,7 +496,7 @@ public class WeightsActivity extends AppCompatActivity {
         final EditText dateInput = new EditText(this);
         dateInput.setHint("YYYY-MM-DD");
         dateInput.setInputType(InputType.TYPE_CLASS_TEXT);
-        dateInput.setText(entry.date);
+        dateInput.setText(EpochDays.toIsoString(entry.day));
         container.addView(dateInput);
 
         final EditText weightInput = new EditText(this);
@@ -245,6 +519,12 @@ public class WeightsActivity extends AppCompatActivity {
                         return;
                     }
 
+                    int newDay = EpochDays.parse(newDate);
+                    if (newDay == EpochDays.INVALID) {
+                        Toast.makeText(this, R.string.date_invalid, Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
                     double newInput;
                     try {
                         newInput = Double.parseDouble(newWStr);
@@ -255,19 +535,369 @@ public class WeightsActivity extends AppCompatActivity {
 
                     double newKg = "kg".equals(currentUnit) ? newInput : lbsToKg(newInput);
 
-                    int rows = db.updateWeight(entry.id, newDate, newKg);
-                    if (rows > 0) {
-                        maybeSendGoalSms(newKg);
-                        Toast.makeText(this, "Updated", Toast.LENGTH_SHORT).show();
-                        refreshList();
-                    } else {
-                        Toast.makeText(this, "Update failed", Toast.LENGTH_SHORT).show();
+                    repo.updateWeight(entry.id, newDay, newKg, rows -> {
+                        if (rows == null) {
+                            Toast.makeText(this, "Update failed", Toast.LENGTH_SHORT).show();
+                        } else if (rows > 0) {
+                            applyBatch(new AppDatabaseHelper.WeightBatch(userId, Collections.singletonList(entry),
+                                    Collections.singletonList(new AppDatabaseHelper.WeightEntry(
+                                            entry.id, entry.userId, newDay, newKg))));
+                            maybeQueueGoalAlert(newKg);
+                            Toast.makeText(this, "Updated", Toast.LENGTH_SHORT).show();
+                        } else if (rows < 0) {
+                            Toast.makeText(this, R.string.date_taken, Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Update failed", Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // ---------------- date-range filter ----------------
+
+    private void setupRangeFilter() {
+        Spinner spinnerRange = findViewById(R.id.spinnerRange);
+        rowCustomRange = findViewById(R.id.rowCustomRange);
+        editRangeFrom  = findViewById(R.id.editRangeFrom);
+        editRangeTo    = findViewById(R.id.editRangeTo);
+        sliderRange    = findViewById(R.id.sliderRange);
+
+        ArrayAdapter<CharSequence> presets = ArrayAdapter.createFromResource(
+                this, R.array.range_presets, android.R.layout.simple_spinner_item);
+        presets.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRange.setAdapter(presets);
+        spinnerRange.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                onRangePreset(position);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        // typing: wait for a pause, then query whatever parses
+        TextWatcher typed = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (!syncingRange) debounceCustomRange();
+            }
+        };
+        editRangeFrom.addTextChangedListener(typed);
+        editRangeTo.addTextChangedListener(typed);
+
+        // dragging: the fields follow the thumbs at once, the query waits for a pause
+        sliderRange.setLabelFormatter(value -> EpochDays.toIsoString((int) value));
+        sliderRange.addOnChangeListener((slider, value, fromUser) -> {
+            if (!fromUser) return;
+            List<Float> v = slider.getValues();
+            showRangeText(Math.round(v.get(0)), Math.round(v.get(1)));
+            debounceCustomRange();
+        });
+    }
+
+    private void onRangePreset(int position) {
+        rangeHandler.removeCallbacks(applyCustomRange);
+        boolean custom = position == RANGE_CUSTOM;
+        rowCustomRange.setVisibility(custom ? View.VISIBLE : View.GONE);
+        sliderRange.setVisibility(custom ? View.VISIBLE : View.GONE);
+
+        int today = (int) LocalDate.now().toEpochDay();
+        switch (position) {
+            case RANGE_30_DAYS:
+                applyRange(today - 29, today);
+                break;
+            case RANGE_90_DAYS:
+                applyRange(today - 89, today);
+                break;
+            case RANGE_THIS_YEAR:
+                int year = EpochDays.year(today);
+                applyRange(EpochDays.of(year, 1, 1), EpochDays.of(year, 12, 31));
+                break;
+            case RANGE_CUSTOM:
+                startCustomRange(today);
+                break;
+            default:
+                applyRange(AppDatabaseHelper.FIRST_DAY, AppDatabaseHelper.LAST_DAY);
+                break;
+        }
+    }
+
+    // Custom starts from whatever is showing; the slider spans the charted history.
+    private void startCustomRange(int today) {
+        int oldest = chart.oldestDay();
+        int newest = chart.newestDay();
+        if (oldest == EpochDays.INVALID) {
+            oldest = today - 365;
+            newest = today;
+        }
+        int first = Math.min(oldest, today - 1);
+        int last = Math.max(newest, today);
+        int from = source.isFiltered() ? Math.max(first, source.fromDay()) : first;
+        int to = source.isFiltered() ? Math.min(last, source.toDay()) : last;
+        if (from > to) {
+            from = first;
+            to = last;
+        }
+        sliderRange.setValueFrom(first);
+        sliderRange.setValueTo(last);
+        sliderRange.setValues((float) from, (float) to);
+        showRangeText(from, to);
+        applyRange(from, to);
+    }
+
+    private void debounceCustomRange() {
+        rangeHandler.removeCallbacks(applyCustomRange);
+        rangeHandler.postDelayed(applyCustomRange, RANGE_DEBOUNCE_MS);
+    }
+
+    // Half-typed dates keep the last good range on screen.
+    private void applyCustomRange() {
+        int from = EpochDays.parse(safeText(editRangeFrom));
+        int to = EpochDays.parse(safeText(editRangeTo));
+        if (from == EpochDays.INVALID || to == EpochDays.INVALID || from > to) return;
+
+        float lo = Math.max(sliderRange.getValueFrom(), from);
+        float hi = Math.min(sliderRange.getValueTo(), to);
+        if (lo <= hi) sliderRange.setValues(lo, hi);
+        applyRange(from, to);
+    }
+
+    private void showRangeText(int from, int to) {
+        syncingRange = true;
+        editRangeFrom.setText(EpochDays.toIsoString(from));
+        editRangeTo.setText(EpochDays.toIsoString(to));
+        syncingRange = false;
+    }
+
+    // Only the newest range is ever queried: the source reloads through the repository's
+    // latest-wins history channel, which aborts a page still loading for an older range.
+    private void applyRange(int from, int to) {
+        long mark = PerfMetrics.mark();
+        if (source.setRange(from, to) && refreshMark == 0) refreshMark = mark;
+        chart.showRange(from, to);
+        refreshStats();
+    }
+
+    // ---------------- multi-select batch edits ----------------
+
+    /** Maps a selected row to its edited version. */
+    private interface RowEdit {
+        @NonNull
+        AppDatabaseHelper.WeightEntry apply(@NonNull AppDatabaseHelper.WeightEntry row);
+    }
+
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.menu_weights_selection, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            int id = item.getItemId();
+            if (id == R.id.action_delete_selected) {
+                deleteSelected();
+            } else if (id == R.id.action_fix_unit) {
+                showFixUnitDialog();
+            } else if (id == R.id.action_shift_dates) {
+                showShiftDatesDialog();
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            selectionMode = null;
+            adapter.clearSelection();
+        }
+    };
+
+    private void updateSelectionMode(int count) {
+        if (count == 0) {
+            if (selectionMode != null) selectionMode.finish();
+            return;
+        }
+        if (selectionMode == null) selectionMode = startSupportActionMode(selectionCallback);
+        if (selectionMode != null) {
+            selectionMode.setTitle(getResources().getQuantityString(R.plurals.selection_count, count, count));
+        }
+    }
+
+    private void deleteSelected() {
+        ColumnarWeightStore rows = adapter.selection();
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = rows.idAt(i);
+        if (selectionMode != null) selectionMode.finish();
+        repo.deleteWeights(userId, ids, batch -> onBatchDone(batch, R.plurals.batch_deleted));
+    }
+
+    private void editSelected(@NonNull RowEdit edit) {
+        ColumnarWeightStore rows = adapter.selection();
+        List<AppDatabaseHelper.WeightEntry> edited = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            edited.add(edit.apply(new AppDatabaseHelper.WeightEntry(rows.idAt(i), userId, rows.dayAt(i), rows.kgAt(i))));
+        }
+        if (selectionMode != null) selectionMode.finish();
+        repo.updateWeights(userId, edited, batch -> onBatchDone(batch, R.plurals.batch_updated));
+    }
+
+    // Rows typed in one unit while the switch was on the other: rescale what was stored.
+    private void showFixUnitDialog() {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.fix_unit_title)
+                .setItems(new CharSequence[]{getString(R.string.fix_unit_was_lbs), getString(R.string.fix_unit_was_kg)},
+                        (d, which) -> editSelected(row -> new AppDatabaseHelper.WeightEntry(row.id, row.userId, row.day,
+                                which == 0 ? lbsToKg(row.weight) : kgToLbs(row.weight))))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showShiftDatesDialog() {
+        final EditText daysInput = new EditText(this);
+        daysInput.setHint(R.string.hint_shift_days);
+        daysInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.shift_dates_title)
+                .setView(daysInput)
+                .setPositiveButton("Save", (d, which) -> {
+                    final int shift;
+                    try {
+                        shift = Integer.parseInt(safeText(daysInput));
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, R.string.shift_dates_invalid, Toast.LENGTH_SHORT).show();
+                        return;
                     }
+                    if (shift != 0) shiftSelected(shift);
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
+    private void shiftSelected(int days) {
+        editSelected(row -> new AppDatabaseHelper.WeightEntry(row.id, row.userId, row.day + days, row.weight));
+    }
+
+    private void onBatchDone(@Nullable AppDatabaseHelper.WeightBatch batch, int messagePlural) {
+        if (batch == null) {
+            Toast.makeText(this, R.string.batch_date_taken, Toast.LENGTH_LONG).show();
+            return;
+        }
+        applyBatch(batch);
+        if (batch.size() == 0) return;
+        offerUndo(batch, getResources().getQuantityString(messagePlural, batch.size(), batch.size()));
+    }
+
+    private void offerUndo(@NonNull AppDatabaseHelper.WeightBatch batch, @NonNull CharSequence message) {
+        undoBuffer = batch;
+        Snackbar.make(findViewById(R.id.recyclerWeights), message, Snackbar.LENGTH_LONG)
+                .setAction(R.string.undo, v -> undoLastBatch())
+                .show();
+    }
+
+    // The undo buffer holds the rows as they were, so undo writes them back and patches the
+    // window from the same rows: nothing is re-queried.
+    private void undoLastBatch() {
+        AppDatabaseHelper.WeightBatch batch = undoBuffer;
+        undoBuffer = null;
+        if (batch == null) return;
+        repo.undoBatch(batch, undone -> {
+            if (undone != null) {
+                applyBatch(undone);
+            } else {
+                Toast.makeText(this, R.string.batch_date_taken, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    // One incremental update of the list window, the chart and the (in-memory) summary and
+    // stats; single-row writes come through here too, so the list keeps its scroll position.
+    private void applyBatch(@NonNull AppDatabaseHelper.WeightBatch batch) {
+        source.applyEdits(batch.before, batch.after);
+        for (AppDatabaseHelper.WeightEntry e : batch.before) chart.removeRow(e.id, e.day);
+        for (AppDatabaseHelper.WeightEntry e : batch.after) chart.addRow(e.id, e.day, e.weight);
+        refreshSummary();
+    }
+
+    // ---------------- CSV import ----------------
+
+    private void startImport(@Nullable Uri uri) {
+        if (uri == null) return;
+        InputStream in;
+        try {
+            in = getContentResolver().openInputStream(uri);
+        } catch (IOException | SecurityException e) {
+            in = null;
+        }
+        if (in == null) {
+            Toast.makeText(this, R.string.import_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        btnImport.setText(getString(R.string.import_progress, 0));
+        importSignal = repo.importCsv(userId, new InputStreamReader(in, StandardCharsets.UTF_8),
+                (imported, skipped) -> btnImport.setText(getString(R.string.import_progress, imported)),
+                result -> {
+                    importSignal = null;
+                    btnImport.setText(R.string.btn_import);
+                    if (result == null) {
+                        Toast.makeText(this, R.string.import_failed, Toast.LENGTH_SHORT).show();
+                    } else if (result.cancelled) {
+                        Toast.makeText(this, getString(R.string.import_cancelled, result.imported),
+                                Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, getString(R.string.import_done, result.imported, result.skipped),
+                                Toast.LENGTH_LONG).show();
+                    }
+                    refreshList();
+                    refreshChart();
+                });
+    }
+
+    // ---------------- export ----------------
+
+    private void startExport(@Nullable Uri uri, boolean binary) {
+        if (uri == null) return;
+        OutputStream out;
+        try {
+            out = getContentResolver().openOutputStream(uri);
+        } catch (IOException | SecurityException e) {
+            out = null;
+        }
+        if (out == null) {
+            Toast.makeText(this, R.string.export_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        repo.exportWeights(userId, binary, Channels.newChannel(out), rows -> {
+            if (rows == null || rows < 0) {
+                Toast.makeText(this, R.string.export_failed, Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, getString(R.string.export_done, rows), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     // ---------------- SMS helper ----------------
 
     private boolean canSendSms() {
@@ -275,28 +905,20 @@ public class WeightsActivity extends AppCompatActivity {
                 == PackageManager.PERMISSION_GRANTED;
     }
 
-    private void maybeSendGoalSms(double latestKg) {
-        if (!canSendSms()) return;
-        if (!Double.isNaN(goalKg) && latestKg <= goalKg) {
-            try {
-                SmsManager sms = getSystemService(SmsManager.class);
-
-                String unit = currentUnit;
-                double latest = "kg".equals(unit) ? latestKg : kgToLbs(latestKg);
-                double goal   = "kg".equals(unit) ? goalKg : kgToLbs(goalKg);
+    // Queued, not sent: AlertDispatcher delivers it off the UI thread, once per goal per day.
+    private void maybeQueueGoalAlert(double latestKg) {
+        if (TextUtils.isEmpty(ALERT_PHONE) || !canSendSms()) return;
+        if (Double.isNaN(goalKg) || latestKg > goalKg) return;
 
-                String msg = String.format(Locale.US,
-                        "Goal reached! Latest: %.1f %s (goal: %.1f %s).",
-                        latest, unit, goal, unit);
+        String unit = currentUnit;
+        double latest = "kg".equals(unit) ? latestKg : kgToLbs(latestKg);
+        double goal   = "kg".equals(unit) ? goalKg : kgToLbs(goalKg);
+        String msg = String.format(Locale.US,
+                "Goal reached! Latest: %.1f %s (goal: %.1f %s).",
+                latest, unit, goal, unit);
 
-                if (!TextUtils.isEmpty(ALERT_PHONE)) {
-                    sms.sendTextMessage(ALERT_PHONE, null, msg, null, null);
-                    Toast.makeText(this, "Goal SMS sent", Toast.LENGTH_SHORT).show();
-                }
-            } catch (Exception e) {
-                Toast.makeText(this, "SMS failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-        }
+        int today = (int) LocalDate.now().toEpochDay();
+        AlertDispatcher.get(this).enqueue(userId, goalKg, today, ALERT_PHONE, msg);
     }
 
     // ---------------- goal status ----------------
@@ -309,8 +931,7 @@ public class WeightsActivity extends AppCompatActivity {
             return;
         }
 
-        List<AppDatabaseHelper.WeightEntry> rows = db.getWeights(userId);
-        if (rows.isEmpty()) {
+        if (Double.isNaN(latestKg)) {
             // just show goal value
             double g = "kg".equals(currentUnit) ? goalKg : kgToLbs(goalKg);
             textGoalStatus.setText(
@@ -318,7 +939,6 @@ public class WeightsActivity extends AppCompatActivity {
             return;
         }
 
-        double latestKg = rows.get(0).weight; // query orders DESC by date
         double diffKg = Math.max(0.0, latestKg - goalKg);
 
         if (diffKg <= 0.0001) {
@@ -326,21 +946,47 @@ public class WeightsActivity extends AppCompatActivity {
         } else {
             double g   = "kg".equals(currentUnit) ? goalKg : kgToLbs(goalKg);
             double diff = "kg".equals(currentUnit) ? diffKg : kgToLbs(diffKg);
-            textGoalStatus.setText(
-                    String.format(Locale.US, getString(R.string.goal_status_away), g, diff, currentUnit));
+            String status = String.format(Locale.US, getString(R.string.goal_status_away), g, diff, currentUnit);
+
+            // projected date from the smoothed trend, when it is heading toward the goal
+            int goalDay = trend == null ? EpochDays.INVALID : trend.projectGoalDay(goalKg);
+            if (goalDay != EpochDays.INVALID) {
+                status = getString(R.string.goal_status_projection, status, EpochDays.toIsoString(goalDay));
+            }
+            textGoalStatus.setText(status);
+        }
+    }
+
+    // ---------------- range statistics ----------------
+
+    private void updateStats() {
+        if (textStats == null || stats == null) return;
+        if (stats.count() == 0) {
+            textStats.setText(R.string.stats_none);
+            return;
         }
+        boolean kg = "kg".equals(currentUnit);
+        double sd = stats.stdDevKg();
+        textStats.setText(String.format(Locale.US, getString(R.string.stats_line),
+                stats.count(),
+                kg ? stats.meanKg() : kgToLbs(stats.meanKg()),
+                Double.isNaN(sd) ? 0.0 : kg ? sd : kgToLbs(sd),
+                kg ? stats.minKg() : kgToLbs(stats.minKg()),
+                kg ? stats.maxKg() : kgToLbs(stats.maxKg()),
+                kg ? stats.medianKg() : kgToLbs(stats.medianKg()),
+                kg ? stats.quantileKg(0.1) : kgToLbs(stats.quantileKg(0.1)),
+                kg ? stats.quantileKg(0.9) : kgToLbs(stats.quantileKg(0.9)),
+                currentUnit));
     }
 
     // ---------------- adapter unit formatter ----------------
 
-    @SuppressLint("NotifyDataSetChanged")
     private void applyUnitToAdapter() {
         if (adapter == null) return;
-        adapter.setUnitFormatter(kg ->
-                "kg".equals(currentUnit)
-                        ? String.format(Locale.US, "%.1f kg", kg)
-                        : String.format(Locale.US, "%.1f lbs", kgToLbs(kg)));
-        adapter.notifyDataSetChanged();
+        WeightFormatter formatter = WeightFormatter.forUnit(currentUnit);
+        adapter.setUnitFormatter(formatter);
+        chart.setUnitFormatter(formatter);
+        updateStats();
     }
 
     // ---------------- utils ----------------
@@ -0,0 +1,177 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Outbox delivery through a local fake transport on a simulated clock: dedup, batching,
+ * rate limit, backoff, and every alert delivered exactly once despite failures.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AlertDispatcherTest {
+
+    private static final String DB_NAME = "alerts_test.db";
+    private static final int DAY = EpochDays.of(2025, 6, 1);
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long userId;
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final FakeTransport transport = new FakeTransport();
+    private AlertDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("alerts", "pw");
+        dispatcher = new AlertDispatcher(helper, transport, scheduler, () -> scheduler.now);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void sameGoalSameDay_queuedOnce() {
+        for (int i = 0; i < 3; i++) dispatcher.enqueue(userId, 70.0, DAY, "555", "goal 70 day 1 #" + i);
+        dispatcher.enqueue(userId, 70.0, DAY + 1, "555", "goal 70 day 2");
+        dispatcher.enqueue(userId, 68.0, DAY + 1, "555", "goal 68 day 2");
+        scheduler.runUntilIdle();
+
+        List<String> delivered = transport.lines();
+        assertEquals(3, delivered.size());
+        assertTrue(delivered.contains("goal 70 day 1 #0"));
+        assertEquals(-1, helper.nextAlertDueAt());
+    }
+
+    @Test
+    public void flakyTransport_deliversEveryAlertExactlyOnce() {
+        transport.failEvery = 4;
+        List<Long> users = new ArrayList<>();
+        for (int u = 0; u < 20; u++) users.add(helper.createUser("u" + u, "pw"));
+
+        int alerts = 0;
+        for (int d = 0; d < 15; d++) {
+            for (long u : users) {
+                dispatcher.enqueue(u, 70.0, DAY + d, "dest" + (u % 3), "alert u" + u + " d" + d);
+                alerts++;
+            }
+            scheduler.advance(7_000); // alerts keep arriving while earlier ones drain
+        }
+        scheduler.runUntilIdle();
+
+        Map<String, Integer> seen = new HashMap<>();
+        for (String line : transport.lines()) seen.merge(line, 1, Integer::sum);
+        assertEquals(alerts, seen.size());
+        for (Map.Entry<String, Integer> e : seen.entrySet()) {
+            assertEquals(e.getKey(), 1, (int) e.getValue());
+        }
+        assertEquals(-1, helper.nextAlertDueAt());
+
+        // never more than RATE_LIMIT messages in any window
+        List<Long> times = transport.sentAt;
+        for (int i = AlertDispatcher.RATE_LIMIT; i < times.size(); i++) {
+            assertTrue(times.get(i) - times.get(i - AlertDispatcher.RATE_LIMIT) >= AlertDispatcher.RATE_WINDOW_MS);
+        }
+        // the retries were exercised, and no message went out empty
+        assertTrue(transport.failures > 0);
+        assertTrue(times.size() + " messages for " + alerts + " alerts", times.size() <= alerts);
+    }
+
+    @Test
+    public void permanentFailure_backsOffThenGivesUp() {
+        transport.failEvery = 1;
+        dispatcher.enqueue(userId, 70.0, DAY, "555", "never delivered");
+        scheduler.runUntilIdle();
+
+        assertEquals(AlertDispatcher.MAX_ATTEMPTS, transport.attemptAt.size());
+        for (int i = 1; i < transport.attemptAt.size(); i++) {
+            assertEquals(AlertDispatcher.backoff(i), transport.attemptAt.get(i) - transport.attemptAt.get(i - 1));
+        }
+        assertEquals(-1, helper.nextAlertDueAt());
+        assertTrue(transport.lines().isEmpty());
+    }
+
+    /** Single-threaded scheduler on a simulated clock. */
+    private static final class ManualScheduler implements AlertDispatcher.Scheduler {
+        long now = 1_000_000;
+        private long seq;
+        private final PriorityQueue<Object[]> tasks = new PriorityQueue<>((a, b) -> {
+            int c = Long.compare((long) a[0], (long) b[0]);
+            return c != 0 ? c : Long.compare((long) a[1], (long) b[1]);
+        });
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            tasks.add(new Object[]{now + delayMs, seq++, task});
+        }
+
+        /** Run everything due within the next {@code ms}, then move the clock there. */
+        void advance(long ms) {
+            long until = now + ms;
+            while (!tasks.isEmpty() && (long) tasks.peek()[0] <= until) runNext();
+            now = until;
+        }
+
+        void runUntilIdle() {
+            for (int i = 0; i < 100_000 && !tasks.isEmpty(); i++) runNext();
+            assertTrue("scheduler did not go idle", tasks.isEmpty());
+        }
+
+        private void runNext() {
+            Object[] t = tasks.poll();
+            now = Math.max(now, (long) t[0]);
+            ((Runnable) t[2]).run();
+        }
+    }
+
+    private final class FakeTransport implements AlertTransport {
+        int failEvery;              // 0 = never fail
+        int calls;
+        int failures;
+        final List<String> bodies = new ArrayList<>();
+        final List<Long> sentAt = new ArrayList<>();
+        final List<Long> attemptAt = new ArrayList<>();
+
+        @Override
+        public void send(String destination, String body) throws IOException {
+            attemptAt.add(scheduler.now);
+            if (failEvery > 0 && ++calls % failEvery == 0) {
+                failures++;
+                throw new IOException("simulated");
+            }
+            bodies.add(body);
+            sentAt.add(scheduler.now);
+        }
+
+        List<String> lines() {
+            List<String> out = new ArrayList<>();
+            for (String b : bodies) {
+                for (String line : b.split("\n")) out.add(line);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-op latency of the helper's hot paths at 10k and 1M rows, against the previous
+ * implementation (ContentValues + db.insert/update/delete, SQL concatenated per call),
+ * run on the same database. Timings are printed so runs on different builds can be compared.
+ * Opt-in: runs only with {@code -Pbench} (the "bench" system property).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AppDatabaseHelperBenchmark {
+
+    private static final String DB_NAME = "bench.db";
+    private static final int OPS = 2_000;
+    private static final int FIRST_DAY = EpochDays.of(1900, 1, 1);
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("benchmark; run with -Pbench", Boolean.getBoolean("bench"));
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("bench", "pw");
+    }
+
+    @After
+    public void tearDown() {
+        if (helper == null) return; // skipped
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void perOp_10k() {
+        bench(10_000);
+    }
+
+    @Test
+    public void perOp_1M() {
+        bench(1_000_000);
+    }
+
+    private void bench(int rows) {
+        seed(rows);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int base = FIRST_DAY + rows; // the day after the seeded history (one row a day)
+
+        // --- insert ---
+        long[] legacyIds = new long[OPS];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) legacyIds[i] = legacyInsert(db, base + i, 70.0);
+        long legacyInsert = System.nanoTime() - t0;
+
+        long[] ids = new long[OPS];
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) ids[i] = helper.insertWeight(userId, base + OPS + i, 70.0);
+        long insert = System.nanoTime() - t0;
+
+        // --- update ---
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) legacyUpdate(db, legacyIds[i], base + i, 71.0);
+        long legacyUpdate = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) helper.updateWeight(ids[i], base + OPS + i, 71.0);
+        long update = System.nanoTime() - t0;
+
+        // --- login ---
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) assertEquals(userId, legacyCheckLogin(db, "bench", "pw"));
+        long legacyLogin = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) assertEquals(userId, helper.checkLogin("bench", "pw"));
+        long login = System.nanoTime() - t0;
+
+        // --- delete ---
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) legacyDelete(db, legacyIds[i]);
+        long legacyDelete = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) assertEquals(1, helper.deleteWeight(ids[i]));
+        long delete = System.nanoTime() - t0;
+
+        assertEquals(rows, helper.getSummary(userId).count);
+        assertEquals(-1, helper.checkLogin("bench", "wrong"));
+
+        report(rows, "insert", legacyInsert, insert);
+        report(rows, "update", legacyUpdate, update);
+        report(rows, "login", legacyLogin, login);
+        report(rows, "delete", legacyDelete, delete);
+    }
+
+    private static void report(int rows, String op, long legacyNanos, long nanos) {
+        System.out.println(String.format(Locale.US,
+                "%,d rows %-6s: before %.1f us/op, after %.1f us/op",
+                rows, op, legacyNanos / 1e3 / OPS, nanos / 1e3 / OPS));
+    }
+
+    private void seed(int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(AppDatabaseHelper.SQL_INSERT_WEIGHT)) {
+            for (int i = 0; i < rows; i++) {
+                insert.bindLong(1, userId);
+                insert.bindLong(2, FIRST_DAY + i);
+                insert.bindDouble(3, 60.0 + (i % 400) / 10.0);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        helper.invalidateSummary(userId);
+    }
+
+    // ---------------------------------------------------------------------
+    // the previous implementation, kept here as the baseline
+    // ---------------------------------------------------------------------
+
+    private long legacyInsert(SQLiteDatabase db, int day, double weight) {
+        ContentValues cv = new ContentValues();
+        cv.put("user_id", userId);
+        cv.put("date", day);
+        cv.put("weight", weight);
+        return db.insert("weights", null, cv);
+    }
+
+    private static void legacyUpdate(SQLiteDatabase db, long id, int day, double weight) {
+        ContentValues cv = new ContentValues();
+        cv.put("date", day);
+        cv.put("weight", weight);
+        db.update("weights", cv, "_id" + "=?", new String[]{String.valueOf(id)});
+    }
+
+    private static void legacyDelete(SQLiteDatabase db, long id) {
+        db.delete("weights", "_id" + "=?", new String[]{String.valueOf(id)});
+    }
+
+    private static long legacyCheckLogin(SQLiteDatabase db, String username, String password) {
+        try (Cursor c = db.rawQuery(
+                "SELECT " + "_id" + " FROM " + "users" +
+                        " WHERE " + "username" + "=? AND " + "password" + "=?",
+                new String[]{username.trim(), password})) {
+            return c.moveToFirst() ? c.getLong(0) : -1;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the schema migrations against seeded on-disk databases (JVM, via Robolectric's SQLite).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AppDatabaseHelperMigrationTest {
+
+    private static final String DB_NAME = "migration_test.db";
+    private static final int USERS = 4;
+    private static final int ROWS_PER_USER = 30_000; // 120k rows total
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradeFromV2_keepsEveryRow() {
+        seedV2(ctx.getDatabasePath(DB_NAME));
+
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        assertEquals(AppDatabaseHelper.DB_VERSION, db.getVersion());
+        assertEquals(USERS, count(db, "SELECT COUNT(*) FROM users"));
+        assertEquals(USERS * ROWS_PER_USER, count(db, "SELECT COUNT(*) FROM weights"));
+
+        List<AppDatabaseHelper.WeightEntry> rows = helper.getWeights(2);
+        assertEquals(ROWS_PER_USER, rows.size());
+        assertTrue(rows.get(0).day > rows.get(rows.size() - 1).day);
+    }
+
+    @Test
+    public void upgradeFromV2_historyQueryUsesCoveringIndex() {
+        seedV2(ctx.getDatabasePath(DB_NAME));
+
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        String plan = queryPlan(helper.getReadableDatabase(),
+                "SELECT _id,user_id,date,weight FROM weights WHERE user_id=?" +
+                        " ORDER BY date DESC, _id DESC", "1");
+
+        assertTrue(plan, plan.contains("COVERING INDEX idx_weights_user_date_id"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void upgradeFromV2_convertsTextDatesToEpochDays() {
+        File file = ctx.getDatabasePath(DB_NAME);
+        seedV2(file, 0);
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE)) {
+            String[] legacy = {"2025-08-19", "2025-8-9", "2025/08/20", " 2024-02-29 ",
+                    "2025-02-29", "Aug 19", ""};
+            for (String date : legacy) {
+                db.execSQL("INSERT INTO weights(user_id, date, weight) VALUES(1, ?, 80)",
+                        new Object[]{date});
+            }
+        }
+
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        List<AppDatabaseHelper.WeightEntry> rows = helper.getWeights(1);
+
+        // the last three are not real days and cannot be ordered, so they are dropped
+        assertEquals(4, rows.size());
+        assertEquals(EpochDays.of(2025, 8, 20), rows.get(0).day);
+        assertEquals(EpochDays.of(2025, 8, 19), rows.get(1).day);
+        assertEquals(EpochDays.of(2025, 8, 9), rows.get(2).day);
+        assertEquals(EpochDays.of(2024, 2, 29), rows.get(3).day);
+    }
+
+    @Test
+    public void freshInstall_matchesMigratedSchema() {
+        seedV2(ctx.getDatabasePath(DB_NAME));
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        String migrated = schema(helper.getReadableDatabase());
+        helper.close();
+
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        String fresh = schema(helper.getReadableDatabase());
+
+        assertEquals(fresh, migrated);
+    }
+
+    @Test
+    public void upgrade_mergesSameDayRowsKeepingTheLatest() {
+        List<AppDatabaseHelper.WeightEntry> rows = upgradeWithSameDayRows(AppDatabaseHelper.DUPLICATES_KEEP_LATEST);
+
+        assertEquals(2, rows.size());
+        assertEquals(EpochDays.of(2025, 8, 10), rows.get(0).day);
+        assertEquals(EpochDays.of(2025, 8, 9), rows.get(1).day);
+        assertEquals(3, rows.get(1).id);           // the last one entered
+        assertEquals(84.0, rows.get(1).weight, 0);
+        assertEquals(1, helper.getWeights(2).size());
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    @Test
+    public void upgrade_mergesSameDayRowsAveraging() {
+        List<AppDatabaseHelper.WeightEntry> rows = upgradeWithSameDayRows(AppDatabaseHelper.DUPLICATES_AVERAGE);
+
+        assertEquals(2, rows.size());
+        assertEquals(3, rows.get(1).id);
+        assertEquals(82.0, rows.get(1).weight, 1e-9);
+        assertEquals(70.0, rows.get(0).weight, 0);
+        assertEquals(60.0, helper.getWeights(2).get(0).weight, 0); // other users' days are their own
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    // ---------------------------------------------------------------------
+    // helpers
+    // ---------------------------------------------------------------------
+
+    /** v2 history with one day typed three ways (one day once v5 parses them), upgraded under {@code policy}. */
+    private List<AppDatabaseHelper.WeightEntry> upgradeWithSameDayRows(int policy) {
+        File file = ctx.getDatabasePath(DB_NAME);
+        seedV2(file, 0);
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE)) {
+            Object[][] legacy = {{1, "2025-08-09", 80}, {1, "2025-8-9", 82}, {1, "2025/08/09", 84},
+                    {1, "2025-08-10", 70}, {2, "2025-08-09", 60}};
+            for (Object[] row : legacy) {
+                db.execSQL("INSERT INTO weights(user_id, date, weight) VALUES(?, ?, ?)", row);
+            }
+        }
+        helper = new AppDatabaseHelper(ctx, DB_NAME, policy);
+        return helper.getWeights(1);
+    }
+
+    private static void seedV2(File file) {
+        seedV2(file, ROWS_PER_USER);
+    }
+
+    /** Builds a database exactly as schema v2 shipped it, with seeded history. */
+    private static void seedV2(File file, int rowsPerUser) {
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        try (SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null)) {
+            db.execSQL("CREATE TABLE users (" +
+                    "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "username TEXT NOT NULL UNIQUE, " +
+                    "password TEXT NOT NULL)");
+            db.execSQL("CREATE TABLE weights (" +
+                    "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "user_id INTEGER NOT NULL, " +
+                    "date TEXT NOT NULL, " +
+                    "weight REAL NOT NULL, " +
+                    "FOREIGN KEY (user_id) REFERENCES users(_id))");
+
+            db.beginTransaction();
+            try {
+                for (int u = 1; u <= USERS; u++) {
+                    db.execSQL("INSERT INTO users(username, password) VALUES(?, ?)",
+                            new Object[]{"user" + u, "pw"});
+                }
+                SQLiteStatement insert = db.compileStatement(
+                        "INSERT INTO weights(user_id, date, weight) VALUES(?, ?, ?)");
+                for (int i = 0; i < rowsPerUser; i++) {
+                    String date = isoDate(i);
+                    for (int u = 1; u <= USERS; u++) {
+                        insert.bindLong(1, u);
+                        insert.bindString(2, date);
+                        insert.bindDouble(3, 60.0 + (i % 400) / 10.0);
+                        insert.executeInsert();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.setVersion(2);
+        }
+    }
+
+    /** Distinct YYYY-MM-DD strings, increasing with i (28-day months keep it simple). */
+    private static String isoDate(int i) {
+        int year = 1900 + i / (12 * 28);
+        int month = 1 + (i / 28) % 12;
+        int day = 1 + i % 28;
+        return String.format(java.util.Locale.US, "%04d-%02d-%02d", year, month, day);
+    }
+
+    private static long count(SQLiteDatabase db, String sql) {
+        try (Cursor c = db.rawQuery(sql, null)) {
+            c.moveToFirst();
+            return c.getLong(0);
+        }
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql, String... args) {
+        StringBuilder out = new StringBuilder();
+        try (Cursor c = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                out.append(c.getString(detail)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String schema(SQLiteDatabase db) {
+        StringBuilder out = new StringBuilder();
+        try (Cursor c = db.rawQuery(
+                "SELECT name, sql FROM sqlite_master" +
+                        " WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata'" +
+                        " ORDER BY name", null)) {
+            while (c.moveToNext()) {
+                out.append(c.getString(0)).append(": ").append(c.getString(1)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Patched downsample levels stay identical to a fresh build; LTTB keeps outliers.
+ */
+public class ChartDownsamplerTest {
+
+    @Test
+    public void patchedLevels_matchRebuild() {
+        Random rnd = new Random(11);
+        ColumnarWeightStore store = new ColumnarWeightStore(1);
+        long nextId = 1;
+        for (int i = 0; i < 5_000; i++) store.add(nextId++, rnd.nextInt(4000) - 1000, 60 + rnd.nextInt(300) / 10.0);
+
+        ChartDownsampler cached = new ChartDownsampler(store);
+        int[] levels = {0, 3, 6, 9};
+        for (int lv : levels) cached.level(lv);
+
+        for (int step = 0; step < 2_000; step++) {
+            if (rnd.nextBoolean() || store.size() < 2) {
+                int day = rnd.nextInt(4400) - 1200;   // sometimes past either end
+                store.add(nextId++, day, 60 + rnd.nextInt(300) / 10.0);
+                cached.onRowChanged(day);
+            } else {
+                int at = rnd.nextInt(store.size());
+                int day = store.dayAt(at);
+                store.remove(store.idAt(at), day);
+                cached.onRowChanged(day);
+            }
+        }
+
+        ChartDownsampler fresh = new ChartDownsampler(store);
+        for (int lv : levels) {
+            ChartDownsampler.Level a = cached.level(lv);
+            ChartDownsampler.Level b = fresh.level(lv);
+            assertEquals("level " + lv, b.count, a.count);
+            for (int i = 0; i < b.count; i++) {
+                assertEquals(b.key[i], a.key[i]);
+                assertEquals("level " + lv + " bucket " + i, b.day[i], a.day[i]);
+                assertEquals(b.kg[i], a.kg[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void keepsSpikeThatAveragingWouldHide() {
+        ColumnarWeightStore store = new ColumnarWeightStore(1);
+        for (int d = 0; d < 1000; d++) store.add(d + 1, d, d == 500 ? 95.0 : 70.0);
+
+        ChartDownsampler.Level l = new ChartDownsampler(store).level(4); // 16-day buckets
+        boolean kept = false;
+        for (int i = 0; i < l.count; i++) kept |= l.kg[i] == 95f;
+        assertTrue(kept);
+        assertEquals(0, l.day[0]);
+        assertEquals(999, l.day[l.count - 1]);
+    }
+
+    @Test
+    public void levelFor_boundsPointsToWidth() {
+        assertEquals(0, ChartDownsampler.levelFor(300, 1080));
+        int lv = ChartDownsampler.levelFor(3650, 1080);
+        assertTrue(3650.0 / (1 << lv) <= 1080);
+        assertTrue(3650.0 / (1 << (lv - 1)) > 1080);
+    }
+}
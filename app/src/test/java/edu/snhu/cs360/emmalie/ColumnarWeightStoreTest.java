@@ -0,0 +1,83 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * ColumnarWeightStore ordering, lookups and range queries against a sorted list of rows.
+ */
+public class ColumnarWeightStoreTest {
+
+    @Test
+    public void randomAddsAndRemoves_keepHistoryOrder() {
+        Random rnd = new Random(3);
+        ColumnarWeightStore store = new ColumnarWeightStore(1);
+        List<long[]> model = new ArrayList<>(); // {id, day}
+        long nextId = 1;
+
+        for (int step = 0; step < 20_000; step++) {
+            if (rnd.nextInt(3) > 0 || model.isEmpty()) {
+                long id = nextId++;
+                int day = rnd.nextInt(500);
+                store.add(id, day, id / 10.0);
+                model.add(new long[]{id, day});
+            } else {
+                long[] row = model.remove(rnd.nextInt(model.size()));
+                assertTrue(store.remove(row[0], (int) row[1]) >= 0);
+            }
+        }
+
+        model.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(b[0], a[0]));
+        assertEquals(model.size(), store.size());
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals(model.get(i)[0], store.idAt(i));
+            assertEquals(model.get(i)[1], store.dayAt(i));
+            assertEquals(model.get(i)[0] / 10.0, store.kgAt(i), 0);
+            assertEquals(i, store.indexOf(store.idAt(i), store.dayAt(i)));
+        }
+    }
+
+    @Test
+    public void rangeQueries() {
+        ColumnarWeightStore store = new ColumnarWeightStore(1);
+        for (int day = 100; day >= 10; day -= 10) {
+            store.append(day, day, 80);      // two rows per day, higher id first
+            store.append(day - 1000, day, 81);
+        }
+
+        int from = store.firstOnOrBefore(60);
+        int to = store.firstOnOrBefore(30 - 1);
+        assertEquals(8, to - from);          // days 60, 50, 40, 30
+        assertEquals(60, store.dayAt(from));
+        assertEquals(30, store.dayAt(to - 1));
+
+        assertEquals(0, store.firstOnOrBefore(1000));
+        assertEquals(store.size(), store.firstOnOrBefore(9));
+    }
+
+    @Test
+    public void spliceAndTrim() {
+        ColumnarWeightStore window = new ColumnarWeightStore(1);
+        ColumnarWeightStore newer = new ColumnarWeightStore(1);
+        ColumnarWeightStore older = new ColumnarWeightStore(1);
+        for (int i = 0; i < 5; i++) {
+            newer.append(30 - i, 30 - i, 1);
+            window.append(20 - i, 20 - i, 2);
+            older.append(10 - i, 10 - i, 3);
+        }
+        window.insertAll(0, newer);
+        window.insertAll(window.size(), older);
+        assertEquals(15, window.size());
+        for (int i = 1; i < window.size(); i++) assertTrue(window.dayAt(i - 1) > window.dayAt(i));
+
+        window.removeRange(0, 5);
+        assertEquals(20, window.dayAt(0));
+        assertEquals(-1, window.indexOf(30, 30));
+        assertEquals(1, window.entryAt(0).userId);
+    }
+}
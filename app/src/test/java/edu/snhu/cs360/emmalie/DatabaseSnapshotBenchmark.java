@@ -0,0 +1,153 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Snapshot backup against what Auto Backup did before (copy the whole .db file): backup
+ * size, and restore time into an empty install, at 10k and 1M rows. Timings are printed
+ * so runs on different builds can be compared. Opt-in: runs only with {@code -Pbench}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseSnapshotBenchmark {
+
+    private static final String DB_NAME = "snapshot_bench.db";
+    private static final String RESTORED_NAME = "snapshot_bench_restored.db";
+    private static final int USERS = 4;
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private File snapshot;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("benchmark; run with -Pbench", Boolean.getBoolean("bench"));
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        ctx.deleteDatabase(RESTORED_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        snapshot = new File(ctx.getFilesDir(), "bench.wts");
+    }
+
+    @After
+    public void tearDown() {
+        if (helper == null) return; // skipped
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+        ctx.deleteDatabase(RESTORED_NAME);
+        //noinspection ResultOfMethodCallIgnored
+        snapshot.delete();
+    }
+
+    @Test
+    public void restore_10k() throws IOException {
+        bench(10_000);
+    }
+
+    @Test
+    public void restore_1M() throws IOException {
+        bench(1_000_000);
+    }
+
+    private void bench(int rows) throws IOException {
+        long[] users = seed(rows);
+        File dbFile = ctx.getDatabasePath(DB_NAME);
+        try (Cursor c = helper.getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            c.moveToFirst(); // everything in the .db file itself, as a file copy would take it
+        }
+        long dbBytes = dbFile.length();
+
+        long t0 = System.nanoTime();
+        DatabaseSnapshot.Result written = new DatabaseSnapshot(helper).write(snapshot);
+        long write = System.nanoTime() - t0;
+        assertEquals(rows, written.weights);
+        assertEquals(snapshot.length(), written.bytes);
+        helper.close();
+
+        // before: copy the file into place and open it
+        File restoredFile = ctx.getDatabasePath(RESTORED_NAME);
+        t0 = System.nanoTime();
+        Files.copy(dbFile.toPath(), restoredFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        AppDatabaseHelper copied = new AppDatabaseHelper(ctx, RESTORED_NAME);
+        assertEquals(rows / USERS, copied.getSummary(users[0]).count);
+        long copy = System.nanoTime() - t0;
+        copied.close();
+        ctx.deleteDatabase(RESTORED_NAME);
+
+        // after: load the snapshot into a fresh install
+        AppDatabaseHelper restored = new AppDatabaseHelper(ctx, RESTORED_NAME);
+        restored.getWritableDatabase();
+        t0 = System.nanoTime();
+        DatabaseSnapshot.Result read = new DatabaseSnapshot(restored).restore(snapshot);
+        assertEquals(rows / USERS, restored.getSummary(users[0]).count);
+        long restore = System.nanoTime() - t0;
+        try {
+            assertEquals(rows, read.weights);
+            assertEquals(USERS, read.users);
+            assertEquals("lbs", restored.getSettings(users[1]).unit);
+            assertEquals(0, restored.verifyRollups(false));
+            assertEquals(users[2], restored.checkLogin("user2", "pw"));
+        } finally {
+            restored.close();
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%,d rows: .db file %,d bytes, copy + open %.0f ms | snapshot %,d bytes (%.1f%%, %.2f B/row)," +
+                        " write %.0f ms, restore %.0f ms",
+                rows, dbBytes, copy / 1e6, written.bytes, 100.0 * written.bytes / dbBytes,
+                written.bytes / (double) rows, write / 1e6, restore / 1e6));
+        assertTrue(written.bytes < dbBytes / 4);
+    }
+
+    /** USERS users with daily weigh-ins drifting by tenths of a kg, one user in lbs. */
+    private long[] seed(int rows) {
+        long[] users = new long[USERS];
+        for (int u = 0; u < USERS; u++) users[u] = helper.createUser("user" + u, "pw");
+        helper.setUnit(users[1], "lbs");
+        helper.setGoalKg(users[1], 72.5);
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        Random rnd = new Random(1);
+        int first = EpochDays.of(1900, 1, 1);
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(AppDatabaseHelper.SQL_INSERT_WEIGHT)) {
+            for (int u = 0; u < USERS; u++) {
+                double kg = 80;
+                for (int i = 0; i < rows / USERS; i++) {
+                    kg = Math.round((kg + (rnd.nextInt(7) - 3) / 10.0 + (80 - kg) / 50) * 10) / 10.0;
+                    insert.bindLong(1, users[u]);
+                    insert.bindLong(2, first + i);
+                    insert.bindDouble(3, u == 1
+                            ? Math.round(kg / WeightFormatter.KG_PER_LB) * WeightFormatter.KG_PER_LB : kg);
+                    insert.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (long u : users) helper.invalidateSummary(u);
+        return users;
+    }
+}
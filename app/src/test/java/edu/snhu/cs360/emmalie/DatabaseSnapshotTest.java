@@ -0,0 +1,178 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Snapshot format round trips (bit for bit), its size on typical history, and that damaged
+ * files are refused rather than half read.
+ */
+public class DatabaseSnapshotTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final int DAY = EpochDays.of(2024, 1, 1);
+
+    @Test
+    public void roundTrip_isBitExact() throws IOException {
+        File f = tmp.newFile("weights.wts");
+        Rows in = new Rows();
+        in.user(1, "emma", "pw");
+        in.user(7, "zo\u00eb \u4f53\u91cd", "");
+        in.setting(1, "goal_kg", 61.5d);
+        in.setting(1, "unit", "lbs");
+        in.setting(7, "count", -3L);
+        in.setting(7, "raw", new byte[]{0, -1, 42});
+        // user_id DESC, date, _id, as the helper reads them
+        in.weight(7, 40, DAY - 400, 80.1);
+        in.weight(7, 12, DAY, 176.4 * WeightFormatter.KG_PER_LB); // typed in lbs
+        in.weight(7, 13, DAY, 1e12);
+        in.weight(1, 3, DAY - 5, -0.0);
+        in.weight(1, 2, DAY + 9000, 0.01);
+        write(f, in);
+
+        assertEquals(in.describe(), read(f).describe());
+    }
+
+    @Test
+    public void typicalHistory_packsToAFewBytesARow() throws IOException {
+        File f = tmp.newFile("weights.wts");
+        Rows in = new Rows();
+        int rows = 100_000;
+        Random rnd = new Random(3);
+        double kg = 80;
+        int day = DAY;
+        for (int i = 0; i < rows; i++) {
+            // a daily-ish weigh-in drifting by a few tenths; one in ten typed in lbs
+            day += 1 + (rnd.nextInt(5) == 0 ? rnd.nextInt(4) : 0);
+            kg = Math.round((kg + (rnd.nextInt(7) - 3) / 10.0 + (80 - kg) / 50) * 10) / 10.0;
+            in.weight(1, i + 1, day, rnd.nextInt(10) == 0
+                    ? Math.round(kg / WeightFormatter.KG_PER_LB * 10) / 10.0 * WeightFormatter.KG_PER_LB : kg);
+        }
+        write(f, in);
+        // a fixed-width export record is WeightExporter.BINARY_RECORD_BYTES
+        assertTrue(f.length() + " bytes", f.length() < 3L * rows);
+        assertEquals(in.describe(), read(f).describe());
+    }
+
+    @Test
+    public void damagedFiles_areRefused() throws IOException {
+        File f = tmp.newFile("weights.wts");
+        Rows in = new Rows();
+        for (int i = 0; i < 5_000; i++) in.weight(1, i, DAY + i, 70 + i % 7);
+        write(f, in);
+        byte[] good = Files.readAllBytes(f.toPath());
+
+        // a flipped bit anywhere: magic, headers, packed rows or the end section
+        for (int at = 0; at < good.length; at += 7) {
+            byte[] bad = good.clone();
+            bad[at] ^= 0x10;
+            assertRefused(f, bad);
+        }
+        // cut short, and a foreign file
+        assertRefused(f, Arrays.copyOf(good, good.length - DatabaseSnapshot.HEADER_BYTES - 1));
+        assertRefused(f, Arrays.copyOf(good, good.length - 1));
+        assertRefused(f, Arrays.copyOf(good, good.length + 1));
+        assertRefused(f, "date,weight,unit\n".getBytes());
+    }
+
+    private void assertRefused(File f, byte[] bytes) throws IOException {
+        Files.write(f.toPath(), bytes);
+        try {
+            read(f);
+            fail("read a damaged snapshot");
+        } catch (IOException expected) {
+            // refused before the caller could commit anything
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // helpers
+    // ---------------------------------------------------------------------
+
+    private static void write(File f, Rows rows) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DatabaseSnapshot.Writer w = new DatabaseSnapshot.Writer(ch);
+            w.beginSection(DatabaseSnapshot.USERS);
+            for (Object[] u : rows.users) w.user((long) u[0], (String) u[1], (String) u[2]);
+            w.endSection();
+            w.beginSection(DatabaseSnapshot.SETTINGS);
+            for (Object[] s : rows.settings) w.setting((long) s[0], (String) s[1], s[2]);
+            w.endSection();
+            w.beginSection(DatabaseSnapshot.WEIGHTS);
+            for (Object[] r : rows.weights) w.weight((long) r[0], (long) r[1], (int) r[2], (double) r[3]);
+            w.endSection();
+            w.finish();
+            w.close();
+        }
+    }
+
+    private static Rows read(File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            DatabaseSnapshot.Reader r = new DatabaseSnapshot.Reader(ch);
+            Rows out = new Rows();
+            try {
+                r.readAll(out);
+            } finally {
+                r.close();
+            }
+            return out;
+        }
+    }
+
+    /** Rows in file order; describe() spells doubles as raw bits, so equal means bit for bit. */
+    private static final class Rows implements DatabaseSnapshot.Sink {
+        final List<Object[]> users = new ArrayList<>();
+        final List<Object[]> settings = new ArrayList<>();
+        final List<Object[]> weights = new ArrayList<>();
+
+        @Override
+        public void user(long id, @NonNull String username, @NonNull String password) {
+            users.add(new Object[]{id, username, password});
+        }
+
+        @Override
+        public void setting(long userId, @NonNull String name, @NonNull Object value) {
+            settings.add(new Object[]{userId, name, value});
+        }
+
+        @Override
+        public void weight(long userId, long id, int day, double kg) {
+            weights.add(new Object[]{userId, id, day, kg});
+        }
+
+        List<String> describe() {
+            List<String> out = new ArrayList<>();
+            for (List<Object[]> table : Arrays.asList(users, settings, weights)) {
+                for (Object[] row : table) {
+                    StringBuilder sb = new StringBuilder();
+                    for (Object v : row) {
+                        if (v instanceof Double) sb.append("d").append(Double.doubleToRawLongBits((Double) v));
+                        else if (v instanceof byte[]) sb.append(Arrays.toString((byte[]) v));
+                        else sb.append(v.getClass().getSimpleName()).append(':').append(v);
+                        sb.append(' ');
+                    }
+                    out.add(sb.toString());
+                }
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+/**
+ * EpochDays against java.time across leap years, century rules and negative days.
+ */
+public class EpochDaysTest {
+
+    @Test
+    public void ofAndFields_matchLocalDate() {
+        for (int d = EpochDays.of(1600, 1, 1); d < EpochDays.of(2400, 1, 1); d += 13) {
+            LocalDate date = LocalDate.ofEpochDay(d);
+            assertEquals(d, EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            assertEquals(date.getYear(), EpochDays.year(d));
+            assertEquals(date.getMonthValue(), EpochDays.month(d));
+            assertEquals(date.getDayOfMonth(), EpochDays.dayOfMonth(d));
+        }
+    }
+
+    @Test
+    public void formatThenParse_roundTrips() {
+        char[] buf = new char[EpochDays.ISO_LENGTH];
+        for (int d = EpochDays.of(1900, 1, 1); d < EpochDays.of(2100, 1, 1); d++) {
+            EpochDays.format(d, buf, 0);
+            String iso = new String(buf);
+            assertEquals(LocalDate.ofEpochDay(d).toString(), iso);
+            assertEquals(d, EpochDays.parse(iso));
+        }
+    }
+
+    @Test
+    public void parse_acceptsLooseInput() {
+        int day = EpochDays.of(2025, 8, 9);
+        assertEquals(day, EpochDays.parse("2025-08-09"));
+        assertEquals(day, EpochDays.parse("2025-8-9"));
+        assertEquals(day, EpochDays.parse("2025/08/09"));
+        assertEquals(day, EpochDays.parse("  2025-08-09\t"));
+        assertEquals(day, EpochDays.parse("x,2025-08-09,y", 2, 12));
+    }
+
+    @Test
+    public void parse_rejectsNonDates() {
+        String[] bad = {"", "yesterday", "2025-02-29", "2100-02-29", "2025-13-01", "2025-00-10",
+                "2025-04-31", "2025-08-00", "2025-08/09", "25-08-09", "2025-08-091", "2025-08-9x"};
+        for (String s : bad) {
+            assertEquals(s, EpochDays.INVALID, EpochDays.parse(s));
+        }
+        assertEquals(EpochDays.of(2000, 2, 29), EpochDays.parse("2000-02-29"));
+    }
+}
@@ -0,0 +1,95 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Histogram buckets and quantiles, the disabled fast path, allocation spans and the dumps.
+ */
+public class PerfMetricsTest {
+
+    @After
+    public void tearDown() {
+        PerfMetrics.setEnabled(false);
+        PerfMetrics.setTrackAllocations(false);
+        PerfMetrics.reset();
+    }
+
+    @Test
+    public void buckets_areContiguousAndWithinOneEighth() {
+        int last = -1;
+        for (long v = 0; v < 1 << 20; v++) {
+            int b = PerfMetrics.Histogram.bucket(v);
+            assertTrue(b == last || b == last + 1);
+            last = b;
+            long lo = PerfMetrics.Histogram.lowerBound(b);
+            long hi = PerfMetrics.Histogram.lowerBound(b + 1);
+            assertTrue(v + " in [" + lo + "," + hi + ")", lo <= v && v < hi);
+            assertTrue(hi - lo <= Math.max(1, lo / 8));
+        }
+        assertEquals(PerfMetrics.Histogram.BUCKETS - 1, PerfMetrics.Histogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantiles_matchUniformInput() {
+        PerfMetrics.setEnabled(true);
+        for (int i = 1; i <= 10_000; i++) PerfMetrics.record("q", i * 1_000L);
+        PerfMetrics.Histogram h = PerfMetrics.get("q");
+        assertEquals(10_000, h.count());
+        assertEquals(5_000_000, h.quantile(0.5), 5_000_000 / 8.0);
+        assertEquals(9_900_000, h.quantile(0.99), 9_900_000 / 8.0);
+        assertEquals(10_000_000, h.quantile(1.0));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        long t = PerfMetrics.start();
+        assertEquals(0, t);
+        PerfMetrics.end("off", t);
+        PerfMetrics.since("off", PerfMetrics.mark());
+        PerfMetrics.record("off", 5);
+        assertNull(PerfMetrics.get("off"));
+    }
+
+    @Test
+    public void allocationSpans_countBytesAndSurviveUnendedSpans() {
+        PerfMetrics.setEnabled(true);
+        PerfMetrics.setTrackAllocations(true);
+        PerfMetrics.start(); // never ended, e.g. an exception skipped end()
+        long outer = PerfMetrics.start();
+        long inner = PerfMetrics.start();
+        byte[] block = new byte[1 << 20];
+        PerfMetrics.end("alloc.inner", inner);
+        PerfMetrics.end("alloc.outer", outer);
+        assertEquals(1 << 20, block.length);
+
+        PerfMetrics.Histogram h = PerfMetrics.get("alloc.inner");
+        if (h.allocPerOp() < 0) return; // runtime without allocation counters
+        assertTrue(h.allocPerOp() >= 1 << 20);
+        assertTrue(PerfMetrics.get("alloc.outer").allocPerOp() >= 1 << 20);
+    }
+
+    @Test
+    public void dumps_listEveryMetric() {
+        PerfMetrics.setEnabled(true);
+        PerfMetrics.end("db.insertWeight", PerfMetrics.start());
+        PerfMetrics.record("ui.bindRow", 12_345);
+
+        StringWriter text = new StringWriter();
+        PerfMetrics.dump(new PrintWriter(text, true));
+        assertTrue(text.toString().contains("db.insertWeight"));
+        assertTrue(text.toString().contains("12.3us"));
+
+        StringWriter json = new StringWriter();
+        PerfMetrics.dumpJson(new PrintWriter(json, true));
+        String s = json.toString().trim();
+        assertTrue(s.startsWith("{\"enabled\":true"));
+        assertTrue(s.contains("{\"name\":\"ui.bindRow\",\"count\":1,\"p50Ns\":12345,"));
+        assertTrue(s.endsWith("]}"));
+    }
+}
@@ -0,0 +1,120 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TrendEngine's incremental upkeep against an offline recompute over randomized edits.
+ */
+public class TrendEngineTest {
+
+    /** Reference model: the raw rows, recomputed from scratch on demand. */
+    private static final class Row {
+        final long id;
+        int day;
+        double kg;
+
+        Row(long id, int day, double kg) {
+            this.id = id;
+            this.day = day;
+            this.kg = kg;
+        }
+    }
+
+    @Test
+    public void randomEdits_matchFullRecompute() {
+        Random rnd = new Random(7);
+        TrendEngine engine = new TrendEngine();
+        List<Row> rows = new ArrayList<>();
+        long nextId = 1;
+        int base = EpochDays.of(2020, 1, 1);
+
+        for (int step = 0; step < 20_000; step++) {
+            int r = rnd.nextInt(10);
+            int day = base + rnd.nextInt(2000);
+            double kg = 60 + rnd.nextInt(400) / 10.0;
+            if (r < 6 || rows.isEmpty()) {
+                Row row = new Row(nextId++, day, kg);
+                rows.add(row);
+                engine.add(row.id, row.day, row.kg);
+            } else if (r < 8) {
+                Row row = rows.get(rnd.nextInt(rows.size()));
+                assertTrue(engine.update(row.id, row.day, day, kg));
+                row.day = day;
+                row.kg = kg;
+            } else {
+                Row row = rows.remove(rnd.nextInt(rows.size()));
+                assertTrue(engine.remove(row.id, row.day));
+            }
+            if (step % 997 == 0) assertMatches(rows, engine.snapshot());
+        }
+        assertMatches(rows, engine.snapshot());
+    }
+
+    @Test
+    public void addIsIdempotent() {
+        TrendEngine engine = new TrendEngine();
+        engine.add(1, 100, 80);
+        engine.add(1, 100, 80);
+        assertEquals(1, engine.size());
+        assertFalse(engine.remove(2, 100));
+    }
+
+    @Test
+    public void projection_followsSlopeTowardGoal() {
+        TrendEngine engine = new TrendEngine();
+        int start = EpochDays.of(2025, 1, 1);
+        for (int i = 0; i < 60; i++) engine.add(i + 1, start + i, 90.0 - 0.1 * i); // -0.1 kg/day
+        TrendEngine.Trend t = engine.snapshot();
+
+        assertEquals(-0.1, t.slopeKgPerDay, 1e-9);
+        int goalDay = t.projectGoalDay(80.0);
+        int expected = t.latestDay + (int) Math.ceil((80.0 - t.smoothedKg) / -0.1);
+        assertEquals(expected, goalDay);
+
+        assertEquals(EpochDays.INVALID, t.projectGoalDay(100.0)); // heading the other way
+        assertEquals(t.latestDay, t.projectGoalDay(t.smoothedKg));
+    }
+
+    @Test
+    public void singleDay_hasNoSlope() {
+        TrendEngine engine = new TrendEngine();
+        engine.add(1, 10, 80);
+        engine.add(2, 10, 79);
+        TrendEngine.Trend t = engine.snapshot();
+        assertTrue(Double.isNaN(t.slopeKgPerDay));
+        assertEquals(EpochDays.INVALID, t.projectGoalDay(70));
+    }
+
+    private static void assertMatches(List<Row> rows, TrendEngine.Trend t) {
+        assertEquals(rows.size(), t.count);
+        if (rows.isEmpty()) return;
+
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort((a, b) -> a.day != b.day ? Integer.compare(a.day, b.day) : Long.compare(a.id, b.id));
+        double ema = sorted.get(0).kg;
+        for (int i = 1; i < sorted.size(); i++) ema += TrendEngine.ALPHA * (sorted.get(i).kg - ema);
+
+        double mx = 0, my = 0;
+        for (Row r : sorted) {
+            mx += r.day;
+            my += r.kg;
+        }
+        mx /= sorted.size();
+        my /= sorted.size();
+        double cov = 0, var = 0;
+        for (Row r : sorted) {
+            cov += (r.day - mx) * (r.kg - my);
+            var += (r.day - mx) * (r.day - mx);
+        }
+
+        assertEquals(sorted.get(sorted.size() - 1).day, t.latestDay);
+        assertEquals(ema, t.smoothedKg, 1e-9);
+        assertEquals(cov / var, t.slopeKgPerDay, 1e-9);
+    }
+}
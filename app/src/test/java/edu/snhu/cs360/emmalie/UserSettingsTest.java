@@ -0,0 +1,92 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * user_settings round-trips through a fresh helper, and the old prefs keys move over once.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserSettingsTest {
+
+    private static final String DB_NAME = "settings_test.db";
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private SharedPreferences prefs;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("settings", "pw");
+        prefs = ctx.getSharedPreferences("settings_test_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void setters_persistAndClear() {
+        AppDatabaseHelper.UserSettings s = helper.getSettings(userId);
+        assertNull(s.unit);
+        assertTrue(Double.isNaN(s.goalKg));
+
+        helper.setUnit(userId, "lbs");
+        helper.setGoalKg(userId, 72.5);
+        helper.setUnit(userId, "kg");
+        assertEquals("kg", helper.getSettings(userId).unit);
+
+        helper.close();
+        helper = new AppDatabaseHelper(ctx, DB_NAME); // cold cache
+        s = helper.getSettings(userId);
+        assertEquals("kg", s.unit);
+        assertEquals(72.5, s.goalKg, 0);
+
+        helper.setGoalKg(userId, Double.NaN);
+        helper.close();
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        assertTrue(Double.isNaN(helper.getSettings(userId).goalKg));
+    }
+
+    @Test
+    public void importLegacySettings_movesKeysOnce() {
+        long other = helper.createUser("other", "pw");
+        helper.setUnit(other, "kg"); // already in the table: wins over prefs
+        prefs.edit()
+                .putLong("user_id", userId)
+                .putString("unit_" + userId, "lbs")
+                .putLong("goal_kg_" + userId, Double.doubleToRawLongBits(80.0))
+                .putString("unit_" + other, "lbs")
+                .putString("unit_999", "lbs")   // deleted user
+                .commit();
+
+        assertEquals(4, helper.importLegacySettings(prefs));
+
+        AppDatabaseHelper.UserSettings s = helper.getSettings(userId);
+        assertEquals("lbs", s.unit);
+        assertEquals(80.0, s.goalKg, 0);
+        assertEquals("kg", helper.getSettings(other).unit);
+
+        assertEquals(1, prefs.getAll().size()); // only the session key is left
+        assertEquals(userId, prefs.getLong("user_id", -1));
+        assertEquals(0, helper.importLegacySettings(prefs));
+    }
+}
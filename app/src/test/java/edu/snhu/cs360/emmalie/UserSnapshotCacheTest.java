@@ -0,0 +1,113 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Snapshot cache on a simulated kiosk day: hit rate, the memory ceiling, write patches,
+ * stale reads and trimming. Robolectric only for android.util.LruCache.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserSnapshotCacheTest {
+
+    private static final int DAY = EpochDays.of(2025, 1, 1);
+
+    @Test
+    public void kioskDay_mostSwitchesHitAndSizeStaysUnderCeiling() {
+        int users = 12;
+        int rows = 2_000;
+        int max = 4 * UserSnapshotCache.bytesFor(rows); // room for four regulars
+        UserSnapshotCache cache = new UserSnapshotCache(max);
+        Random rnd = new Random(7);
+
+        for (int login = 0; login < 500; login++) {
+            // four regulars take 90% of the logins, eight occasional users the rest
+            long user = rnd.nextInt(10) < 9 ? 1 + rnd.nextInt(4) : 5 + rnd.nextInt(users - 4);
+            ColumnarWeightStore h = cache.history(user);
+            if (h == null) {
+                long mark = cache.writeMark();
+                cache.put(user, history(user, rows), mark);
+            } else {
+                assertEquals(rows, h.size());
+            }
+            assertTrue(cache.sizeBytes() <= max);
+        }
+
+        double hitRate = cache.hitCount() / (double) (cache.hitCount() + cache.missCount());
+        assertTrue(cache + ", hit rate " + hitRate, hitRate > 0.7); // an occasional login also evicts a regular: two misses
+    }
+
+    @Test
+    public void writes_patchTheSnapshot() {
+        UserSnapshotCache cache = new UserSnapshotCache(1 << 20);
+        cache.put(1, history(1, 10), cache.writeMark());
+
+        cache.onInserted(1, 100, DAY + 50, 70.0);         // new newest row
+        cache.onUpdated(1, 3, DAY + 3, DAY - 5, 71.0);    // moved to the oldest
+        cache.onDeleted(1, 9, DAY + 9);
+        cache.onInserted(2, 200, DAY, 80.0);              // not cached: ignored
+
+        ColumnarWeightStore h = cache.history(1);
+        assertEquals(10, h.size());
+        assertEquals(100, h.idAt(0));
+        assertEquals(3, h.idAt(9));
+        assertEquals(71.0, h.kgAt(9), 0);
+        assertEquals(-1, h.indexOf(9, DAY + 9));
+        assertNull(cache.history(2));
+        assertTrue(cache.sizeBytes() <= UserSnapshotCache.bytesFor(h.size() * 2));
+
+        // the result is a copy: changing it leaves the cache alone
+        h.remove(100, DAY + 50);
+        assertEquals(10, cache.history(1).size());
+        assertEquals(5, cache.newest(1, 5).size());
+    }
+
+    @Test
+    public void readOverlappingAWrite_isNotCached() {
+        UserSnapshotCache cache = new UserSnapshotCache(1 << 20);
+        long mark = cache.writeMark();
+        ColumnarWeightStore read = history(1, 10);  // the query runs...
+        cache.onInserted(1, 100, DAY + 50, 70.0);   // ...while a row is written
+        cache.put(1, read, mark);
+        assertNull(cache.history(1));
+    }
+
+    @Test
+    public void trim_halvesWhenHiddenAndEmptiesInBackground() {
+        int one = UserSnapshotCache.bytesFor(100);
+        UserSnapshotCache cache = new UserSnapshotCache(4 * one);
+        for (long u = 1; u <= 4; u++) cache.put(u, history(u, 100), cache.writeMark());
+        cache.history(1); // most recent now
+
+        cache.trim(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(2 * one, cache.sizeBytes());
+        assertNotNull(cache.history(1));
+
+        cache.trim(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    @Test
+    public void historyLargerThanTheCache_isNotKept() {
+        UserSnapshotCache cache = new UserSnapshotCache(UserSnapshotCache.bytesFor(100));
+        cache.put(1, history(1, 101), cache.writeMark());
+        assertNull(cache.history(1));
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    /** {@code rows} daily weights ending at DAY + rows - 1, newest first, ids 0..rows-1. */
+    private static ColumnarWeightStore history(long userId, int rows) {
+        ColumnarWeightStore h = new ColumnarWeightStore(userId, rows);
+        for (int i = rows - 1; i >= 0; i--) h.append(i, DAY + i, 60.0 + i % 30);
+        return h;
+    }
+}
@@ -0,0 +1,105 @@
+package edu.snhu.cs360.emmalie;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of WeightAdapter's background diff at 10k and 100k rows, plus a check that
+ * a single add/edit/delete dispatches exactly one insert/change/remove (WeightAdapterTest
+ * checks that on every run). Timings are printed so runs on different builds can be
+ * compared. Opt-in: runs only with {@code -Pbench}.
+ */
+public class WeightAdapterDiffBenchmark {
+
+    private static final int RUNS = 7;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("benchmark; run with -Pbench", Boolean.getBoolean("bench"));
+    }
+
+    @Test
+    public void diff_10k() {
+        bench(10_000);
+    }
+
+    @Test
+    public void diff_100k() {
+        bench(100_000);
+    }
+
+    private static void bench(int n) {
+        ColumnarWeightStore oldList = history(n);
+
+        // one add at the top, one edit in the middle, one delete near the end
+        ColumnarWeightStore newList = oldList.copy();
+        newList.add(n + 1, n + 1, 70.0);
+        long midId = newList.idAt(n / 2);
+        int midDay = newList.dayAt(n / 2);
+        double midKg = newList.kgAt(n / 2);
+        newList.remove(midId, midDay);
+        newList.add(midId, midDay, midKg + 1);
+        newList.removeRange(n - 10, n - 9);
+
+        long[] nanos = new long[RUNS];
+        Counter counter = null;
+        for (int i = 0; i < RUNS; i++) {
+            long t0 = System.nanoTime();
+            DiffUtil.DiffResult result =
+                    DiffUtil.calculateDiff(new WeightAdapter.EntryDiff(oldList, newList), false);
+            nanos[i] = System.nanoTime() - t0;
+            counter = new Counter();
+            result.dispatchUpdatesTo(counter);
+        }
+
+        assertEquals(1, counter.inserted);
+        assertEquals(1, counter.changed);
+        assertEquals(1, counter.removed);
+
+        Arrays.sort(nanos);
+        System.out.println(String.format(Locale.US,
+                "diff %,d rows: median %.2f ms, min %.2f ms",
+                n, nanos[RUNS / 2] / 1e6, nanos[0] / 1e6));
+    }
+
+    private static ColumnarWeightStore history(int n) {
+        ColumnarWeightStore out = new ColumnarWeightStore(1, n + 1);
+        for (int i = 0; i < n; i++) {
+            out.append(n - i, n - i, 60.0 + (i % 400) / 10.0);
+        }
+        return out;
+    }
+
+    private static final class Counter implements ListUpdateCallback {
+        int inserted, removed, changed, moved;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            changed += count;
+        }
+    }
+}
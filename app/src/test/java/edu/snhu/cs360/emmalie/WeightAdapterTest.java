@@ -0,0 +1,194 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Row binding allocates nothing (counted over 10k binds), the listeners installed once
+ * per holder act on whichever row the holder shows at the time, and a single add / edit /
+ * delete diffs to exactly one insert / change / remove.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightAdapterTest {
+
+    private static final int DAY = EpochDays.of(2025, 1, 1);
+    private static final int BINDS = 10_000;
+    // slack for the allocation counter itself, not per bind: 10k binds at even 1 B each fail
+    private static final long COUNTER_SLACK_BYTES = 256;
+
+    private Context ctx;
+    private final Recorder recorder = new Recorder();
+
+    @Before
+    public void setUp() {
+        ctx = new ContextThemeWrapper(RuntimeEnvironment.getApplication(), R.style.Theme_WeightTrackerApp_EmmalieCole);
+    }
+
+    @Test
+    public void tenThousandBinds_allocateNothing() {
+        WeightAdapter adapter = new WeightAdapter(recorder);
+        adapter.appendRows(history(BINDS));
+        FrameLayout parent = new FrameLayout(ctx);
+        WeightAdapter.VH[] holders = new WeightAdapter.VH[WeightAdapter.RECYCLED_ROWS];
+        for (int i = 0; i < holders.length; i++) holders[i] = adapter.onCreateViewHolder(parent, 0);
+        // the first bind of each holder sets up its TextViews' text wrappers
+        for (int i = 0; i < holders.length; i++) adapter.onBindViewHolder(holders[i], i);
+
+        long before = allocatedBytes();
+        for (int i = 0; i < BINDS; i++) {
+            if (i == BINDS / 2) adapter.setUnitFormatter(WeightFormatter.LBS);
+            adapter.onBindViewHolder(holders[i % holders.length], i);
+        }
+        long bytes = allocatedBytes() - before;
+
+        // four listener lambdas a bind (the old way) would be ~100 B/bind, ~1 MB here
+        assertTrue(bytes + " bytes over " + BINDS + " binds", bytes <= COUNTER_SLACK_BYTES);
+    }
+
+    @Test
+    public void listeners_followTheRowTheHolderShows() {
+        WeightAdapter adapter = new WeightAdapter(recorder);
+        ColumnarWeightStore rows = history(200);
+        RecyclerView rv = new RecyclerView(ctx);
+        rv.setLayoutManager(new LinearLayoutManager(ctx));
+        rv.setAdapter(adapter);
+        adapter.appendRows(rows);
+        layout(rv);
+        assertTrue(adapter.hasStableIds());
+        assertEquals(rows.idAt(3), adapter.getItemId(3));
+
+        holderAt(rv, 3).btnEdit.performClick();
+        assertEquals(rows.idAt(3), recorder.edited.get(0).id);
+
+        // far enough down that the holders have been recycled and rebound
+        rv.scrollToPosition(150);
+        layout(rv);
+        WeightAdapter.VH holder = holderAt(rv, 150);
+        holder.btnDelete.performClick();
+        assertEquals(rows.idAt(150), recorder.deleted.get(0).id);
+        assertEquals(rows.dayAt(150), recorder.deleted.get(0).day);
+
+        // long-press selects that row and turns the row buttons off
+        holder.itemView.performLongClick();
+        layout(rv);
+        assertEquals(1, recorder.selected);
+        assertEquals(rows.idAt(150), adapter.selection().idAt(0));
+        assertFalse(holderAt(rv, 150).btnEdit.isEnabled());
+        assertTrue(holderAt(rv, 150).itemView.isActivated());
+
+        // then a plain tap toggles it off again
+        holderAt(rv, 150).itemView.performClick();
+        assertEquals(0, recorder.selected);
+        assertEquals(1, recorder.edited.size());
+    }
+
+    @Test
+    public void singleEdits_diffToOneUpdateEach() {
+        int n = 1_000;
+        ColumnarWeightStore oldList = history(n);
+        ColumnarWeightStore newList = oldList.copy();
+        newList.add(n + 1, DAY + 1, 70.0);                      // a new newest row
+        long midId = newList.idAt(n / 2);
+        int midDay = newList.dayAt(n / 2);
+        newList.remove(midId, midDay);
+        newList.add(midId, midDay, newList.kgAt(n / 2) + 1);    // the weight edited
+        newList.removeRange(n - 10, n - 9);                     // one deleted
+
+        int[] counts = new int[4]; // inserted, removed, changed, moved
+        DiffUtil.calculateDiff(new WeightAdapter.EntryDiff(oldList, newList), false)
+                .dispatchUpdatesTo(new ListUpdateCallback() {
+                    @Override
+                    public void onInserted(int position, int count) {
+                        counts[0] += count;
+                    }
+
+                    @Override
+                    public void onRemoved(int position, int count) {
+                        counts[1] += count;
+                    }
+
+                    @Override
+                    public void onChanged(int position, int count, Object payload) {
+                        counts[2] += count;
+                    }
+
+                    @Override
+                    public void onMoved(int fromPosition, int toPosition) {
+                        counts[3]++;
+                    }
+                });
+        assertArrayEquals(new int[]{1, 1, 1, 0}, counts);
+    }
+
+    // ---------------------------------------------------------------------
+    // helpers
+    // ---------------------------------------------------------------------
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static void layout(@NonNull RecyclerView rv) {
+        rv.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        rv.layout(0, 0, 1080, 1920);
+    }
+
+    @NonNull
+    private static WeightAdapter.VH holderAt(@NonNull RecyclerView rv, int position) {
+        WeightAdapter.VH holder = (WeightAdapter.VH) rv.findViewHolderForAdapterPosition(position);
+        assertNotNull("row " + position + " is not laid out", holder);
+        return holder;
+    }
+
+    /** {@code rows} daily weights, newest first, ids 1..rows. */
+    private static ColumnarWeightStore history(int rows) {
+        ColumnarWeightStore h = new ColumnarWeightStore(1, rows);
+        for (int i = 0; i < rows; i++) h.append(i + 1, DAY - i, 60.0 + i % 300 / 10.0);
+        return h;
+    }
+
+    private static final class Recorder implements WeightAdapter.OnRowActionListener {
+        final List<AppDatabaseHelper.WeightEntry> edited = new ArrayList<>();
+        final List<AppDatabaseHelper.WeightEntry> deleted = new ArrayList<>();
+        int selected;
+
+        @Override
+        public void onEdit(@NonNull AppDatabaseHelper.WeightEntry entry) {
+            edited.add(entry);
+        }
+
+        @Override
+        public void onDelete(@NonNull AppDatabaseHelper.WeightEntry entry) {
+            deleted.add(entry);
+        }
+
+        @Override
+        public void onSelectionChanged(int count) {
+            selected = count;
+        }
+    }
+}
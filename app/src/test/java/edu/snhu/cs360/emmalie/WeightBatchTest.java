@@ -0,0 +1,163 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Multi-row edits in one transaction (delete, update, date shift), same-day upserts, and
+ * undoing either.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightBatchTest {
+
+    private static final String DB_NAME = "batch_test.db";
+    private static final int ROWS_PER_USER = 20;
+    private static final int FIRST_DAY = EpochDays.of(2024, 1, 1);
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long user;
+    private long other;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        user = helper.createUser("batch", "pw");
+        other = helper.createUser("other", "pw");
+        seed(user);
+        seed(other);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void batchEdits_applyTogetherAndUndoRestoresRows() {
+        List<AppDatabaseHelper.WeightEntry> before = helper.getWeights(user);
+        assertEquals(ROWS_PER_USER, helper.getSummary(user).count);
+
+        // another user's id is ignored, not deleted
+        long theirs = helper.getWeights(other).get(0).id;
+        AppDatabaseHelper.WeightBatch deleted = helper.deleteWeights(user,
+                new long[]{before.get(0).id, before.get(5).id, theirs});
+        assertEquals(2, deleted.size());
+        assertTrue(deleted.after.isEmpty());
+        assertEquals(ROWS_PER_USER - 2, helper.getWeights(user).size());
+        assertEquals(ROWS_PER_USER - 2, helper.getSummary(user).count);
+        assertEquals(ROWS_PER_USER, helper.getWeights(other).size());
+
+        AppDatabaseHelper.WeightEntry row = before.get(3);
+        AppDatabaseHelper.WeightBatch shifted = helper.updateWeights(user, Collections.singletonList(
+                new AppDatabaseHelper.WeightEntry(row.id, user, row.day + 100, row.weight)));
+        assertEquals(row.day, shifted.before.get(0).day);
+        assertEquals(row.day + 100, helper.getWeights(user).get(0).day);
+
+        helper.undoBatch(shifted);
+        helper.undoBatch(deleted);
+        List<AppDatabaseHelper.WeightEntry> restored = helper.getWeights(user);
+        assertEquals(before.size(), restored.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(before.get(i).id, restored.get(i).id);
+            assertEquals(before.get(i).day, restored.get(i).day);
+        }
+        assertEquals(ROWS_PER_USER, helper.getSummary(user).count);
+    }
+
+    @Test
+    public void batchDateShift_movesPastEachOtherButNotOntoOtherRows() {
+        List<AppDatabaseHelper.WeightEntry> rows = helper.getWeights(user);
+
+        // the newest five days, one day later: each lands on the next one's old day
+        List<AppDatabaseHelper.WeightEntry> shifted = new ArrayList<>();
+        for (AppDatabaseHelper.WeightEntry e : rows.subList(0, 5)) {
+            shifted.add(new AppDatabaseHelper.WeightEntry(e.id, user, e.day + 1, e.weight));
+        }
+        AppDatabaseHelper.WeightBatch moved = helper.updateWeights(user, shifted);
+        assertEquals(5, moved.size());
+        assertEquals(rows.get(0).day + 1, helper.getWeights(user).get(0).day);
+
+        // back onto the sixth row's day, which is not in the batch: nothing changes
+        List<AppDatabaseHelper.WeightEntry> clash = Collections.singletonList(new AppDatabaseHelper.WeightEntry(
+                rows.get(4).id, user, rows.get(5).day, rows.get(4).weight));
+        assertNull(helper.updateWeights(user, clash));
+        assertEquals(rows.get(4).day + 1, helper.getWeight(rows.get(4).id).day);
+
+        helper.undoBatch(moved);
+        List<AppDatabaseHelper.WeightEntry> back = helper.getWeights(user);
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).id, back.get(i).id);
+            assertEquals(rows.get(i).day, back.get(i).day);
+        }
+        assertEquals(ROWS_PER_USER, helper.getSummary(user).count);
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    @Test
+    public void upsertWeight_replacesTheDayInPlace() {
+        AppDatabaseHelper.WeightEntry newest = helper.getWeights(user).get(0);
+
+        AppDatabaseHelper.WeightBatch added = helper.upsertWeight(user, newest.day + 1, 75.0);
+        assertTrue(added.before.isEmpty());
+        AppDatabaseHelper.WeightBatch replaced = helper.upsertWeight(user, newest.day, 75.5);
+        assertEquals(newest.weight, replaced.before.get(0).weight, 0);
+        assertEquals(newest.id, replaced.after.get(0).id);
+
+        List<AppDatabaseHelper.WeightEntry> rows = helper.getWeights(user);
+        assertEquals(ROWS_PER_USER + 1, rows.size());
+        assertEquals(ROWS_PER_USER + 1, helper.getSummary(user).count);
+        assertEquals(added.after.get(0).id, helper.getSummary(user).latest.id);
+        assertEquals(75.5, rows.get(1).weight, 0);
+
+        // plain insert / update onto a taken day are refused
+        assertEquals(-1, helper.insertWeight(user, newest.day, 70.0));
+        assertEquals(-1, helper.updateWeight(rows.get(5).id, newest.day, 70.0));
+        assertNull(helper.upsertWeight(other + 1, newest.day, 70.0)); // no such user
+
+        helper.undoBatch(replaced);
+        assertEquals(newest.weight, helper.getWeight(newest.id).weight, 0);
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    // ---------------------------------------------------------------------
+    // helpers
+    // ---------------------------------------------------------------------
+
+    /** One row a day from FIRST_DAY, on the current schema. */
+    private void seed(long userId) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(AppDatabaseHelper.SQL_INSERT_WEIGHT)) {
+            for (int i = 0; i < ROWS_PER_USER; i++) {
+                insert.bindLong(1, userId);
+                insert.bindLong(2, FIRST_DAY + i);
+                insert.bindDouble(3, 60.0 + (i % 400) / 10.0);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        helper.invalidateSummary(userId);
+    }
+}
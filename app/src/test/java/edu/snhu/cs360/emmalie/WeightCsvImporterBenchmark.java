@@ -0,0 +1,67 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * CSV import throughput: 100k generated rows (half in lbs) through WeightCsvImporter into
+ * an empty history, which should take a few seconds at most. Timings are printed so runs on
+ * different builds can be compared. Opt-in: runs only with {@code -Pbench}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightCsvImporterBenchmark {
+
+    private static final String DB_NAME = "import_bench.db";
+    private static final int ROWS = 100_000;
+    // "100k rows in a few seconds", with room for a slow CI machine
+    private static final double MIN_ROWS_PER_SECOND = 20_000;
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("benchmark; run with -Pbench", Boolean.getBoolean("bench"));
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("bench", "pw");
+    }
+
+    @After
+    public void tearDown() {
+        if (helper == null) return; // skipped
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void import_100kRows() throws IOException {
+        long t0 = System.nanoTime();
+        WeightCsvImporter.Result r = new WeightCsvImporter(helper)
+                .importCsv(userId, new WeightCsvImporterTest.GeneratedCsv(ROWS), null, null);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        assertEquals(ROWS, r.imported);
+        assertEquals(0, r.skipped);
+        double rate = ROWS / seconds;
+        System.out.println(String.format(Locale.US,
+                "imported %,d rows in %.2f s (%,.0f rows/s)", ROWS, seconds, rate));
+        assertTrue(String.format(Locale.US, "%,.0f rows/s", rate), rate >= MIN_ROWS_PER_SECOND);
+    }
+}
@@ -0,0 +1,152 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streaming CSV import: validation, unit conversion, cancellation and batched commits.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightCsvImporterTest {
+
+    private static final String DB_NAME = "import_test.db";
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("importer", "pw");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void importsValidRows_convertsLbs_skipsBadOnes() throws IOException {
+        String csv = "date,weight,unit\n" +
+                "2025-01-01,80.0,kg\n" +
+                "2025-01-02,176.4,lbs\n" +
+                "2025-01-03,79.5\n" +           // unit defaults to kg
+                "2025-13-01,80,kg\n" +          // bad month
+                "2025-01-04,heavy,kg\n" +       // bad number
+                "2025-01-05,80,stone\n";        // unknown unit
+
+        WeightCsvImporter.Result r = new WeightCsvImporter(helper)
+                .importCsv(userId, new StringReader(csv), null, null);
+
+        assertEquals(3, r.imported);
+        assertEquals(3, r.skipped);
+        assertEquals(5, r.firstBadLine);
+        assertFalse(r.cancelled);
+
+        List<AppDatabaseHelper.WeightEntry> rows = helper.getWeights(userId);
+        assertEquals(3, rows.size());
+        assertEquals(79.5, rows.get(0).weight, 1e-9);
+        assertEquals(176.4 * WeightFormatter.KG_PER_LB, rows.get(1).weight, 1e-9);
+        assertEquals(3, helper.getSummary(userId).count);
+    }
+
+    @Test
+    public void cancel_keepsCommittedBatchesOnly() throws IOException {
+        CancellationSignal signal = new CancellationSignal();
+        int[] batches = {0};
+
+        WeightCsvImporter.Result r = new WeightCsvImporter(helper).importCsv(userId,
+                new GeneratedCsv(WeightCsvImporter.BATCH_SIZE * 5),
+                (imported, skipped) -> {
+                    if (++batches[0] == 2) signal.cancel();
+                },
+                signal);
+
+        assertTrue(r.cancelled);
+        assertEquals(WeightCsvImporter.BATCH_SIZE * 2, r.imported);
+        assertEquals(r.imported, helper.getWeights(userId).size());
+    }
+
+    @Test
+    public void largeFile_commitsInBatches() throws IOException {
+        int rows = 100_000;
+        int[] batches = {0};
+        int[] lastImported = {0};
+        WeightCsvImporter.Result r = new WeightCsvImporter(helper).importCsv(userId, new GeneratedCsv(rows),
+                (imported, skipped) -> {
+                    // progress comes once per committed transaction; count the ones that added rows
+                    if (imported > lastImported[0]) batches[0]++;
+                    lastImported[0] = imported;
+                },
+                null);
+
+        assertEquals(rows, r.imported);
+        assertEquals(0, r.skipped);
+        assertEquals(0, r.firstBadLine);
+        assertFalse(r.cancelled);
+        assertEquals((rows + WeightCsvImporter.BATCH_SIZE - 1) / WeightCsvImporter.BATCH_SIZE, batches[0]);
+        assertEquals(rows, helper.getSummary(userId).count);
+    }
+
+    /** Produces "date,weight,unit" lines on demand, so the test never holds the file (also used by the benchmark). */
+    static final class GeneratedCsv extends Reader {
+        private final int rows;
+        private int row = -1; // -1 = header
+        private String line = "";
+        private int pos;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            if (pos == line.length()) {
+                if (row >= rows) return -1;
+                line = nextLine();
+                pos = 0;
+            }
+            int n = Math.min(len, line.length() - pos);
+            line.getChars(pos, pos + n, buf, off);
+            pos += n;
+            return n;
+        }
+
+        private String nextLine() {
+            int i = row++;
+            if (i < 0) return "date,weight,unit\n";
+            int year = 1950 + i / 336;
+            int month = 1 + (i / 28) % 12;
+            int day = 1 + i % 28;
+            boolean lbs = (i & 1) == 1;
+            double value = lbs ? 170 + (i % 50) / 10.0 : 77 + (i % 50) / 10.0;
+            return String.format(Locale.US, "%04d-%02d-%02d,%.1f,%s\n",
+                    year, month, day, value, lbs ? "lbs" : "kg");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips 1M-row exports through the CSV and binary writers on real files, and one
+ * user's history out of a seeded database through the public export calls and back in
+ * through WeightCsvImporter.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightExporterTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int FIRST_DAY = EpochDays.of(1990, 1, 1);
+    private static final String DB_NAME = "export_test.db";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    private static double kgAt(int i) {
+        return 55.0 + (i % 700) / 10.0 + (i % 3) * 0.015;
+    }
+
+    @Test
+    public void binary_roundTrips1MRows() throws IOException {
+        File f = tmp.newFile("weights.wtw");
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) {
+            WeightExporter.BinaryWriter w = new WeightExporter.BinaryWriter(ch);
+            for (int i = 0; i < ROWS; i++) w.row(FIRST_DAY + i, (float) kgAt(i));
+            w.flush();
+        }
+
+        assertEquals(WeightExporter.BINARY_MAGIC.length + (long) ROWS * WeightExporter.BINARY_RECORD_BYTES,
+                f.length());
+
+        int n = 0;
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            WeightExporter.BinaryReader r = new WeightExporter.BinaryReader(ch);
+            while (r.next()) {
+                assertEquals(FIRST_DAY + n, r.epochDay());
+                assertEquals((float) kgAt(n), r.kg(), 0f);
+                n++;
+            }
+        }
+        assertEquals(ROWS, n);
+    }
+
+    @Test
+    public void csv_roundTrips1MRowsExactly() throws IOException {
+        File f = tmp.newFile("weights.csv");
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) {
+            WeightExporter.CsvWriter w = new WeightExporter.CsvWriter(ch);
+            for (int i = 0; i < ROWS; i++) w.row(FIRST_DAY + i, kgAt(i));
+            w.flush();
+        }
+
+        int n = 0;
+        try (BufferedReader in = Files.newBufferedReader(f.toPath(), StandardCharsets.US_ASCII)) {
+            assertEquals("date,weight,unit", in.readLine());
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(",");
+                assertEquals(LocalDate.ofEpochDay(FIRST_DAY + n).toString(), parts[0]);
+                assertEquals(kgAt(n), Double.parseDouble(parts[1]), 0d);
+                assertEquals("kg", parts[2]);
+                n++;
+            }
+        }
+        assertEquals(ROWS, n);
+    }
+
+    @Test
+    public void database_exportsOneUserOldestFirst_andCsvReimports() throws IOException {
+        long user = helper.createUser("exporter", "pw");
+        long other = helper.createUser("other", "pw");
+        // inserted out of date order, with values a float or a short decimal can't hold
+        int[] days = {FIRST_DAY + 40, FIRST_DAY, FIRST_DAY + 7, FIRST_DAY + 41, FIRST_DAY + 3};
+        double[] kg = {80.1, 176.4 * WeightFormatter.KG_PER_LB, 79.95, 1.0 / 3 + 70, 81.0};
+        for (int i = 0; i < days.length; i++) {
+            assertTrue(helper.insertWeight(user, days[i], kg[i]) > 0);
+            helper.insertWeight(other, days[i] + 1, 50.0);
+        }
+        List<AppDatabaseHelper.WeightEntry> expected = oldestFirst(user);
+        assertEquals(days.length, expected.size());
+
+        WeightExporter exporter = new WeightExporter(helper);
+        File csv = tmp.newFile("weights.csv");
+        try (FileChannel ch = FileChannel.open(csv.toPath(), StandardOpenOption.WRITE)) {
+            assertEquals(days.length, exporter.exportCsv(user, ch));
+        }
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(days.length + 1, lines.size());
+        assertEquals("date,weight,unit", lines.get(0));
+        for (int i = 0; i < expected.size(); i++) {
+            AppDatabaseHelper.WeightEntry e = expected.get(i);
+            assertEquals(EpochDays.toIsoString(e.day) + "," + e.weight + ",kg", lines.get(i + 1));
+        }
+
+        File bin = tmp.newFile("weights.wtw");
+        try (FileChannel ch = FileChannel.open(bin.toPath(), StandardOpenOption.WRITE)) {
+            assertEquals(days.length, exporter.exportBinary(user, ch));
+        }
+        try (FileChannel ch = FileChannel.open(bin.toPath(), StandardOpenOption.READ)) {
+            WeightExporter.BinaryReader r = new WeightExporter.BinaryReader(ch);
+            for (AppDatabaseHelper.WeightEntry e : expected) {
+                assertTrue(r.next());
+                assertEquals(e.day, r.epochDay());
+                assertEquals((float) e.weight, r.kg(), 0f);
+            }
+            assertFalse(r.next());
+        }
+
+        // the CSV is a lossless backup: importing it gives the same history, bit for bit
+        long restored = helper.createUser("restored", "pw");
+        WeightCsvImporter.Result result;
+        try (BufferedReader in = Files.newBufferedReader(csv.toPath(), StandardCharsets.US_ASCII)) {
+            result = new WeightCsvImporter(helper).importCsv(restored, in, null, null);
+        }
+        assertEquals(days.length, result.imported);
+        assertEquals(0, result.skipped);
+        List<AppDatabaseHelper.WeightEntry> back = oldestFirst(restored);
+        assertEquals(expected.size(), back.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).day, back.get(i).day);
+            assertEquals(expected.get(i).weight, back.get(i).weight, 0d);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void binaryReader_rejectsOtherFiles() throws IOException {
+        File f = tmp.newFile("other.bin");
+        Files.write(f.toPath(), "date,weight".getBytes(StandardCharsets.US_ASCII));
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            new WeightExporter.BinaryReader(ch);
+        }
+    }
+
+    /** getWeights is newest first; exports are oldest first. */
+    private List<AppDatabaseHelper.WeightEntry> oldestFirst(long userId) {
+        List<AppDatabaseHelper.WeightEntry> rows = new ArrayList<>(helper.getWeights(userId));
+        Collections.reverse(rows);
+        return rows;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Output and garbage checks for WeightFormatter (the row-bind formatting path).
+ */
+public class WeightFormatterTest {
+
+    private static String fmt(WeightFormatter f, double kg) {
+        char[] buf = new char[WeightFormatter.MAX_CHARS];
+        return new String(buf, 0, f.format(kg, buf));
+    }
+
+    @Test
+    public void kg_oneDecimal() {
+        assertEquals("72.0 kg", fmt(WeightFormatter.KG, 72));
+        assertEquals("72.1 kg", fmt(WeightFormatter.KG, 72.05));
+        assertEquals("0.0 kg", fmt(WeightFormatter.KG, 0));
+        assertEquals("100.0 kg", fmt(WeightFormatter.KG, 99.96));
+        assertEquals("-3.3 kg", fmt(WeightFormatter.KG, -3.25));
+    }
+
+    @Test
+    public void lbs_convertsFromKg() {
+        assertEquals("158.7 lbs", fmt(WeightFormatter.LBS, 72));
+        assertEquals("1.0 lbs", fmt(WeightFormatter.LBS, WeightFormatter.KG_PER_LB));
+    }
+
+    @Test
+    public void forUnit_matchesUnitStrings() {
+        assertSame(WeightFormatter.KG, WeightFormatter.forUnit("kg"));
+        assertSame(WeightFormatter.LBS, WeightFormatter.forUnit("lbs"));
+    }
+
+    @Test
+    public void notANumber_printsPlaceholder() {
+        assertEquals("-- kg", fmt(WeightFormatter.KG, Double.NaN));
+    }
+
+    @Test
+    public void matchesStringFormatForTypicalEntries() {
+        for (int tenths = 300; tenths < 3000; tenths++) {
+            double kg = tenths / 10d;
+            assertEquals(String.format(java.util.Locale.US, "%.1f kg", kg), fmt(WeightFormatter.KG, kg));
+        }
+    }
+
+    /** Steady-state formatting (what every onBindViewHolder does) allocates nothing. */
+    @Test
+    public void steadyState_allocatesNothing() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) mx;
+        Assume.assumeTrue(counter.isThreadAllocatedMemorySupported());
+        counter.setThreadAllocatedMemoryEnabled(true);
+
+        char[] rowBuffer = new char[WeightFormatter.MAX_CHARS];
+        int binds = 1_000_000;
+        long sink = 0;
+
+        // warm up so the JIT has compiled the path being measured
+        for (int i = 0; i < binds; i++) sink += WeightFormatter.LBS.format(i * 0.01, rowBuffer);
+
+        long tid = Thread.currentThread().getId();
+        long before = counter.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < binds; i++) {
+            WeightFormatter f = (i & 1) == 0 ? WeightFormatter.KG : WeightFormatter.LBS;
+            sink += f.format(40 + i * 0.001, rowBuffer);
+        }
+        long allocated = counter.getThreadAllocatedBytes(tid) - before;
+
+        assertTrue(sink > 0);
+        // a few hundred bytes of slack for the measurement itself; a single boxed
+        // Double or String per bind would be tens of megabytes here
+        assertTrue("allocated " + allocated + " bytes over " + binds + " binds", allocated < 1024);
+    }
+}
@@ -0,0 +1,161 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keyset and date-range paging over a long history: the page queries seek the covering
+ * index without sorting, and walking pages visits every row once, in order.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightPagingTest {
+
+    private static final String DB_NAME = "paging_test.db";
+    private static final int USERS = 4;
+    private static final int ROWS_PER_USER = 30_000; // 120k rows total
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private final long[] users = new long[USERS];
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        for (int u = 0; u < USERS; u++) users[u] = helper.createUser("user" + u, "pw");
+        seed();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void keysetPageQuery_seeksIndexWithoutSort() {
+        String plan = queryPlan(helper.getReadableDatabase(),
+                "SELECT _id,user_id,date,weight FROM weights WHERE user_id=?" +
+                        " AND (date,_id) < (?,?) ORDER BY date DESC, _id DESC LIMIT 50",
+                String.valueOf(users[0]), "-7000", "1000");
+
+        assertTrue(plan, plan.contains("COVERING INDEX idx_weights_user_date_id"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void rangePageQuery_seeksIndexFromAnchor() {
+        String plan = queryPlan(helper.getReadableDatabase(),
+                "SELECT _id,user_id,date,weight FROM weights WHERE user_id=? AND date>=?" +
+                        " AND (date,_id) < (?,?) ORDER BY date DESC, _id DESC LIMIT 50",
+                String.valueOf(users[0]), "-20000", "-7000", "1000");
+
+        assertTrue(plan, plan.contains("COVERING INDEX idx_weights_user_date_id"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void keysetPages_walkWholeHistoryInOrder() {
+        int seen = 0;
+        AppDatabaseHelper.WeightEntry anchor = null;
+        List<AppDatabaseHelper.WeightEntry> page;
+        do {
+            page = helper.getWeightsOlderThan(users[2], anchor, 500, null);
+            for (AppDatabaseHelper.WeightEntry e : page) {
+                if (anchor != null) assertTrue(e.day < anchor.day);
+                anchor = e;
+            }
+            seen += page.size();
+        } while (page.size() == 500);
+        assertEquals(ROWS_PER_USER, seen);
+
+        // and back up again from the oldest row
+        List<AppDatabaseHelper.WeightEntry> newer = helper.getWeightsNewerThan(users[2], anchor, 10, null);
+        assertEquals(10, newer.size());
+        assertTrue(newer.get(0).day > newer.get(9).day);
+        assertTrue(newer.get(9).day > anchor.day);
+    }
+
+    @Test
+    public void rangePages_walkOnlyTheRangeInOrder() {
+        int from = EpochDays.of(1950, 1, 1);
+        int to = EpochDays.of(1950, 12, 31);
+
+        int seen = 0;
+        AppDatabaseHelper.WeightEntry anchor = null;
+        ColumnarWeightStore page;
+        do {
+            page = helper.getPageOlderThan(users[2], from, to, anchor, 50, null);
+            for (int i = 0; i < page.size(); i++) {
+                int day = page.dayAt(i);
+                assertTrue(day >= from && day <= to);
+                if (anchor != null) assertTrue(day < anchor.day);
+                anchor = page.entryAt(i);
+            }
+            seen += page.size();
+        } while (page.size() == 50);
+        assertEquals(12 * 28, seen); // the seed writes 28 days a month
+
+        // back up from the oldest row stops at the end of the range
+        ColumnarWeightStore newer = helper.getPageNewerThan(users[2], from, to, anchor, 500, null);
+        assertEquals(12 * 28 - 1, newer.size());
+        assertEquals(EpochDays.of(1950, 12, 28), newer.dayAt(0));
+    }
+
+    // ---------------------------------------------------------------------
+    // helpers
+    // ---------------------------------------------------------------------
+
+    /** Interleaved history for every user, straight into the current schema. */
+    private void seed() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(AppDatabaseHelper.SQL_INSERT_WEIGHT)) {
+            for (int i = 0; i < ROWS_PER_USER; i++) {
+                int day = day(i);
+                for (long user : users) {
+                    insert.bindLong(1, user);
+                    insert.bindLong(2, day);
+                    insert.bindDouble(3, 60.0 + (i % 400) / 10.0);
+                    insert.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (long user : users) helper.invalidateSummary(user);
+    }
+
+    /** Distinct days from 1900, increasing with i (28-day months keep it simple). */
+    private static int day(int i) {
+        return EpochDays.of(1900 + i / (12 * 28), 1 + (i / 28) % 12, 1 + i % 28);
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql, String... args) {
+        StringBuilder out = new StringBuilder();
+        try (Cursor c = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                out.append(c.getString(detail)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * weight_rollups stays equal to a full recompute through random inserts, edits and deletes,
+ * and so do range statistics built from the helper's cached months.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightRollupsTest {
+
+    private static final String DB_NAME = "rollups_test.db";
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+        userId = helper.createUser("rollups", "pw");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void weekAndMonthBuckets() {
+        // 2025-03-03 is a Monday
+        helper.insertWeight(userId, EpochDays.of(2025, 3, 2), 81.0);  // previous week
+        helper.insertWeight(userId, EpochDays.of(2025, 3, 3), 80.0);
+        helper.insertWeight(userId, EpochDays.of(2025, 3, 9), 78.0);
+        helper.insertWeight(userId, EpochDays.of(2025, 4, 1), 77.0);
+
+        List<AppDatabaseHelper.WeightRollup> weeks = helper.getRollups(userId,
+                AppDatabaseHelper.ROLLUP_WEEK, EpochDays.of(2025, 3, 1), EpochDays.of(2025, 3, 31));
+        assertEquals(1, weeks.size());
+        AppDatabaseHelper.WeightRollup w = weeks.get(0);
+        assertEquals(EpochDays.of(2025, 3, 3), w.startDay);
+        assertEquals(2, w.count);
+        assertEquals(79.0, w.avgKg(), 1e-9);
+        assertEquals(78.0, w.minKg, 0);
+        assertEquals(80.0, w.maxKg, 0);
+
+        List<AppDatabaseHelper.WeightRollup> months = helper.getRollups(userId,
+                AppDatabaseHelper.ROLLUP_MONTH, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertEquals(2, months.size());
+        assertEquals(EpochDays.of(2025, 4, 1), months.get(0).startDay);
+        assertEquals(EpochDays.of(2025, 3, 1), months.get(1).startDay);
+        assertEquals(3, months.get(1).count);
+    }
+
+    @Test
+    public void randomWrites_matchFullRecompute() {
+        Random rnd = new Random(42);
+        List<Long> ids = new ArrayList<>();
+        int base = EpochDays.of(2024, 1, 1);
+        for (int step = 0; step < 3000; step++) {
+            int r = rnd.nextInt(10);
+            int day = base + rnd.nextInt(400);
+            double kg = 50 + rnd.nextInt(400) / 10.0;
+            if (r < 3) {
+                AppDatabaseHelper.WeightBatch b = helper.upsertWeight(userId, day, kg);
+                if (b.before.isEmpty()) ids.add(b.after.get(0).id);
+            } else if (r < 6 || ids.isEmpty()) {
+                long id = helper.insertWeight(userId, day, kg);
+                if (id > 0) ids.add(id); // -1: that day is taken
+            } else if (r < 8) {
+                helper.updateWeight(ids.get(rnd.nextInt(ids.size())), day, kg);
+            } else {
+                helper.deleteWeight(ids.remove(rnd.nextInt(ids.size())));
+            }
+        }
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    @Test
+    public void verify_detectsAndRepairsDrift() {
+        helper.insertWeight(userId, EpochDays.of(2025, 1, 1), 80.0);
+        helper.insertWeight(userId, EpochDays.of(2025, 2, 1), 82.0);
+        helper.getWritableDatabase().execSQL("UPDATE weight_rollups SET cnt = cnt + 1");
+
+        assertEquals(4, helper.verifyRollups(true));
+        assertEquals(0, helper.verifyRollups(false));
+    }
+
+    @Test
+    public void rangeStats_followWritesThroughCachedMonths() {
+        Random rnd = new Random(7);
+        List<Long> ids = new ArrayList<>();
+        int base = EpochDays.of(2024, 1, 1);
+        for (int i = 0; i < 400; i++) ids.add(helper.insertWeight(userId, base + i, 70 + rnd.nextInt(200) / 10.0));
+        int from = EpochDays.of(2024, 2, 10);
+        int to = EpochDays.of(2024, 11, 20);
+
+        for (int step = 0; step < 60; step++) {
+            // the first read fills the month cache; later ones mostly merge from it
+            assertSameStats(expectedStats(from, to), helper.getStats(userId, from, to, null));
+            assertSameStats(expectedStats(AppDatabaseHelper.FIRST_DAY, AppDatabaseHelper.LAST_DAY),
+                    helper.getStats(userId, AppDatabaseHelper.FIRST_DAY, AppDatabaseHelper.LAST_DAY, null));
+            Long id = ids.get(rnd.nextInt(ids.size()));
+            int day = base + rnd.nextInt(400);
+            double kg = 70 + rnd.nextInt(200) / 10.0;
+            switch (step % 3) {
+                case 0: helper.updateWeight(id, day, kg); break; // -1 when the day is taken
+                case 1: helper.upsertWeight(userId, day, kg); break;
+                default:
+                    if (helper.deleteWeight(id) > 0) ids.remove(id);
+            }
+        }
+        assertEquals(0, helper.getStats(userId, EpochDays.of(2030, 1, 1), EpochDays.of(2030, 12, 31), null).count());
+    }
+
+    /** One plain pass over the rows in [from, to]. */
+    private WeightStats expectedStats(int from, int to) {
+        WeightStats s = new WeightStats();
+        for (AppDatabaseHelper.WeightEntry e : helper.getWeights(userId, null)) {
+            if (e.day >= from && e.day <= to) s.add(e.weight);
+        }
+        return s;
+    }
+
+    private static void assertSameStats(WeightStats expected, WeightStats actual) {
+        assertEquals(expected.count(), actual.count());
+        assertEquals(expected.meanKg(), actual.meanKg(), 1e-9);
+        assertEquals(expected.stdDevKg(), actual.stdDevKg(), 1e-9);
+        assertEquals(expected.minKg(), actual.minKg(), 0);
+        assertEquals(expected.maxKg(), actual.maxKg(), 0);
+        assertEquals(expected.quantileKg(0.1), actual.quantileKg(0.1), 0);
+        assertEquals(expected.medianKg(), actual.medianKg(), 0);
+        assertEquals(expected.quantileKg(0.9), actual.quantileKg(0.9), 0);
+    }
+}
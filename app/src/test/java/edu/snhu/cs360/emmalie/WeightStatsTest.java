@@ -0,0 +1,106 @@
+package edu.snhu.cs360.emmalie;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * One-pass statistics against exact two-pass / sorted answers, and that merging per-month
+ * pieces gives the same statistics as one pass over all of them.
+ */
+public class WeightStatsTest {
+
+    @Test
+    public void empty_isNaN() {
+        WeightStats s = new WeightStats();
+        assertEquals(0, s.count());
+        assertTrue(Double.isNaN(s.meanKg()));
+        assertTrue(Double.isNaN(s.stdDevKg()));
+        assertTrue(Double.isNaN(s.minKg()));
+        assertTrue(Double.isNaN(s.medianKg()));
+
+        s.add(80.0);
+        assertEquals(80.0, s.meanKg(), 0);
+        assertEquals(80.0, s.medianKg(), 0);
+        assertTrue(Double.isNaN(s.stdDevKg()));
+    }
+
+    @Test
+    public void meanAndSpread_matchTwoPass() {
+        // large values differing by tenths: where sum-of-squares loses every digit
+        double[] kg = history(50_000, 1e6);
+        WeightStats s = new WeightStats();
+        for (double v : kg) s.add(v);
+
+        double mean = 0;
+        for (double v : kg) mean += v;
+        mean /= kg.length;
+        double ss = 0;
+        for (double v : kg) ss += (v - mean) * (v - mean);
+        double sd = Math.sqrt(ss / (kg.length - 1));
+
+        assertEquals(kg.length, s.count());
+        assertEquals(mean, s.meanKg(), mean * 1e-12);
+        assertEquals(sd, s.stdDevKg(), sd * 1e-9);
+    }
+
+    @Test
+    public void quantiles_withinRelativeAccuracy() {
+        double[] kg = history(20_000, 80);
+        WeightStats s = new WeightStats();
+        for (double v : kg) s.add(v);
+        double[] sorted = kg.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(sorted[0], s.minKg(), 0);
+        assertEquals(sorted[sorted.length - 1], s.maxKg(), 0);
+        for (double q : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            assertEquals("q=" + q, exact, s.quantileKg(q), exact * QuantileSketch.RELATIVE_ACCURACY);
+        }
+    }
+
+    @Test
+    public void mergedMonths_equalOnePass() {
+        double[] kg = history(3_000, 80);
+        WeightStats whole = new WeightStats();
+        for (double v : kg) whole.add(v);
+
+        // ~30-day pieces merged in a scrambled order, as a range is assembled from the cache
+        WeightStats[] months = new WeightStats[(kg.length + 29) / 30];
+        for (int i = 0; i < months.length; i++) months[i] = new WeightStats();
+        for (int i = 0; i < kg.length; i++) months[i / 30].add(kg[i]);
+        WeightStats merged = new WeightStats();
+        for (int i = 0; i < months.length; i++) merged.merge(months[(i * 37) % months.length]);
+
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.meanKg(), merged.meanKg(), 1e-9);
+        assertEquals(whole.stdDevKg(), merged.stdDevKg(), 1e-9);
+        assertEquals(whole.minKg(), merged.minKg(), 0);
+        assertEquals(whole.maxKg(), merged.maxKg(), 0);
+        for (double q = 0; q <= 1; q += 0.05) {
+            assertEquals("q=" + q, whole.quantileKg(q), merged.quantileKg(q), 0); // same buckets
+        }
+
+        // and merging leaves the pieces alone, so cached months can be reused
+        WeightStats before = months[0].copy();
+        merged.merge(months[0]);
+        assertEquals(before.count(), months[0].count());
+        assertEquals(before.medianKg(), months[0].medianKg(), 0);
+    }
+
+    /** {@code n} daily weigh-ins drifting by tenths around {@code around} kg. */
+    private static double[] history(int n, double around) {
+        Random rnd = new Random(5);
+        double[] kg = new double[n];
+        double v = around;
+        for (int i = 0; i < n; i++) {
+            v = Math.round((v + (rnd.nextInt(7) - 3) / 10.0 + (around - v) / 50) * 10) / 10.0;
+            kg[i] = v;
+        }
+        return kg;
+    }
+}
@@ -0,0 +1,144 @@
+package edu.snhu.cs360.emmalie;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Incremental upkeep of AppDatabaseHelper.WeightSummary, and the helper's cached summary
+ * staying exact when a load lands between a write's commit and its cache patch.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WeightSummaryTest {
+
+    private static final String DB_NAME = "summary_test.db";
+
+    private static final AppDatabaseHelper.WeightSummary EMPTY =
+            new AppDatabaseHelper.WeightSummary(null, 0, Double.NaN, Double.NaN);
+
+    private static AppDatabaseHelper.WeightEntry row(long id, String date, double kg) {
+        return new AppDatabaseHelper.WeightEntry(id, 1, EpochDays.parse(date), kg);
+    }
+
+    private Context ctx;
+    private AppDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        ctx = RuntimeEnvironment.getApplication();
+        ctx.deleteDatabase(DB_NAME);
+        helper = new AppDatabaseHelper(ctx, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void plus_tracksLatestCountAndRange() {
+        AppDatabaseHelper.WeightSummary s = EMPTY
+                .plus(row(1, "2025-01-02", 80))
+                .plus(row(2, "2025-01-01", 82))   // older date, not the latest
+                .plus(row(3, "2025-01-03", 79));
+
+        assertEquals(3, s.latest.id);
+        assertEquals(3, s.count);
+        assertEquals(79, s.minKg, 0);
+        assertEquals(82, s.maxKg, 0);
+    }
+
+    @Test
+    public void plus_sameDateHigherIdWins() {
+        AppDatabaseHelper.WeightSummary s = EMPTY
+                .plus(row(5, "2025-01-01", 80))
+                .plus(row(6, "2025-01-01", 81));
+        assertEquals(6, s.latest.id);
+    }
+
+    @Test
+    public void minus_interiorRowStaysIncremental() {
+        AppDatabaseHelper.WeightEntry mid = row(2, "2025-01-02", 80);
+        AppDatabaseHelper.WeightSummary s = EMPTY
+                .plus(row(1, "2025-01-01", 82))
+                .plus(mid)
+                .plus(row(3, "2025-01-03", 79));
+
+        AppDatabaseHelper.WeightSummary after = s.minus(mid);
+        assertNotNull(after);
+        assertEquals(2, after.count);
+        assertEquals(3, after.latest.id);
+    }
+
+    @Test
+    public void minus_latestOrExtremeNeedsReload() {
+        AppDatabaseHelper.WeightEntry oldest = row(1, "2025-01-01", 82);
+        AppDatabaseHelper.WeightEntry newest = row(3, "2025-01-03", 79);
+        AppDatabaseHelper.WeightSummary s = EMPTY
+                .plus(oldest)
+                .plus(row(2, "2025-01-02", 80))
+                .plus(newest);
+
+        assertNull(s.minus(newest));  // was the latest and the min
+        assertNull(s.minus(oldest));  // held the max
+    }
+
+    @Test
+    public void minus_lastRowEmpties() {
+        AppDatabaseHelper.WeightEntry only = row(1, "2025-01-01", 80);
+        AppDatabaseHelper.WeightSummary s = EMPTY.plus(only).minus(only);
+        assertNotNull(s);
+        assertEquals(0, s.count);
+        assertNull(s.latest);
+    }
+
+    @Test
+    public void loadBetweenCommitAndPatch_isNotCountedTwice() {
+        long user = helper.createUser("racer", "pw");
+        int day = EpochDays.of(2025, 1, 1);
+        long first = helper.insertWeight(user, day, 80.0);
+        long second = helper.insertWeight(user, day + 1, 81.0);
+        helper.invalidateSummary(user); // nothing cached: the next read loads
+
+        // the write's cache patch is preceded by full loads, which already see the row
+        helper.afterCommitForTest = () -> {
+            helper.afterCommitForTest = null;
+            helper.getSummary(user);
+            helper.getTrend(user);
+            helper.getHistoryColumns(user, null);
+        };
+        helper.insertWeight(user, day + 2, 82.0);
+        assertCached(user, 3);
+
+        helper.invalidateSummary(user);
+        helper.afterCommitForTest = () -> {
+            helper.afterCommitForTest = null;
+            helper.getSummary(user);
+            helper.getHistoryColumns(user, null);
+        };
+        // an interior row: minus() patches rather than dropping, so a second patch would stick
+        assertEquals(1, helper.deleteWeight(second));
+        assertCached(user, 2);
+        assertEquals(first, helper.getWeights(user).get(1).id);
+    }
+
+    /** The cached summary and history agree with the table, and with a fresh load. */
+    private void assertCached(long user, int rows) {
+        assertEquals(rows, helper.getWeights(user).size());
+        assertEquals(rows, helper.getSummary(user).count);
+        assertEquals(rows, helper.getHistoryColumns(user, null).size());
+        assertEquals(rows, helper.getTrend(user).count);
+        helper.invalidateSummary(user);
+        assertEquals(rows, helper.getSummary(user).count);
+    }
+}